@@ -0,0 +1,178 @@
+package com.silentmatt.dss;
+
+import com.silentmatt.dss.error.ListErrorReporter;
+import com.silentmatt.dss.error.Message;
+import com.silentmatt.dss.evaluator.ParseCache;
+import java.io.File;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Compiles a list of DSS files in parallel.
+ *
+ * All of the files share a single {@link ParseCache}, so a file that is
+ * included from several entry points only gets parsed once.
+ *
+ * Output files are named after the input files, without their directories, so
+ * two inputs with the same name (like a/main.dss and b/main.dss) can't be
+ * compiled together. If there are any, nothing is compiled.
+ *
+ * @author Matthew Crumley
+ */
+public class BatchProcessor {
+    private final Configuration config;
+    private final ParseCache parseCache;
+
+    public BatchProcessor(Configuration config) {
+        this(config, FileProcessor.createParseCache(config));
+    }
+
+    public BatchProcessor(Configuration config, ParseCache parseCache) {
+        this.config = config;
+        this.parseCache = parseCache;
+    }
+
+    /**
+     * Compiles each URL into a ".css" file in the output directory, and prints
+     * a summary of the results.
+     *
+     * @param urls The DSS files to compile.
+     * @param outDir The directory to write the CSS files to.
+     * @param summary Where to print the summary.
+     *
+     * @return The number of files that failed to compile.
+     */
+    public int processFiles(List<URL> urls, File outDir, PrintStream summary) {
+        List<URL> inputs = new ArrayList<>();
+        int conflicts = checkOutputNames(urls, inputs, summary);
+        if (conflicts > 0) {
+            return conflicts;
+        }
+        urls = inputs;
+
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            summary.println("Unable to create output directory: " + outDir);
+            return urls.size();
+        }
+
+        final FileProcessor processor = new FileProcessor(config, parseCache);
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        List<Future<ListErrorReporter>> results = new ArrayList<>(urls.size());
+
+        try {
+            for (final URL url : urls) {
+                final File out = new File(outDir, getOutputName(url));
+                results.add(pool.submit(new Callable<ListErrorReporter>() {
+                    @Override
+                    public ListErrorReporter call() {
+                        ListErrorReporter errors = new ListErrorReporter();
+                        processor.processFile(url, out, errors);
+                        return errors;
+                    }
+                }));
+            }
+
+            int failed = 0;
+            for (int i = 0; i < urls.size(); i++) {
+                ListErrorReporter errors;
+                try {
+                    errors = results.get(i).get();
+                } catch (ExecutionException ex) {
+                    errors = new ListErrorReporter();
+                    errors.semanticError("DSS: " + ex.getCause());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return urls.size() - i + failed;
+                }
+
+                if (errors.getErrorCount() > 0) {
+                    ++failed;
+                }
+                printSummary(summary, urls.get(i), errors);
+            }
+
+            summary.println((urls.size() - failed) + " of " + urls.size() + " file" + (urls.size() != 1 ? "s" : "") + " compiled successfully.");
+            return failed;
+        }
+        finally {
+            pool.shutdown();
+            processor.close();
+        }
+    }
+
+    /**
+     * Reports inputs that would be written to the same output file.
+     *
+     * A file that's listed more than once (e.g. by overlapping glob patterns)
+     * is only compiled once.
+     *
+     * @param urls The input files.
+     * @param inputs The list to add each distinct input to.
+     * @param summary Where to report conflicts.
+     *
+     * @return The number of inputs that share an output name with a different input.
+     */
+    private static int checkOutputNames(List<URL> urls, List<URL> inputs, PrintStream summary) {
+        Map<String, URL> outputs = new HashMap<>();
+        int conflicts = 0;
+        for (URL url : urls) {
+            String name = getOutputName(url);
+            URL existing = outputs.get(name);
+            if (existing == null) {
+                outputs.put(name, url);
+                inputs.add(url);
+            }
+            else if (!existing.sameFile(url)) {
+                summary.println(getDisplayName(url) + ": output " + name + " would overwrite the output of " + getDisplayName(existing));
+                ++conflicts;
+            }
+        }
+        if (conflicts > 0) {
+            summary.println("Nothing was compiled.");
+        }
+        return conflicts;
+    }
+
+    private static void printSummary(PrintStream summary, URL url, ListErrorReporter errors) {
+        summary.print(getDisplayName(url) + ": ");
+        if (errors.getErrorCount() == 0 && errors.getWarningCount() == 0) {
+            summary.println("OK");
+            return;
+        }
+
+        summary.println(errors.getErrorCount() + " error" + (errors.getErrorCount() != 1 ? "s" : "") + ", "
+                + errors.getWarningCount() + " warning" + (errors.getWarningCount() != 1 ? "s" : ""));
+        for (Message message : errors.getErrors()) {
+            summary.println("    " + message);
+        }
+        for (Message message : errors.getWarnings()) {
+            summary.println("    " + message);
+        }
+    }
+
+    private static String getDisplayName(URL url) {
+        try {
+            return new File(url.toURI()).getPath();
+        } catch (URISyntaxException | IllegalArgumentException ex) {
+            return url.toExternalForm();
+        }
+    }
+
+    private static String getOutputName(URL url) {
+        String path = url.getPath();
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        if (name.toLowerCase().endsWith(".dss")) {
+            name = name.substring(0, name.length() - 4);
+        }
+        return (name.isEmpty() ? "index" : name) + ".css";
+    }
+}
@@ -0,0 +1,287 @@
+package com.silentmatt.dss;
+
+import com.google.common.base.Charsets;
+import com.silentmatt.dss.css.CssDocument;
+import com.silentmatt.dss.css.CssWriter;
+import com.silentmatt.dss.declaration.Declaration;
+import com.silentmatt.dss.error.ErrorReporter;
+import com.silentmatt.dss.error.PrintStreamErrorReporter;
+import com.silentmatt.dss.evaluator.DSSEvaluator;
+import com.silentmatt.dss.evaluator.DefaultResourcesLocator;
+import com.silentmatt.dss.evaluator.MemoryParseCache;
+import com.silentmatt.dss.evaluator.ParseCache;
+import com.silentmatt.dss.evaluator.ResourceLocator;
+import com.silentmatt.dss.parser.DSSParser;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A long-running compiler that accepts requests over a loopback socket.
+ *
+ * Parsed documents (including included files) are kept in a {@link ParseCache}
+ * between requests, so only files that have changed need to be parsed again.
+ *
+ * Each connection handles a single request. The request is a series of lines
+ * ending with a blank line or the end of the stream:
+ *
+ * <pre>
+ * URL file:/path/to/style.dss
+ * DEFINE name: value
+ * COMPRESS
+ * </pre>
+ *
+ * URL is required; DEFINE can be repeated. The response starts with a status
+ * line, "OK &lt;errors&gt; &lt;warnings&gt;" or "ERROR &lt;errors&gt; &lt;warnings&gt;",
+ * followed by one line for each diagnostic message, a blank line, and then the
+ * generated CSS. The server closes the connection after the response.
+ *
+ * Connections are handled on a fixed pool of threads, one per processor by
+ * default, so a slow compile or a slow client doesn't hold up other requests
+ * while there are idle threads. A client that stops sending its request for
+ * longer than the read timeout is disconnected.
+ *
+ * @author Matthew Crumley
+ */
+public class CompileServer implements Closeable {
+    /**
+     * The default port to listen on.
+     */
+    public static final int DEFAULT_PORT = 8977;
+
+    /**
+     * The default time to wait for a client to send its request, in milliseconds.
+     */
+    public static final int DEFAULT_READ_TIMEOUT = 30000;
+
+    private final int port;
+    private final ParseCache parseCache;
+    private final ResourceLocator resourceLocator;
+    private int readTimeout = DEFAULT_READ_TIMEOUT;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private ServerSocket server;
+    private boolean closed;
+
+    /**
+     * Constructs a CompileServer that will listen on the specified port.
+     *
+     * @param port The loopback port to listen on.
+     */
+    public CompileServer(int port) {
+        this(port, new MemoryParseCache());
+    }
+
+    /**
+     * Constructs a CompileServer that will listen on the specified port, using
+     * an existing parse cache.
+     *
+     * @param port The loopback port to listen on.
+     * @param parseCache The {@link ParseCache} to share between requests.
+     */
+    public CompileServer(int port, ParseCache parseCache) {
+        this.port = port;
+        this.parseCache = parseCache;
+        this.resourceLocator = new DefaultResourcesLocator();
+    }
+
+    /**
+     * Sets how long to wait for a client to send each line of its request.
+     *
+     * @param readTimeout The timeout in milliseconds, or 0 to wait forever.
+     */
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Gets how long to wait for a client to send each line of its request.
+     *
+     * @return The timeout in milliseconds.
+     */
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * Sets the number of requests that can be handled at the same time.
+     *
+     * @param threadCount The number of worker threads.
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Gets the number of requests that can be handled at the same time.
+     *
+     * @return The number of worker threads.
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Accepts and handles requests until {@link #close()} is called. Requests
+     * that have already been accepted are allowed to finish.
+     *
+     * @throws IOException if the server socket can't be opened.
+     */
+    public void serve() throws IOException {
+        ServerSocket server = open();
+        if (server == null) {
+            return;
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(threadCount);
+        try {
+            System.out.println("Listening on " + server.getLocalSocketAddress());
+            while (true) {
+                final Socket client;
+                try {
+                    client = server.accept();
+                } catch (IOException ex) {
+                    if (server.isClosed()) {
+                        break;
+                    }
+                    System.err.println("DSS: I/O error: " + ex.getMessage());
+                    continue;
+                }
+                workers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try (Socket socket = client) {
+                            socket.setSoTimeout(readTimeout);
+                            handle(socket);
+                        } catch (IOException ex) {
+                            System.err.println("DSS: I/O error: " + ex.getMessage());
+                        }
+                    }
+                });
+            }
+        }
+        finally {
+            close();
+            workers.shutdown();
+        }
+    }
+
+    private synchronized ServerSocket open() throws IOException {
+        if (!closed) {
+            server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        }
+        return server;
+    }
+
+    /**
+     * Stops accepting requests, causing {@link #serve()} to return.
+     *
+     * @throws IOException if the server socket can't be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private void handle(Socket client) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), Charsets.UTF_8));
+
+        String urlString = null;
+        List<String> defines = new ArrayList<>();
+        boolean compress = false;
+
+        String line;
+        while ((line = in.readLine()) != null && !line.isEmpty()) {
+            int space = line.indexOf(' ');
+            String command = space == -1 ? line : line.substring(0, space);
+            String argument = space == -1 ? "" : line.substring(space + 1).trim();
+
+            if (command.equalsIgnoreCase("URL")) {
+                urlString = argument;
+            }
+            else if (command.equalsIgnoreCase("DEFINE")) {
+                defines.add(argument);
+            }
+            else if (command.equalsIgnoreCase("COMPRESS")) {
+                compress = true;
+            }
+        }
+
+        ByteArrayOutputStream messages = new ByteArrayOutputStream();
+        ErrorReporter errors = new PrintStreamErrorReporter(new PrintStream(messages, true, "UTF-8"));
+        CssDocument css = null;
+
+        if (urlString == null) {
+            errors.semanticError("DSS: Missing URL");
+        }
+        else {
+            css = compile(urlString, defines, errors);
+        }
+
+        CssWriter out = new CssWriter(client.getOutputStream());
+        out.append(errors.getErrorCount() > 0 ? "ERROR " : "OK ");
+        out.append(Integer.toString(errors.getErrorCount())).append(' ').append(Integer.toString(errors.getWarningCount())).append('\n');
+        out.append(new String(messages.toByteArray(), Charsets.UTF_8));
+        out.append('\n');
+        if (css != null) {
+            css.write(out, compress);
+        }
+        out.flush();
+    }
+
+    private CssDocument compile(String urlString, List<String> defines, ErrorReporter errors) {
+        try {
+            URL url = new URL(urlString);
+            DSSEvaluator.Options opts = new DSSEvaluator.Options(url);
+            opts.setErrors(errors);
+            opts.setResourceLocator(resourceLocator);
+            opts.setParseCache(parseCache);
+
+            for (String define : defines) {
+                Declaration declaration = parseDefine(define, errors);
+                if (declaration == null) {
+                    errors.semanticError("DSS: Invalid DEFINE: " + define);
+                    return null;
+                }
+                opts.getVariables().declare(declaration.getName(), declaration.getExpression());
+            }
+
+            DSSDocument css = parseCache.parse(resourceLocator, url, errors);
+            if (css != null) {
+                return new DSSEvaluator(opts).evaluate(css);
+            }
+        } catch (MalformedURLException ex) {
+            errors.semanticError("DSS: Invalid URL");
+        } catch (IOException ex) {
+            errors.semanticError("DSS: I/O error: " + ex.getMessage());
+        } catch (RuntimeException ex) {
+            errors.semanticError("DSS: " + ex.getMessage());
+        }
+        return null;
+    }
+
+    private static Declaration parseDefine(String define, ErrorReporter errors) {
+        int errorCount = errors.getErrorCount();
+        try {
+            Declaration declaration = DSSParser.parseDeclaration(define, errors);
+            return errors.getErrorCount() == errorCount ? declaration : null;
+        } catch (RuntimeException ex) {
+            // The parser can fail on incomplete input after reporting the syntax error
+            return null;
+        }
+    }
+}
@@ -13,17 +13,35 @@ public interface Configuration {
 
     File getOutputFile();
 
+    File getOutputDirectory();
+
+    File getCacheDirectory();
+
+    int getServerPort();
+
     URL getURL();
 
+    List<URL> getURLs();
+
     boolean isSuccess();
 
     boolean isTest();
 
+    boolean runServer();
+
     boolean showDebuggingOutput();
 
+    boolean showStatistics();
+
+    boolean statisticsAsJSON();
+
     boolean showNotifications();
 
     boolean showVersion();
 
     boolean watchFile();
+
+    boolean pollFiles();
+
+    boolean parallelEvaluation();
 }
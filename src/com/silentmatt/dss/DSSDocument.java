@@ -1,14 +1,25 @@
 package com.silentmatt.dss;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.CountingInputStream;
 import com.silentmatt.dss.error.ErrorReporter;
+import com.silentmatt.dss.evaluator.DefaultResourcesLocator;
 import com.silentmatt.dss.evaluator.ResourceLocator;
+import com.silentmatt.dss.events.Events;
 import com.silentmatt.dss.parser.DSSParser;
 import com.silentmatt.dss.parser.Scanner;
 import com.silentmatt.dss.rule.Rule;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
 import java.util.List;
 
 /**
@@ -30,6 +41,11 @@ public class DSSDocument {
         }
     }
 
+    /**
+     * Files at least this large are memory-mapped instead of being read onto the heap.
+     */
+    private static final long MAP_THRESHOLD = 1024 * 1024;
+
     private final ImmutableList<Rule> rules;
 
     /**
@@ -59,7 +75,81 @@ public class DSSDocument {
      * @throws IOException if there is an error reading the document.
      */
     public static DSSDocument parse(ResourceLocator resourceLocator, URL url, ErrorReporter errors) throws IOException {
-        return parse(resourceLocator.openResource(url), errors);
+        Events.Span span = Events.parse(url);
+        try {
+            // Other locators might not read files directly, so only bypass the default one.
+            if (resourceLocator.getClass() == DefaultResourcesLocator.class && "file".equalsIgnoreCase(url.getProtocol())) {
+                try {
+                    File file = new File(url.toURI());
+                    span.setSize(file.length());
+                    return parse(file, errors);
+                } catch (URISyntaxException | IllegalArgumentException ex) {
+                    // Not a local file, so let the locator open it
+                }
+            }
+            if (span.isEnabled()) {
+                CountingInputStream input = new CountingInputStream(resourceLocator.openResource(url));
+                try {
+                    return parse(input, errors);
+                }
+                finally {
+                    span.setSize(input.getCount());
+                }
+            }
+            return parse(resourceLocator.openResource(url), errors);
+        }
+        finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Parses a DSS document from a file.
+     *
+     * The file is decoded in one pass instead of a byte at a time.
+     *
+     * @param file The file to parse.
+     * @param errors Where to report errors.
+     *
+     * @return The parsed DSSDocument.
+     *
+     * @throws IOException if there is an error reading the file.
+     */
+    public static DSSDocument parse(File file, ErrorReporter errors) throws IOException {
+        try (FileInputStream input = new FileInputStream(file);
+             FileChannel channel = input.getChannel()) {
+            long size = channel.size();
+            ByteBuffer bytes;
+            if (size >= MAP_THRESHOLD) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            else {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                    // Keep reading until the buffer is full
+                }
+                bytes.flip();
+            }
+            return parse(bytes, errors);
+        }
+    }
+
+    /**
+     * Parses a UTF-8 encoded DSS document from a {@link ByteBuffer}.
+     *
+     * @param input The encoded document.
+     * @param errors Where to report errors.
+     *
+     * @return The parsed DSSDocument.
+     *
+     * @throws IOException if the document can't be decoded.
+     */
+    public static DSSDocument parse(ByteBuffer input, ErrorReporter errors) throws IOException {
+        CharBuffer chars = Charsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(input);
+        return parse(new Scanner(chars), errors);
     }
 
     /**
@@ -77,6 +167,21 @@ public class DSSDocument {
         return parse(scanner, errors);
     }
 
+    /**
+     * Parses a DSS document from a String or other {@link CharSequence}.
+     *
+     * The characters are scanned directly instead of being encoded and
+     * decoded again.
+     *
+     * @param input The text of the document.
+     * @param errors Where to report errors.
+     *
+     * @return The parsed DSSDocument.
+     */
+    public static DSSDocument parse(CharSequence input, ErrorReporter errors) {
+        return parse(Scanner.fromText(input), errors);
+    }
+
     /**
      * Parses a DSS document from a {@link Scanner}.
      *
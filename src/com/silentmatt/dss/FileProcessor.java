@@ -1,33 +1,79 @@
 package com.silentmatt.dss;
 
+import com.google.common.io.CountingOutputStream;
 import com.silentmatt.dss.css.CssDocument;
+import com.silentmatt.dss.css.CssWriter;
 import com.silentmatt.dss.declaration.Declaration;
 import com.silentmatt.dss.error.ErrorReporter;
 import com.silentmatt.dss.error.PrintStreamErrorReporter;
+import com.silentmatt.dss.evaluator.CompileStatistics;
 import com.silentmatt.dss.evaluator.DSSEvaluator;
 import com.silentmatt.dss.evaluator.DefaultResourcesLocator;
-import com.silentmatt.dss.evaluator.URLCallback;
+import com.silentmatt.dss.evaluator.DependencyGraph;
+import com.silentmatt.dss.evaluator.DiskParseCache;
+import com.silentmatt.dss.evaluator.MemoryParseCache;
+import com.silentmatt.dss.evaluator.ParseCache;
 import com.silentmatt.dss.parser.DSSParser;
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.io.OutputStreamWriter;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
-public class FileProcessor {
+public class FileProcessor implements Closeable {
     private final Configuration config;
+    private final ParseCache parseCache;
+    private final ForkJoinPool evaluationPool;
 
     public FileProcessor(Configuration config) {
+        this(config, createParseCache(config));
+    }
+
+    public FileProcessor(Configuration config, ParseCache parseCache) {
         this.config = config;
+        this.parseCache = parseCache;
+        this.evaluationPool = config.parallelEvaluation() ? new ForkJoinPool(Runtime.getRuntime().availableProcessors()) : null;
+    }
+
+    /**
+     * Shuts down the threads used for parallel evaluation.
+     */
+    @Override
+    public void close() {
+        if (evaluationPool != null) {
+            evaluationPool.shutdown();
+        }
+    }
+
+    /**
+     * Creates the ParseCache to use for a configuration.
+     *
+     * Documents are always cached in memory, and if a cache directory is
+     * configured, they are also saved there for later runs.
+     */
+    static ParseCache createParseCache(Configuration config) {
+        File cacheDir = config.getCacheDirectory();
+        if (cacheDir != null) {
+            return new MemoryParseCache(MemoryParseCache.DEFAULT_MAXIMUM_SIZE, new DiskParseCache(cacheDir));
+        }
+        return new MemoryParseCache();
     }
 
     private DSSEvaluator.Options getOptions(URL url, ErrorReporter errors) {
         DSSEvaluator.Options opts = new DSSEvaluator.Options(url);
         opts.setErrors(errors);
+        opts.setParseCache(parseCache);
+        opts.setForkJoinPool(evaluationPool);
 
         List<String> defines = config.getDefines();
         for (String define : defines) {
@@ -39,24 +85,40 @@ public class FileProcessor {
     }
 
     public ErrorReporter processFile(URL url, File out) {
-        ErrorReporter errors = new PrintStreamErrorReporter();
+        return processFile(url, out, new PrintStreamErrorReporter());
+    }
+
+    public ErrorReporter processFile(URL url, File out, ErrorReporter errors) {
+        return processFile(url, out, errors, null);
+    }
+
+    private ErrorReporter processFile(URL url, File out, ErrorReporter errors, DependencyGraph dependencies) {
         DSSEvaluator.Options opts = getOptions(url, errors);
+        opts.setDependencyGraph(dependencies);
+        CompileStatistics stats = config.showStatistics() ? new CompileStatistics(url) : null;
+        opts.setStatistics(stats);
 
         try {
-            DSSDocument css = DSSDocument.parse(new DefaultResourcesLocator(), url, errors);
+            if (stats != null) {
+                stats.beginPhase("parse");
+            }
+            DSSDocument css = parseCache.parse(new DefaultResourcesLocator(), url, errors);
             if (css != null) {
+                if (stats != null) {
+                    stats.beginPhase("evaluate");
+                }
                 CssDocument outputDocument = new DSSEvaluator(opts).evaluate(css);
-                String cssString;
-                if (config.showDebuggingOutput()) {
-                    cssString = css.toString();
-                } else {
-                    cssString = outputDocument.toString(config.compressOutput());
+                if (stats != null) {
+                    stats.beginPhase("write");
                 }
                 if (out == null) {
-                    System.out.print(cssString);
+                    CountingOutputStream counter = new CountingOutputStream(System.out);
+                    write(css, outputDocument, new CssWriter(new BufferedWriter(new OutputStreamWriter(counter))));
+                    setOutputBytes(stats, counter);
                 } else {
-                    try (PrintStream pout = new PrintStream(out, "UTF-8")) {
-                        pout.print(cssString);
+                    try (CountingOutputStream fout = new CountingOutputStream(new FileOutputStream(out))) {
+                        write(css, outputDocument, new CssWriter(fout));
+                        setOutputBytes(stats, fout);
                     }
                 }
             }
@@ -66,9 +128,79 @@ public class FileProcessor {
             errors.semanticError("DSS: I/O error: " + ex.getMessage());
         }
 
+        if (stats != null) {
+            stats.endPhase();
+            printStatistics(stats);
+        }
         return errors;
     }
 
+    private static void setOutputBytes(CompileStatistics stats, CountingOutputStream out) {
+        if (stats != null) {
+            stats.setOutputBytes(out.getCount());
+        }
+    }
+
+    private void write(DSSDocument css, CssDocument outputDocument, CssWriter writer) throws IOException {
+        if (config.showDebuggingOutput()) {
+            writer.append(css.toString());
+        } else {
+            outputDocument.write(writer, config.compressOutput());
+        }
+        writer.flush();
+    }
+
+    private void printStatistics(CompileStatistics stats) {
+        if (config.statisticsAsJSON()) {
+            System.err.println(stats.toJSON());
+        }
+        else {
+            System.err.print(stats);
+        }
+    }
+
+    /**
+     * Updates the watched files to match the dependency graph.
+     *
+     * @return A map from each watched file to the URL it was included as.
+     */
+    private static Map<File, URL> watchDependencies(FileWatcher watcher, DependencyGraph dependencies, URL url) {
+        Map<File, URL> files = new HashMap<>();
+        for (URL dependency : dependencies.getDependencies(url)) {
+            try {
+                if (dependency.toURI().getScheme().equalsIgnoreCase("file")) {
+                    File f = new File(dependency.toURI());
+                    files.put(f, dependency);
+                    if (watcher.addFile(f)) {
+                        System.out.println("    Watching file: " + f);
+                    }
+                }
+            } catch (URISyntaxException | IllegalArgumentException ex) {
+                // Nothing we can do
+            }
+        }
+        watcher.retainFiles(files.keySet());
+        return files;
+    }
+
+    private FileWatcher createWatcher(List<File> files) {
+        if (!config.pollFiles()) {
+            try {
+                return new NioFileWatcher(files);
+            } catch (IOException | UnsupportedOperationException ex) {
+                System.out.println("File system notifications are not available. Polling for changes.");
+            }
+        }
+        return new FileWatcher(files);
+    }
+
+    /**
+     * Compiles a file, then recompiles it every time it or one of its includes changes.
+     *
+     * Includes are tracked in a {@link DependencyGraph}. When files change,
+     * only those files are removed from the parse cache, so everything else
+     * is reused without being read or parsed again.
+     */
     public ErrorReporter watchFile(URL url, File out) {
         ErrorReporter errors = new PrintStreamErrorReporter();
 
@@ -77,8 +209,6 @@ public class FileProcessor {
             return errors;
         }
 
-        DSSEvaluator.Options opts = getOptions(url, errors);
-
         File dssFile;
         try {
             dssFile = new File(url.toURI());
@@ -87,61 +217,65 @@ public class FileProcessor {
             return errors;
         }
 
-        final FileWatcher watcher = new FileWatcher(Arrays.asList(dssFile, out));
-        System.out.println("Watching file: " + dssFile);
+        try (FileWatcher watcher = createWatcher(Arrays.asList(dssFile, out))) {
+            watch(url, out, dssFile, watcher, errors);
+        } catch (IOException ex) {
+            // Nothing we can do
+        }
 
-        opts.setIncludeCallback(new URLCallback() {
-            @Override
-            public void call(URL url) {
-                try {
-                    if (url.toURI().getScheme().equalsIgnoreCase("file")) {
-                        File f = new File(url.toURI());
-                        if (watcher.addFile(f)) {
-                            System.out.println("    Watching file: " + f);
-                        }
-                    }
-                } catch (URISyntaxException ex) {
-                    // Nothing we can do
-                }
-            }
-        });
+        return errors;
+    }
+
+    private void watch(URL url, File out, File dssFile, FileWatcher watcher, ErrorReporter errors) {
+        DependencyGraph dependencies = new DependencyGraph();
+        System.out.println("Watching file: " + dssFile);
 
         System.out.println("Compiling.");
-        processFile(url, out);
+        processFile(url, out, errors, dependencies);
+        Map<File, URL> watchedURLs = watchDependencies(watcher, dependencies, url);
         watcher.ignoreChanges(out);
         System.out.println("Done Compiling.");
 
         while (true) {
-            if (watcher.filesChanged()) {
-                System.out.println(new Date().toString() + " -- File changed. Recompiling.");
-                int oldErrorCount = errors.getErrorCount();
-                processFile(url, out);
-                int errorCount = errors.getErrorCount();
-                watcher.ignoreChanges(out);
-                System.out.println("Done Compiling.");
-
-                if (config.showNotifications()) {
-                    String message;
-                    if (errorCount != oldErrorCount) {
-                        message = "Error compiling " + dssFile + ".";
-                    }
-                    else {
-                        message = "Done compiling " + dssFile + ".";
-                    }
-                    try {
-                        Runtime.getRuntime().exec(new String[]{ "notify-send", "-t", "2000", message });
-                    } catch (IOException ex) {
-                        // Do nothing
-                    }
-                }
-            }
+            List<File> changed;
             try {
-                Thread.sleep(1000);
+                changed = watcher.waitForChanges();
             } catch (InterruptedException ex) {
                 break;
             }
-        }
 
-        return errors;
+            System.out.println(new Date().toString() + " -- File changed. Recompiling.");
+            if (parseCache instanceof MemoryParseCache) {
+                for (File f : changed) {
+                    URL changedURL = watchedURLs.get(f);
+                    if (changedURL != null) {
+                        ((MemoryParseCache) parseCache).invalidate(changedURL);
+                    }
+                }
+            }
+
+            int oldErrorCount = errors.getErrorCount();
+            dependencies.clear();
+            processFile(url, out, errors, dependencies);
+            int errorCount = errors.getErrorCount();
+            watchedURLs = watchDependencies(watcher, dependencies, url);
+            watcher.ignoreChanges(out);
+            System.out.println("Done Compiling.");
+
+            if (config.showNotifications()) {
+                String message;
+                if (errorCount != oldErrorCount) {
+                    message = "Error compiling " + dssFile + ".";
+                }
+                else {
+                    message = "Done compiling " + dssFile + ".";
+                }
+                try {
+                    Runtime.getRuntime().exec(new String[]{ "notify-send", "-t", "2000", message });
+                } catch (IOException ex) {
+                    // Do nothing
+                }
+            }
+        }
     }
 }
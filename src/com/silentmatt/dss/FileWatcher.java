@@ -1,7 +1,10 @@
 package com.silentmatt.dss;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -9,9 +12,17 @@ import java.util.Set;
 /**
  * Checks a list of files for changes.
  *
+ * This implementation polls each file's modification time. See
+ * {@link NioFileWatcher} for one that waits for file system notifications.
+ *
  * @author Matthew Crumley
  */
-public class FileWatcher {
+public class FileWatcher implements Closeable {
+    /**
+     * How often {@link #waitForChanges()} checks the files, in milliseconds.
+     */
+    public static final long POLL_INTERVAL = 1000;
+
     private final List<File> files;
     private final List<Long> lastModifiedList;
     private final Set<File> primaryFiles;
@@ -54,6 +65,23 @@ public class FileWatcher {
         return true;
     }
 
+    /**
+     * Stops watching any files that aren't in a collection.
+     *
+     * Primary files are always kept.
+     *
+     * @param keep The files to keep watching.
+     */
+    public void retainFiles(Collection<File> keep) {
+        for (int i = files.size() - 1; i >= 0; i--) {
+            File f = files.get(i);
+            if (!primaryFiles.contains(f) && !keep.contains(f)) {
+                files.remove(i);
+                lastModifiedList.remove(i);
+            }
+        }
+    }
+
     /**
      * Ignore any past changes to the specified file on the next iteration.
      *
@@ -71,6 +99,15 @@ public class FileWatcher {
         }
     }
 
+    /**
+     * Gets the files being watched.
+     *
+     * @return A copy of the list of watched files.
+     */
+    public List<File> getFiles() {
+        return new ArrayList<>(files);
+    }
+
     /**
      * Gets the "primary files".
      *
@@ -89,7 +126,19 @@ public class FileWatcher {
      * @return true if any of the files in the list have changed.
      */
     public boolean filesChanged() {
-        boolean changed = false;
+        return !changedFiles().isEmpty();
+    }
+
+    /**
+     * Gets the files that have changed.
+     *
+     * If a file other than the primary does not exist, it will be removed from
+     * the file list, and included in the result.
+     *
+     * @return The files that have changed since the last call, or an empty list.
+     */
+    public List<File> changedFiles() {
+        List<File> changed = new ArrayList<>();
 
         for (int i = 0; i < files.size(); i++) {
             File newFile = files.get(i);
@@ -97,18 +146,44 @@ public class FileWatcher {
             long lastModified = newFile.lastModified();
             if (lastModified == 0) {
                 if (!primaryFiles.contains(newFile)) {
-                    int index = files.indexOf(newFile);
-                    files.remove(index);
-                    lastModifiedList.remove(index);
+                    files.remove(i);
+                    lastModifiedList.remove(i);
+                    i--;
                 }
-                changed = true;
+                changed.add(newFile);
             }
-            else if (lastModified > lastModifiedList.get(i)) {
+            else if (lastModified != lastModifiedList.get(i)) {
                 lastModifiedList.set(i, newFile.lastModified());
-                changed = true;
+                changed.add(newFile);
             }
         }
 
         return changed;
     }
+
+    /**
+     * Waits until at least one file changes.
+     *
+     * @return The files that changed, as returned by {@link #changedFiles()}.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public List<File> waitForChanges() throws InterruptedException {
+        while (true) {
+            List<File> changed = changedFiles();
+            if (!changed.isEmpty()) {
+                return changed;
+            }
+            Thread.sleep(POLL_INTERVAL);
+        }
+    }
+
+    /**
+     * Releases any resources used to watch the files.
+     *
+     * @throws IOException if there is an error releasing the resources.
+     */
+    @Override
+    public void close() throws IOException {
+    }
 }
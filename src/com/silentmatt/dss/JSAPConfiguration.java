@@ -3,6 +3,7 @@ package com.silentmatt.dss;
 import com.martiansoftware.jsap.JSAPResult;
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -30,7 +31,24 @@ public class JSAPConfiguration implements Configuration {
 
     @Override
     public URL getURL() {
-        return config.getURL("url");
+        List<URL> urls = getURLs();
+        return urls.isEmpty() ? null : urls.get(0);
+    }
+
+    @Override
+    public List<URL> getURLs() {
+        List<URL> urls = new ArrayList<>();
+        for (Object url : config.getObjectArray("url")) {
+            if (url instanceof URL) {
+                urls.add((URL) url);
+            }
+            else if (url instanceof List) {
+                for (Object expanded : (List<?>) url) {
+                    urls.add((URL) expanded);
+                }
+            }
+        }
+        return urls;
     }
 
     @Override
@@ -43,6 +61,16 @@ public class JSAPConfiguration implements Configuration {
         return config.getFile("out", null);
     }
 
+    @Override
+    public File getOutputDirectory() {
+        return config.getFile("outdir", null);
+    }
+
+    @Override
+    public File getCacheDirectory() {
+        return config.getFile("cachedir", null);
+    }
+
     @Override
     public List<String> getDefines() {
         return Arrays.asList(config.getStringArray("define"));
@@ -53,16 +81,46 @@ public class JSAPConfiguration implements Configuration {
         return config.getBoolean("watch");
     }
 
+    @Override
+    public boolean pollFiles() {
+        return config.getBoolean("poll");
+    }
+
+    @Override
+    public boolean parallelEvaluation() {
+        return config.getBoolean("parallel");
+    }
+
     @Override
     public boolean showDebuggingOutput() {
         return config.getBoolean("debug");
     }
 
+    @Override
+    public boolean showStatistics() {
+        return config.getBoolean("stats") || config.userSpecified("statsformat");
+    }
+
+    @Override
+    public boolean statisticsAsJSON() {
+        return config.getString("statsformat").equals("json");
+    }
+
     @Override
     public boolean compressOutput() {
         return config.getBoolean("compress");
     }
 
+    @Override
+    public boolean runServer() {
+        return config.getBoolean("server");
+    }
+
+    @Override
+    public int getServerPort() {
+        return config.getInt("port");
+    }
+
     @Override
     public boolean showNotifications() {
         return config.getBoolean("notify");
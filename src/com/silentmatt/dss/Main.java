@@ -2,9 +2,11 @@ package com.silentmatt.dss;
 
 import com.silentmatt.dss.error.ErrorReporter;
 import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.List;
 
 public final class Main {
 
@@ -33,10 +35,36 @@ public final class Main {
             System.exit(new TestRunner().runTests(config.getURL(), config.colorTestOutput()));
         }
 
+        if (config.runServer()) {
+            try {
+                new CompileServer(config.getServerPort(), FileProcessor.createParseCache(config)).serve();
+                System.exit(0);
+            } catch (IOException ex) {
+                System.err.println("Server error: " + ex.getMessage());
+                System.exit(1);
+            }
+        }
+
+        if (config.getOutputDirectory() != null) {
+            List<URL> urls = config.getURLs();
+            if (urls.isEmpty()) {
+                System.err.println("Missing url parameter.");
+                optionsParser.printUsage(System.err);
+                System.exit(1);
+            }
+            int failed = new BatchProcessor(config).processFiles(urls, config.getOutputDirectory(), System.out);
+            System.exit(failed > 0 ? 1 : 0);
+        }
+
+        if (config.getURLs().size() > 1) {
+            System.err.println("Multiple input files require --out-dir.");
+            System.exit(1);
+        }
+
         URL url = config.getURL();
         File out = config.getOutputFile();
 
-        if (out != null) {
+        if (out != null && url != null) {
             try {
                 if (new File(url.toURI()).isDirectory()) {
                     throw new MalformedURLException();
@@ -54,11 +82,13 @@ public final class Main {
         if (url != null) {
             ErrorReporter errors;
 
-            if (config.watchFile()) {
-                errors = new FileProcessor(config).watchFile(url, out);
-            }
-            else {
-                errors = new FileProcessor(config).processFile(url, out);
+            try (FileProcessor processor = new FileProcessor(config)) {
+                if (config.watchFile()) {
+                    errors = processor.watchFile(url, out);
+                }
+                else {
+                    errors = processor.processFile(url, out);
+                }
             }
 
             if (errors.getErrorCount() > 0) {
@@ -0,0 +1,192 @@
+package com.silentmatt.dss;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link FileWatcher} that waits for notifications from a {@link WatchService}
+ * instead of polling.
+ *
+ * Each distinct parent directory is registered once, no matter how many of
+ * its files are watched. Files are only checked after a notification arrives,
+ * and notifications are collected until none have arrived for a short quiet
+ * period, so an editor saving a file in several steps causes a single change.
+ *
+ * If a directory can't be registered, the watcher falls back to polling. A
+ * directory that doesn't exist (for example, one that was deleted while it was
+ * being watched) can't send notifications, so while any are missing the files
+ * are also checked every {@link FileWatcher#POLL_INTERVAL} milliseconds, and
+ * the directories are registered again when they come back.
+ *
+ * @author Matthew Crumley
+ */
+public class NioFileWatcher extends FileWatcher {
+    /**
+     * The default quiet period, in milliseconds.
+     */
+    public static final long DEFAULT_QUIET_PERIOD = 100;
+
+    private final WatchService service;
+    private final long quietPeriod;
+    private final Map<Path, WatchKey> directories = new HashMap<>();
+    private boolean polling = false;
+
+    /**
+     * Constructs a NioFileWatcher that watches a list of Files.
+     *
+     * The given files will be the primary files.
+     *
+     * @param files The {@link File}s to be watched.
+     *
+     * @throws IOException if the file system doesn't support notifications.
+     */
+    public NioFileWatcher(List<File> files) throws IOException {
+        this(files, DEFAULT_QUIET_PERIOD);
+    }
+
+    /**
+     * Constructs a NioFileWatcher with a specific quiet period.
+     *
+     * @param files The {@link File}s to be watched.
+     * @param quietPeriod How long to wait for more notifications after the
+     * first one, in milliseconds.
+     *
+     * @throws IOException if the file system doesn't support notifications.
+     */
+    public NioFileWatcher(List<File> files, long quietPeriod) throws IOException {
+        super(files);
+        this.quietPeriod = quietPeriod;
+        this.service = FileSystems.getDefault().newWatchService();
+        for (File f : files) {
+            register(f);
+        }
+    }
+
+    /**
+     * Checks whether the watcher has fallen back to polling.
+     *
+     * @return true if a directory couldn't be registered.
+     */
+    public boolean isPolling() {
+        return polling;
+    }
+
+    @Override
+    public boolean addFile(File file) {
+        boolean added = super.addFile(file);
+        if (added) {
+            register(file);
+        }
+        return added;
+    }
+
+    @Override
+    public void retainFiles(Collection<File> keep) {
+        super.retainFiles(keep);
+
+        Set<Path> needed = new HashSet<>();
+        for (File f : getFiles()) {
+            needed.add(getDirectory(f));
+        }
+
+        Iterator<Map.Entry<Path, WatchKey>> it = directories.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, WatchKey> entry = it.next();
+            if (!needed.contains(entry.getKey())) {
+                entry.getValue().cancel();
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public List<File> waitForChanges() throws InterruptedException {
+        while (true) {
+            // Directories that were deleted and recreated need to be registered again.
+            int registered = directories.size();
+            boolean missing = false;
+            for (File f : getFiles()) {
+                if (!register(f)) {
+                    missing = true;
+                }
+            }
+
+            if (polling) {
+                return super.waitForChanges();
+            }
+
+            // Files in a recreated directory may have changed before it was
+            // registered, so there won't be a notification for them.
+            if (directories.size() > registered) {
+                List<File> changed = changedFiles();
+                if (!changed.isEmpty()) {
+                    return changed;
+                }
+            }
+
+            // Without a timeout, this would wait forever once every watched
+            // directory is gone.
+            WatchKey key = missing ? service.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS) : service.take();
+            while (key != null) {
+                key.pollEvents();
+                if (!key.reset()) {
+                    directories.values().remove(key);
+                }
+                key = service.poll(quietPeriod, TimeUnit.MILLISECONDS);
+            }
+
+            List<File> changed = changedFiles();
+            if (!changed.isEmpty()) {
+                return changed;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        service.close();
+    }
+
+    private static Path getDirectory(File file) {
+        return file.getAbsoluteFile().getParentFile().toPath();
+    }
+
+    /**
+     * Registers a file's directory, if it isn't already registered.
+     *
+     * @param file The file to watch.
+     *
+     * @return false if the directory doesn't exist, so it can't be watched.
+     */
+    private boolean register(File file) {
+        Path dir = getDirectory(file);
+        if (directories.containsKey(dir)) {
+            return true;
+        }
+        if (!dir.toFile().isDirectory()) {
+            return false;
+        }
+        try {
+            directories.put(dir, dir.register(service,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE));
+        } catch (IOException | UnsupportedOperationException ex) {
+            polling = true;
+        }
+        return true;
+    }
+}
@@ -7,11 +7,21 @@ import com.martiansoftware.jsap.ParseException;
 import com.martiansoftware.jsap.StringParser;
 import com.martiansoftware.jsap.Switch;
 import com.martiansoftware.jsap.UnflaggedOption;
+import com.martiansoftware.jsap.stringparsers.EnumeratedStringParser;
 import com.martiansoftware.jsap.stringparsers.FileStringParser;
 import com.martiansoftware.jsap.stringparsers.URLStringParser;
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
 public class OptionsParser {
     private final JSAP jsap;
@@ -40,10 +50,39 @@ public class OptionsParser {
                 .setShortFlag('o');
         outOpt.setHelp("File to save outout to");
 
+        FlaggedOption outDirOpt = new FlaggedOption("outdir")
+                .setStringParser(FileStringParser.getParser().setMustBeDirectory(true).setMustExist(false))
+                .setRequired(false)
+                .setAllowMultipleDeclarations(false)
+                .setLongFlag("out-dir")
+                .setUsageName("directory");
+        outDirOpt.setHelp("Compile every input file in parallel, saving the output to this directory");
+
+        FlaggedOption cacheDirOpt = new FlaggedOption("cachedir")
+                .setStringParser(FileStringParser.getParser().setMustBeDirectory(true).setMustExist(false))
+                .setRequired(false)
+                .setAllowMultipleDeclarations(false)
+                .setLongFlag("cache-dir")
+                .setUsageName("directory");
+        cacheDirOpt.setHelp("Save parsed documents to this directory, so unchanged files don't need to be parsed again");
+
         Switch debugFlag = new Switch("debug")
                 .setLongFlag("debug");
         debugFlag.setHelp("Don't remove DSS directives from output");
 
+        Switch statsFlag = new Switch("stats")
+                .setLongFlag("stats");
+        statsFlag.setHelp("Print the time and memory used by each phase of the compile, and what was evaluated, to stderr");
+
+        FlaggedOption statsFormatOpt = new FlaggedOption("statsformat")
+                .setStringParser(EnumeratedStringParser.getParser("text;json"))
+                .setDefault("text")
+                .setRequired(false)
+                .setAllowMultipleDeclarations(false)
+                .setLongFlag("stats-format")
+                .setUsageName("text|json");
+        statsFormatOpt.setHelp("The format for --stats: a table, or one JSON object per line");
+
         Switch versionFlag = new Switch("version")
                 .setShortFlag('v')
                 .setLongFlag("version");
@@ -68,11 +107,31 @@ public class OptionsParser {
                 .setLongFlag("watch");
         watchFlag.setHelp("Re-process the file any time it changes.");
 
+        Switch pollFlag = new Switch("poll")
+                .setLongFlag("poll");
+        pollFlag.setHelp("With --watch, check for changes every second instead of waiting for file system notifications.");
+
+        Switch parallelFlag = new Switch("parallel")
+                .setLongFlag("parallel");
+        parallelFlag.setHelp("Evaluate independent top-level rule sets on multiple threads.");
+
         Switch notifyFlag = new Switch("notify")
                 .setShortFlag('n')
                 .setLongFlag("notify");
         notifyFlag.setHelp("Pop-up a notification with notify-send when watched files are finished.");
 
+        Switch serverFlag = new Switch("server")
+                .setLongFlag("server");
+        serverFlag.setHelp("Run a compile server on the loopback interface instead of processing a file.");
+
+        FlaggedOption portOpt = new FlaggedOption("port")
+                .setStringParser(JSAP.INTEGER_PARSER)
+                .setDefault(Integer.toString(CompileServer.DEFAULT_PORT))
+                .setRequired(false)
+                .setLongFlag("port")
+                .setUsageName("port");
+        portOpt.setHelp("The port for --server to listen on");
+
         FlaggedOption defineOpt = new FlaggedOption("define")
                 .setAllowMultipleDeclarations(true)
                 .setRequired(false)
@@ -84,19 +143,28 @@ public class OptionsParser {
 
         UnflaggedOption urlOpt = new UnflaggedOption("url")
                 .setStringParser(FileOrURLStringParser.getParser())
-                .setRequired(true);
-        urlOpt.setHelp("The filename or URL of the DSS file.");
+                .setRequired(false)
+                .setGreedy(true);
+        urlOpt.setHelp("The filename or URL of the DSS file. With --out-dir, any number of files or glob patterns.");
 
         try {
             jsap.registerParameter(versionFlag);
             jsap.registerParameter(testFlag);
             jsap.registerParameter(colorFlag);
             jsap.registerParameter(debugFlag);
+            jsap.registerParameter(statsFlag);
+            jsap.registerParameter(statsFormatOpt);
             jsap.registerParameter(compressFlag);
             jsap.registerParameter(watchFlag);
+            jsap.registerParameter(pollFlag);
+            jsap.registerParameter(parallelFlag);
             jsap.registerParameter(notifyFlag);
+            jsap.registerParameter(serverFlag);
+            jsap.registerParameter(portOpt);
             jsap.registerParameter(defineOpt);
             jsap.registerParameter(outOpt);
+            jsap.registerParameter(outDirOpt);
+            jsap.registerParameter(cacheDirOpt);
 
             jsap.registerParameter(urlOpt);
         } catch (JSAPException j) {
@@ -121,6 +189,10 @@ public class OptionsParser {
             try {
                 return urlParser.parse(arg);
             } catch (ParseException ex) {
+                if (isGlob(arg)) {
+                    return expandGlob(arg);
+                }
+
                 fileParser.setUp();
                 File file = (File) fileParser.parse(arg);
                 fileParser.tearDown();
@@ -131,5 +203,41 @@ public class OptionsParser {
                 }
             }
         }
+
+        private static boolean isGlob(String arg) {
+            return arg.indexOf('*') != -1 || arg.indexOf('?') != -1 || arg.indexOf('[') != -1 || arg.indexOf('{') != -1;
+        }
+
+        /**
+         * Expands a glob pattern in the last path component (e.g. "styles/*.dss")
+         * into a sorted list of file URLs.
+         */
+        private static List<URL> expandGlob(String arg) throws ParseException {
+            File pattern = new File(arg);
+            File directory = pattern.getParentFile() != null ? pattern.getParentFile() : new File(".");
+
+            List<URL> result = new ArrayList<>();
+            try (DirectoryStream<Path> matches = Files.newDirectoryStream(directory.toPath(), pattern.getName())) {
+                for (Path match : matches) {
+                    if (Files.isRegularFile(match)) {
+                        result.add(match.toUri().toURL());
+                    }
+                }
+            } catch (IOException ex) {
+                throw new ParseException("Unable to expand " + arg, ex);
+            }
+
+            if (result.isEmpty()) {
+                throw new ParseException("No files match " + arg);
+            }
+
+            Collections.sort(result, new Comparator<URL>() {
+                @Override
+                public int compare(URL a, URL b) {
+                    return a.toExternalForm().compareTo(b.toExternalForm());
+                }
+            });
+            return result;
+        }
     }
 }
@@ -5,7 +5,6 @@ import com.silentmatt.dss.error.ErrorReporter;
 import com.silentmatt.dss.error.ExceptionErrorReporter;
 import com.silentmatt.dss.error.NullErrorReporter;
 import com.silentmatt.dss.evaluator.DSSEvaluator;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
@@ -131,7 +130,7 @@ public class TestRunner {
     private static String compile(URL url, String dssString, boolean compact) {
         try {
             ErrorReporter errors = new ExceptionErrorReporter(new NullErrorReporter());
-            DSSDocument dss = DSSDocument.parse(new ByteArrayInputStream(dssString.getBytes(Charsets.UTF_8)), errors);
+            DSSDocument dss = DSSDocument.parse(dssString, errors);
             DSSEvaluator.Options opts = new DSSEvaluator.Options(url);
             opts.setErrors(errors);
             return new DSSEvaluator(opts).evaluate(dss).toString(compact);
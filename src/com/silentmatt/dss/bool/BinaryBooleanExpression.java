@@ -89,6 +89,33 @@ public final class BinaryBooleanExpression implements BooleanExpression {
         return sb.toString();
     }
 
+    /**
+     * Gets the operation.
+     *
+     * @return The operation.
+     */
+    public BooleanOperation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Gets the left operand.
+     *
+     * @return The left operand.
+     */
+    public BooleanExpression getLeft() {
+        return left;
+    }
+
+    /**
+     * Gets the right operand.
+     *
+     * @return The right operand.
+     */
+    public BooleanExpression getRight() {
+        return right;
+    }
+
     @Override
     public int getPrecidence() {
         int precidence;
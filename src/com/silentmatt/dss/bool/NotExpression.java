@@ -27,6 +27,15 @@ public final class NotExpression implements BooleanExpression {
         return value == null ? null : !value;
     }
 
+    /**
+     * Gets the expression being complemented.
+     *
+     * @return The expression being complemented.
+     */
+    public BooleanExpression getExpression() {
+        return expression;
+    }
+
     @Override
     public int getPrecidence() {
         return 3;
@@ -91,6 +91,15 @@ public final class TermBooleanExpression implements BooleanExpression {
         return evaluateAsString(state, value);
     }
 
+    /**
+     * Gets the term being tested.
+     *
+     * @return The term being tested.
+     */
+    public Term getValue() {
+        return value;
+    }
+
     @Override
     public int getPrecidence() {
         return 4;
@@ -30,32 +30,8 @@ public class BinaryExpression implements CalcExpression {
 
     @Override
     public Value calculateValue(EvaluationState state, DeclarationList container) {
-        try {
-            Value leftValue = left.calculateValue(state, container);
-            if (leftValue == null) {
-                return null;
-            }
-            Value rightValue = right.calculateValue(state, container);
-            if (rightValue == null) {
-                return null;
-            }
-            switch (operation) {
-            case Add:
-                return leftValue.add(rightValue);
-            case Subtract:
-                return leftValue.subtract(rightValue);
-            case Multiply:
-                return leftValue.multiply(rightValue);
-            case Divide:
-                return leftValue.divide(rightValue);
-            default:
-                state.getErrors().semanticError("Unrecognized operation");
-                break;
-            }
-        } catch (IllegalArgumentException ex) {
-            state.getErrors().semanticError("incompatible units");
-        }
-        return null;
+        Calculator calculator = new Calculator();
+        return calculator.evaluate(this, state, container) ? calculator.toValue() : null;
     }
 
     @Override
@@ -104,6 +80,33 @@ public class BinaryExpression implements CalcExpression {
         return sb.toString();
     }
 
+    /**
+     * Gets the operation.
+     *
+     * @return The operation.
+     */
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Gets the left operand.
+     *
+     * @return The left operand.
+     */
+    public CalcExpression getLeft() {
+        return left;
+    }
+
+    /**
+     * Gets the right operand.
+     *
+     * @return The right operand.
+     */
+    public CalcExpression getRight() {
+        return right;
+    }
+
     @Override
     public int getPrecidence() {
         int precidence;
@@ -2,7 +2,6 @@ package com.silentmatt.dss.calc;
 
 import com.silentmatt.dss.Immutable;
 import java.util.EnumMap;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -132,23 +131,22 @@ public final class CalculationUnit implements Comparable<CalculationUnit> {
      * @see #fromCssUnit(cssUnit)
      */
     private static final Map<Unit, CalculationUnit> cssToUnitMap;
+
     /**
-     * Mapping from a CalculationUnit to the corresponding CSS {@link Unit}.
-     *
-     * @see #toCssUnit(com.silentmatt.dss.expression.CalculationUnit)
-     */
-    private static final Map<CalculationUnit, Unit> unitToCssMap;
-    /**
-     * Mapping from a CalculationUnit to it's corresponding canonical unit.
+     * The dimensions that have a canonical unit, and the canonical unit and
+     * CSS {@link Unit} for each of them. There are only a handful, so they're
+     * searched linearly.
      *
      * @see #getCanonicalUnit(com.silentmatt.dss.expression.CalculationUnit)
+     * @see #toCssUnit(com.silentmatt.dss.expression.CalculationUnit)
      */
-    private static final Map<CalculationUnit, CalculationUnit> canonicalUnit;
+    private static final long[] canonicalDimensions = new long[16];
+    private static final CalculationUnit[] canonicalUnits = new CalculationUnit[16];
+    private static final Unit[] canonicalCssUnits = new Unit[16];
+    private static int canonicalCount = 0;
 
     static {
         cssToUnitMap = new EnumMap<>(Unit.class);
-        unitToCssMap = new HashMap<>();
-        canonicalUnit = new HashMap<>();
 
         cssToUnitMap.put(Unit.None, CalculationUnit.None);
 
@@ -184,55 +182,47 @@ public final class CalculationUnit implements Comparable<CalculationUnit> {
         cssToUnitMap.put(Unit.CH, CalculationUnit.CH);
         cssToUnitMap.put(Unit.FR, CalculationUnit.FR);
 
-        canonicalUnit.put(None, None);
-        canonicalUnit.put(PX, PX);
-        canonicalUnit.put(Percent, Percent);
-        canonicalUnit.put(PT, PT);
-        canonicalUnit.put(DEG, DEG);
-        canonicalUnit.put(MS, MS);
-        canonicalUnit.put(S, S);
-        canonicalUnit.put(Hz, Hz);
-        canonicalUnit.put(EM, EM);
-        canonicalUnit.put(GD, GD);
-        canonicalUnit.put(REM, REM);
-        canonicalUnit.put(VW, VW);
-        canonicalUnit.put(VH, VH);
-        canonicalUnit.put(VM, VM);
-        canonicalUnit.put(CH, CH);
-        canonicalUnit.put(FR, FR);
-
-        unitToCssMap.put(None, Unit.None);
-        unitToCssMap.put(PX, Unit.PX);
-        unitToCssMap.put(Percent, Unit.Percent);
-        unitToCssMap.put(PT, Unit.PT);
-        unitToCssMap.put(DEG, Unit.DEG);
-        unitToCssMap.put(MS, Unit.MS);
-        unitToCssMap.put(S, Unit.S);
-        unitToCssMap.put(Hz, Unit.Hz);
-        unitToCssMap.put(EM, Unit.EM);
-        unitToCssMap.put(GD, Unit.GD);
-        unitToCssMap.put(REM, Unit.REM);
-        unitToCssMap.put(VW, Unit.VW);
-        unitToCssMap.put(VH, Unit.VH);
-        unitToCssMap.put(VM, Unit.VM);
-        unitToCssMap.put(CH, Unit.CH);
-        unitToCssMap.put(FR, Unit.FR);
+        // Later units replace earlier ones with the same dimensions, so s is
+        // the canonical unit for time
+        putCanonical(None, Unit.None);
+        putCanonical(PX, Unit.PX);
+        putCanonical(Percent, Unit.Percent);
+        putCanonical(PT, Unit.PT);
+        putCanonical(DEG, Unit.DEG);
+        putCanonical(MS, Unit.MS);
+        putCanonical(S, Unit.S);
+        putCanonical(Hz, Unit.Hz);
+        putCanonical(EM, Unit.EM);
+        putCanonical(GD, Unit.GD);
+        putCanonical(REM, Unit.REM);
+        putCanonical(VW, Unit.VW);
+        putCanonical(VH, Unit.VH);
+        putCanonical(VM, Unit.VM);
+        putCanonical(CH, Unit.CH);
+        putCanonical(FR, Unit.FR);
+    }
+
+    private static void putCanonical(CalculationUnit unit, Unit cssUnit) {
+        int index = indexOfCanonical(unit.dimensions);
+        if (index < 0) {
+            index = canonicalCount++;
+            canonicalDimensions[index] = unit.dimensions;
+        }
+        canonicalUnits[index] = unit;
+        canonicalCssUnits[index] = cssUnit;
+    }
+
+    private static int indexOfCanonical(long dimensions) {
+        for (int i = 0; i < canonicalCount; i++) {
+            if (canonicalDimensions[i] == dimensions) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     private final double scale;
-    private final int percent;
-    private final int pxLength;
-    private final int fontLength;
-    private final int length;
-    private final int angle;
-    private final int time;
-    private final int gdLength;
-    private final int remLength;
-    private final int vwLength;
-    private final int vhLength;
-    private final int vmLength;
-    private final int chLength;
-    private final int fraction;
+    private final long dimensions;
     private final Unit cssUnit;
 
     /**
@@ -255,7 +245,18 @@ public final class CalculationUnit implements Comparable<CalculationUnit> {
      * @return The corresponding CSS {@link Unit}.
      */
     public static Unit toCssUnit(CalculationUnit unit) {
-        return unitToCssMap.get(unit);
+        return toCssUnit(unit.dimensions);
+    }
+
+    /**
+     * Gets the CSS {@link Unit} for a set of dimensions.
+     *
+     * @param dimensions The packed {@link Dimensions}.
+     * @return The corresponding CSS Unit, or null.
+     */
+    static Unit toCssUnit(long dimensions) {
+        int index = indexOfCanonical(dimensions);
+        return index < 0 ? null : canonicalCssUnits[index];
     }
 
     /**
@@ -270,8 +271,19 @@ public final class CalculationUnit implements Comparable<CalculationUnit> {
      * @return The Canonical CalculationUnit.
      */
     public static CalculationUnit getCanonicalUnit(CalculationUnit unit) {
-        CalculationUnit res = canonicalUnit.get(unit);
-        return res == null ? unit : res;
+        int index = indexOfCanonical(unit.dimensions);
+        return index < 0 ? unit : canonicalUnits[index];
+    }
+
+    /**
+     * Gets the scale of the canonical unit for a set of dimensions.
+     *
+     * @param dimensions The packed {@link Dimensions}.
+     * @return The canonical unit's scale, or 1 if there isn't one.
+     */
+    static double getCanonicalScale(long dimensions) {
+        int index = indexOfCanonical(dimensions);
+        return index < 0 ? 1 : canonicalUnits[index].scale;
     }
 
     /**
@@ -294,21 +306,22 @@ public final class CalculationUnit implements Comparable<CalculationUnit> {
      * @param cssUnit The corresponding CSS unit, if applicable
      */
     private CalculationUnit(double scale, int pxLength, int percent, int length, int angle, int time, int fontLength, int gdLength, int remLength, int vwLength, int vhLength, int vmLength, int chLength, int fraction, Unit cssUnit) {
+        this(scale, Dimensions.of(pxLength, percent, length, angle, time, fontLength, gdLength, remLength, vwLength, vhLength, vmLength, chLength, fraction), cssUnit);
+    }
+
+    private CalculationUnit(double scale, long dimensions, Unit cssUnit) {
         this.scale = scale;
-        this.pxLength = pxLength;
-        this.percent = percent;
-        this.length = length;
-        this.angle = angle;
-        this.time = time;
-        this.fontLength = fontLength;
-        this.gdLength = gdLength;
-        this.remLength = remLength;
-        this.vwLength = vwLength;
-        this.vhLength = vhLength;
-        this.vmLength = vmLength;
-        this.chLength = chLength;
+        this.dimensions = dimensions;
         this.cssUnit = cssUnit;
-        this.fraction = fraction;
+    }
+
+    /**
+     * Gets the dimensions of this unit.
+     *
+     * @return The packed {@link Dimensions}.
+     */
+    long getDimensions() {
+        return dimensions;
     }
 
     /**
@@ -322,19 +335,7 @@ public final class CalculationUnit implements Comparable<CalculationUnit> {
      * @return true iff this and other have the same dimensions.
      */
     public boolean isAddCompatible(CalculationUnit other) {
-        return  pxLength == other.pxLength &&
-                percent == other.percent &&
-                length == other.length &&
-                angle == other.angle &&
-                time == other.time &&
-                fontLength == other.fontLength &&
-                gdLength == other.gdLength &&
-                remLength == other.remLength &&
-                vwLength == other.vwLength &&
-                vhLength == other.vhLength &&
-                vmLength == other.vmLength &&
-                chLength == other.chLength &&
-                fraction == other.fraction;
+        return dimensions == other.dimensions;
     }
 
     /**
@@ -344,23 +345,10 @@ public final class CalculationUnit implements Comparable<CalculationUnit> {
      *
      * @param other The unit to multiply this by.
      * @return The product of this and other
+     * @throws ArithmeticException if an exponent is too large to represent.
      */
     public CalculationUnit multiply(CalculationUnit other) {
-        return new CalculationUnit(1,
-                pxLength + other.pxLength,
-                percent + other.percent,
-                length + other.length,
-                angle + other.angle,
-                time + other.time,
-                fontLength + other.fontLength,
-                gdLength + other.gdLength,
-                remLength + other.remLength,
-                vwLength + other.vwLength,
-                vhLength + other.vhLength,
-                vmLength + other.vmLength,
-                chLength + other.chLength,
-                fraction + other.fraction,
-                null);
+        return new CalculationUnit(1, Dimensions.multiply(dimensions, other.dimensions), null);
     }
 
     /**
@@ -370,23 +358,10 @@ public final class CalculationUnit implements Comparable<CalculationUnit> {
      *
      * @param other The unit to divide this by.
      * @return The quotient of this and other.
+     * @throws ArithmeticException if an exponent is too large to represent.
      */
     public CalculationUnit divide(CalculationUnit other) {
-        return new CalculationUnit(1,
-                pxLength - other.pxLength,
-                percent - other.percent,
-                length - other.length,
-                angle - other.angle,
-                time - other.time,
-                fontLength - other.fontLength,
-                gdLength - other.gdLength,
-                remLength - other.remLength,
-                vwLength - other.vwLength,
-                vhLength - other.vhLength,
-                vmLength - other.vmLength,
-                chLength - other.chLength,
-                fraction - other.fraction,
-                null);
+        return new CalculationUnit(1, Dimensions.divide(dimensions, other.dimensions), null);
     }
 
     /**
@@ -404,46 +379,7 @@ public final class CalculationUnit implements Comparable<CalculationUnit> {
      */
     @Override
     public int compareTo(CalculationUnit other) {
-        if (pxLength != other.pxLength) {
-            return pxLength - other.pxLength;
-        }
-        if (percent != other.percent) {
-            return percent - other.percent;
-        }
-        if (length != other.length) {
-            return length - other.length;
-        }
-        if (angle != other.angle) {
-            return angle - other.angle;
-        }
-        if (time != other.time) {
-            return time - other.time;
-        }
-        if (fontLength != other.fontLength) {
-            return fontLength - other.fontLength;
-        }
-        if (gdLength != other.gdLength) {
-            return gdLength - other.gdLength;
-        }
-        if (remLength != other.remLength) {
-            return remLength - other.remLength;
-        }
-        if (vwLength != other.vwLength) {
-            return vwLength - other.vwLength;
-        }
-        if (vhLength != other.vhLength) {
-            return vhLength - other.vhLength;
-        }
-        if (vmLength != other.vmLength) {
-            return vmLength - other.vmLength;
-        }
-        if (chLength != other.chLength) {
-            return chLength - other.chLength;
-        }
-        if (fraction != other.fraction) {
-            return fraction - other.fraction;
-        }
-        return 0;
+        return Dimensions.compare(dimensions, other.dimensions);
     }
 
     /**
@@ -454,19 +390,7 @@ public final class CalculationUnit implements Comparable<CalculationUnit> {
      */
     @Override
     public int hashCode() {
-        return  fraction   * 1000000 +
-                chLength   * 1000000 +
-                vmLength   * 1000000 +
-                vhLength   * 1000000 +
-                vwLength   * 1000000 +
-                remLength  * 1000000 +
-                gdLength   * 1000000 +
-                fontLength * 100000 +
-                percent    * 10000 +
-                angle      * 1000 +
-                length     * 100 +
-                pxLength   * 10 +
-                time;
+        return Dimensions.hashCode(dimensions);
     }
 
     /**
@@ -481,20 +405,7 @@ public final class CalculationUnit implements Comparable<CalculationUnit> {
         if (obj == null || getClass() != obj.getClass()) {
             return false;
         }
-        CalculationUnit other = (CalculationUnit) obj;
-        return this.pxLength == other.pxLength &&
-               this.percent == other.percent &&
-               this.length == other.length &&
-               this.angle == other.angle &&
-               this.time == other.time &&
-               this.fontLength == other.fontLength &&
-               this.gdLength == other.gdLength &&
-               this.remLength == other.remLength &&
-               this.vwLength == other.vwLength &&
-               this.vhLength == other.vhLength &&
-               this.vmLength == other.vmLength &&
-               this.chLength == other.chLength &&
-               this.fraction == other.fraction;
+        return dimensions == ((CalculationUnit) obj).dimensions;
     }
 
     /**
@@ -510,192 +421,53 @@ public final class CalculationUnit implements Comparable<CalculationUnit> {
      */
     @Override
     public String toString() {
-        CalculationUnit canonical = getCanonicalUnit(this);
-        if (canonical.cssUnit != null) { return canonical.cssUnit.toString(); }
-
-        StringBuilder sb = new StringBuilder();
-        if (pxLength > 1) {
-            sb.append(" px^").append(pxLength);
-        }
-        else if (pxLength == 1) {
-            sb.append(" px");
-        }
-
-        if (fontLength > 1) {
-            sb.append(" em^").append(fontLength);
-        }
-        else if (fontLength == 1) {
-            sb.append(" em");
-        }
-
-        if (percent > 1) {
-            sb.append(" %^").append(percent);
-        }
-        else if (percent == 1) {
-            sb.append(" %");
-        }
-
-        if (length > 1) {
-            sb.append(" pt^").append(length);
-        }
-        else if (length == 1) {
-            sb.append(" pt");
-        }
-
-        if (this.angle > 1) {
-            sb.append(" deg^").append(angle);
-        }
-        else if (angle == 1) {
-            sb.append(" deg");
-        }
-
-        if (time > 1) {
-            sb.append(" s^").append(time);
-        }
-        else if (time == 1) {
-            sb.append(" s");
-        }
-
-        if (gdLength > 1) {
-            sb.append(" gd^").append(gdLength);
-        }
-        else if (gdLength == 1) {
-            sb.append(" gd");
-        }
-
-        if (remLength > 1) {
-            sb.append(" rem^").append(remLength);
-        }
-        else if (remLength == 1) {
-            sb.append(" rem");
-        }
-
-        if (vwLength > 1) {
-            sb.append(" vw^").append(vwLength);
-        }
-        else if (vwLength == 1) {
-            sb.append(" vw");
-        }
-
-        if (vhLength > 1) {
-            sb.append(" vh^").append(vhLength);
-        }
-        else if (vhLength == 1) {
-            sb.append(" vh");
-        }
+        return toString(dimensions);
+    }
 
-        if (vmLength > 1) {
-            sb.append(" vm^").append(vmLength);
-        }
-        else if (vmLength == 1) {
-            sb.append(" vm");
-        }
+    private static final int[] displayOrder = {
+        Dimensions.PX, Dimensions.FONT, Dimensions.PERCENT, Dimensions.LENGTH,
+        Dimensions.ANGLE, Dimensions.TIME, Dimensions.GD, Dimensions.REM,
+        Dimensions.VW, Dimensions.VH, Dimensions.VM, Dimensions.CH, Dimensions.FRACTION
+    };
+    private static final String[] displayNames = {
+        "px", "em", "%", "pt", "deg", "s", "gd", "rem", "vw", "vh", "vm", "ch", "fr"
+    };
 
-        if (chLength > 1) {
-            sb.append(" ch^").append(chLength);
-        }
-        else if (chLength == 1) {
-            sb.append(" ch");
+    /**
+     * Converts a set of dimensions to a String.
+     *
+     * @param dimensions The packed {@link Dimensions}.
+     * @return A string representation of the unit.
+     *
+     * @see #toString()
+     */
+    static String toString(long dimensions) {
+        int index = indexOfCanonical(dimensions);
+        if (index >= 0 && canonicalUnits[index].cssUnit != null) {
+            return canonicalUnits[index].cssUnit.toString();
         }
 
-        if (fraction > 1) {
-            sb.append(" fr^").append(fraction);
-        }
-        else if (fraction == 1) {
-            sb.append(" fr");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < displayOrder.length; i++) {
+            int exponent = Dimensions.get(dimensions, displayOrder[i]);
+            if (exponent > 1) {
+                sb.append(' ').append(displayNames[i]).append('^').append(exponent);
+            }
+            else if (exponent == 1) {
+                sb.append(' ').append(displayNames[i]);
+            }
         }
 
         sb.append("/");
 
-        if (pxLength < -1) {
-            sb.append("px^").append(-pxLength).append(" ");
-        }
-        else if (pxLength == -1) {
-            sb.append("px ");
-        }
-
-        if (fontLength < -1) {
-            sb.append("em^").append(-fontLength).append(" ");
-        }
-        else if (fontLength == -1) {
-            sb.append("em ");
-        }
-
-        if (percent < -1) {
-            sb.append("%^").append(-percent).append(" ");
-        }
-        else if (percent == -1) {
-            sb.append("% ");
-        }
-
-        if (length < -1) {
-            sb.append("pt^").append(-length).append(" ");
-        }
-        else if (length == -1) {
-            sb.append("pt ");
-        }
-
-        if (this.angle < -1) {
-            sb.append("deg^").append(-angle).append(" ");
-        }
-        else if (angle == -1) {
-            sb.append("deg ");
-        }
-
-        if (time < -1) {
-            sb.append("s^").append(-time).append(" ");
-        }
-        else if (time == -1) {
-            sb.append("s ");
-        }
-
-        if (gdLength < -1) {
-            sb.append("gd^").append(-gdLength).append(" ");
-        }
-        else if (gdLength == -1) {
-            sb.append("gd ");
-        }
-
-        if (remLength < -1) {
-            sb.append("rem^").append(-remLength).append(" ");
-        }
-        else if (remLength == -1) {
-            sb.append("rem ");
-        }
-
-        if (vwLength < -1) {
-            sb.append("vw^").append(-vwLength).append(" ");
-        }
-        else if (vwLength == -1) {
-            sb.append("vw ");
-        }
-
-        if (vhLength < -1) {
-            sb.append("vh^").append(-vhLength).append(" ");
-        }
-        else if (vhLength == -1) {
-            sb.append("vh ");
-        }
-
-        if (vmLength < -1) {
-            sb.append("vm^").append(-vmLength).append(" ");
-        }
-        else if (vmLength == -1) {
-            sb.append("vm ");
-        }
-
-        if (chLength < -1) {
-            sb.append("ch^").append(-chLength).append(" ");
-        }
-        else if (chLength == -1) {
-            sb.append("ch ");
-        }
-
-        if (fraction < -1) {
-            sb.append("fr^").append(-fraction).append(" ");
-        }
-        else if (fraction == -1) {
-            sb.append("fr ");
+        for (int i = 0; i < displayOrder.length; i++) {
+            int exponent = Dimensions.get(dimensions, displayOrder[i]);
+            if (exponent < -1) {
+                sb.append(displayNames[i]).append('^').append(-exponent).append(' ');
+            }
+            else if (exponent == -1) {
+                sb.append(displayNames[i]).append(' ');
+            }
         }
 
         String res = sb.toString().trim();
@@ -0,0 +1,171 @@
+package com.silentmatt.dss.calc;
+
+import com.silentmatt.dss.declaration.DeclarationList;
+import com.silentmatt.dss.evaluator.EvaluationState;
+import com.silentmatt.dss.term.NumberTerm;
+
+/**
+ * Evaluates a tree of {@link CalcExpression}s without creating a
+ * {@link Value} for each node.
+ *
+ * The result of the last evaluation is kept in {@link #scalar} and
+ * {@link #dimensions}. Binary operations keep the left operand in local
+ * variables while the right operand is evaluated, so one Calculator is enough
+ * for a whole expression.
+ *
+ * Expressions that aren't one of the built-in classes are evaluated with
+ * {@link CalcExpression#calculateValue}.
+ *
+ * @author Matthew Crumley
+ */
+final class Calculator {
+    /**
+     * The scalar part of the result, in the canonical unit.
+     */
+    double scalar;
+
+    /**
+     * The packed {@link Dimensions} of the result.
+     */
+    long dimensions;
+
+    /**
+     * Evaluates an expression.
+     *
+     * @param expression The expression to evaluate.
+     * @param state The current evaluation state.
+     * @param container The {@link DeclarationList} the expression is contained in.
+     *
+     * @return true if the result was stored, or false if there was an error.
+     */
+    boolean evaluate(CalcExpression expression, EvaluationState state, DeclarationList container) {
+        Class<?> type = expression.getClass();
+        if (type == BinaryExpression.class) {
+            return evaluate((BinaryExpression) expression, state, container);
+        }
+        else if (type == NegationExpression.class) {
+            return evaluate((NegationExpression) expression, state, container);
+        }
+        else if (type == TermExpression.class) {
+            return ((TermExpression) expression).calculate(this, state, container);
+        }
+        return set(expression.calculateValue(state, container));
+    }
+
+    boolean evaluate(BinaryExpression expression, EvaluationState state, DeclarationList container) {
+        try {
+            if (!evaluate(expression.getLeft(), state, container)) {
+                return false;
+            }
+            double leftScalar = scalar;
+            long leftDimensions = dimensions;
+            if (!evaluate(expression.getRight(), state, container)) {
+                return false;
+            }
+
+            if (apply(expression.getOperation(), leftScalar, leftDimensions)) {
+                return true;
+            }
+            state.getErrors().semanticError("Unrecognized operation");
+        } catch (IllegalArgumentException ex) {
+            state.getErrors().semanticError("incompatible units");
+        } catch (ArithmeticException ex) {
+            state.getErrors().semanticError(ex.getMessage());
+        }
+        return false;
+    }
+
+    boolean evaluate(NegationExpression expression, EvaluationState state, DeclarationList container) {
+        if (!evaluate(expression.getExpression(), state, container)) {
+            return false;
+        }
+        scalar = Value.negate(scalar, dimensions);
+        return true;
+    }
+
+    /**
+     * Applies an operation to a left operand and the stored result, and
+     * stores the result of the operation.
+     *
+     * @param operation The operation to perform.
+     * @param leftScalar The scalar part of the left operand.
+     * @param leftDimensions The dimensions of the left operand.
+     *
+     * @return true if the result was stored, or false if the operation isn't
+     * recognized.
+     * @throws IllegalArgumentException if the units are incompatible.
+     * @throws ArithmeticException if a unit exponent is out of range.
+     */
+    boolean apply(Operation operation, double leftScalar, long leftDimensions) {
+        switch (operation) {
+        case Add:
+            checkAddCompatible(leftDimensions);
+            scalar = Value.add(leftScalar, scalar, dimensions);
+            return true;
+        case Subtract:
+            checkAddCompatible(leftDimensions);
+            scalar = Value.subtract(leftScalar, scalar, dimensions);
+            return true;
+        case Multiply:
+            dimensions = Dimensions.multiply(leftDimensions, dimensions);
+            scalar = leftScalar * scalar;
+            return true;
+        case Divide:
+            dimensions = Dimensions.divide(leftDimensions, dimensions);
+            scalar = leftScalar / scalar;
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private void checkAddCompatible(long leftDimensions) {
+        if (leftDimensions != dimensions) {
+            throw new IllegalArgumentException("other");
+        }
+    }
+
+    /**
+     * Stores a number.
+     *
+     * @param term The number to store.
+     *
+     * @return true
+     * @throws IllegalArgumentException if the term's unit can't be used in
+     * calculations.
+     */
+    boolean set(NumberTerm term) {
+        CalculationUnit unit = CalculationUnit.fromCssUnit(term.getUnit());
+        if (unit == null) {
+            throw new IllegalArgumentException("term");
+        }
+        scalar = term.getValue() * unit.getScale();
+        dimensions = unit.getDimensions();
+        return true;
+    }
+
+    /**
+     * Stores a value.
+     *
+     * @param value The value to store, or null.
+     *
+     * @return true if the value was stored, false if it was null.
+     */
+    boolean set(Value value) {
+        if (value == null) {
+            return false;
+        }
+        scalar = value.getScalarValue();
+        dimensions = value.getDimensions();
+        return true;
+    }
+
+    /**
+     * Gets the result of the last evaluation.
+     *
+     * @return A new {@link Value}.
+     */
+    Value toValue() {
+        return new Value(scalar, dimensions);
+    }
+}
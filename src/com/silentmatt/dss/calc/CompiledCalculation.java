@@ -0,0 +1,350 @@
+package com.silentmatt.dss.calc;
+
+import com.silentmatt.dss.Immutable;
+import com.silentmatt.dss.declaration.DeclarationList;
+import com.silentmatt.dss.evaluator.EvaluationState;
+import com.silentmatt.dss.term.NumberTerm;
+import com.silentmatt.dss.term.ParamTerm;
+import com.silentmatt.dss.term.ReferenceTerm;
+import com.silentmatt.dss.term.Term;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link CalcExpression} compiled into a tree of evaluators that can be
+ * reused for every evaluation.
+ *
+ * Evaluating a calculation normally makes a copy of the whole expression with
+ * the const() and param() references substituted, and then evaluates the copy.
+ * A compiled calculation keeps a slot for each reference instead, so the only
+ * thing that changes between evaluations is the array of slot values from
+ * {@link #substituteValues}. Numbers
+ * are converted to their canonical units once, and operations on constant
+ * operands are done at compile time.
+ *
+ * The errors and results are exactly the same as substituting the values and
+ * evaluating the result.
+ *
+ * @author Matthew Crumley
+ */
+@Immutable
+public final class CompiledCalculation {
+    private final CalcExpression expression;
+    private final Node root;
+    private final ReferenceTerm[] references;
+
+    private CompiledCalculation(CalcExpression expression, Node root, ReferenceTerm[] references) {
+        this.expression = expression;
+        this.root = root;
+        this.references = references;
+    }
+
+    /**
+     * Compiles an expression.
+     *
+     * @param expression The expression to compile.
+     *
+     * @return The compiled expression, or null if the expression contains
+     * a type of {@link CalcExpression} that can't be compiled.
+     */
+    public static CompiledCalculation compile(CalcExpression expression) {
+        List<ReferenceTerm> references = new ArrayList<ReferenceTerm>();
+        Node root = compile(expression, references);
+        if (root == null) {
+            return null;
+        }
+        return new CompiledCalculation(expression, root, references.toArray(new ReferenceTerm[references.size()]));
+    }
+
+    /**
+     * Compiles an expression if it has any param() references.
+     *
+     * Only calculations in class bodies can have parameters, and they are
+     * evaluated again every time the class is applied with new arguments.
+     * Other calculations are usually evaluated once, so compiling them
+     * wouldn't pay for itself.
+     *
+     * @param expression The expression to compile.
+     *
+     * @return The compiled expression, or null if the expression has no
+     * param() references or can't be compiled.
+     */
+    public static CompiledCalculation compileParameterized(CalcExpression expression) {
+        return hasParameters(expression) ? compile(expression) : null;
+    }
+
+    private static boolean hasParameters(CalcExpression expression) {
+        if (expression instanceof BinaryExpression) {
+            BinaryExpression binary = (BinaryExpression) expression;
+            return hasParameters(binary.getLeft()) || hasParameters(binary.getRight());
+        }
+        else if (expression instanceof NegationExpression) {
+            return hasParameters(((NegationExpression) expression).getExpression());
+        }
+        else if (expression instanceof TermExpression) {
+            return ((TermExpression) expression).getValue() instanceof ParamTerm;
+        }
+        return false;
+    }
+
+    private static Node compile(CalcExpression expression, List<ReferenceTerm> references) {
+        Class<?> type = expression.getClass();
+        if (type == BinaryExpression.class) {
+            BinaryExpression binary = (BinaryExpression) expression;
+            Node left = compile(binary.getLeft(), references);
+            Node right = left != null ? compile(binary.getRight(), references) : null;
+            if (right == null) {
+                return null;
+            }
+            return fold(new BinaryNode(binary.getOperation(), left, right));
+        }
+        else if (type == NegationExpression.class) {
+            Node operand = compile(((NegationExpression) expression).getExpression(), references);
+            if (operand == null) {
+                return null;
+            }
+            return fold(new NegationNode(operand));
+        }
+        else if (type == TermExpression.class) {
+            Term term = ((TermExpression) expression).getValue();
+            if (term instanceof ReferenceTerm) {
+                references.add((ReferenceTerm) term);
+                return new SlotNode(references.size() - 1);
+            }
+            if (term instanceof NumberTerm && CalculationUnit.fromCssUnit(((NumberTerm) term).getUnit()) != null) {
+                Calculator calculator = new Calculator();
+                calculator.set((NumberTerm) term);
+                return new ConstantNode(calculator.scalar, calculator.dimensions);
+            }
+            return new TermNode(term);
+        }
+        return null;
+    }
+
+    /**
+     * Replaces an operation on constants with its result, if it can be
+     * calculated without any errors.
+     */
+    private static Node fold(BinaryNode node) {
+        if (node.operation == null || !(node.left instanceof ConstantNode && node.right instanceof ConstantNode)) {
+            return node;
+        }
+        ConstantNode left = (ConstantNode) node.left;
+        ConstantNode right = (ConstantNode) node.right;
+        Calculator calculator = new Calculator();
+        calculator.scalar = right.scalar;
+        calculator.dimensions = right.dimensions;
+        try {
+            if (calculator.apply(node.operation, left.scalar, left.dimensions)) {
+                return new ConstantNode(calculator.scalar, calculator.dimensions);
+            }
+        } catch (IllegalArgumentException ex) {
+            // Leave it to be reported when it's evaluated
+        } catch (ArithmeticException ex) {
+            // Leave it to be reported when it's evaluated
+        }
+        return node;
+    }
+
+    private static Node fold(NegationNode node) {
+        if (!(node.operand instanceof ConstantNode)) {
+            return node;
+        }
+        ConstantNode operand = (ConstantNode) node.operand;
+        return new ConstantNode(Value.negate(operand.scalar, operand.dimensions), operand.dimensions);
+    }
+
+    /**
+     * Substitutes the value of each const() and param() reference.
+     *
+     * Errors for missing values are reported in the same order as
+     * {@link CalcExpression#withSubstitutedValues}.
+     *
+     * @param state The current evaluation state.
+     * @param container The {@link DeclarationList} the expression is contained in.
+     * @param withParams Whether param() terms should be substituted.
+     *
+     * @return The value of each slot. References that weren't substituted
+     * keep the original term.
+     */
+    public Term[] substituteValues(EvaluationState state, DeclarationList container, boolean withParams) {
+        Term[] values = new Term[references.length];
+        for (int i = 0; i < references.length; i++) {
+            values[i] = TermExpression.substitute(references[i], state, container, withParams);
+        }
+        return values;
+    }
+
+    /**
+     * Evaluates the calculation with a set of substituted values.
+     *
+     * <code>calculateValue(substituteValues(state, container, withParams), state, container)</code>
+     * is equivalent to
+     * <code>expression.withSubstitutedValues(state, container, withParams, false).calculateValue(state, container)</code>.
+     *
+     * @param values The values from {@link #substituteValues}.
+     * @param state The current evaluation state.
+     * @param container The {@link DeclarationList} the expression is contained in.
+     *
+     * @return The result of the calculation, or null if there was an error.
+     */
+    public Value calculateValue(Term[] values, EvaluationState state, DeclarationList container) {
+        checkSlotCount(values);
+        Calculator calculator = new Calculator();
+        return root.evaluate(calculator, values, state, container) ? calculator.toValue() : null;
+    }
+
+    /**
+     * Makes a copy of the original expression with a set of substituted
+     * values.
+     *
+     * @param values The values from {@link #substituteValues}.
+     *
+     * @return The same expression as {@link CalcExpression#withSubstitutedValues}
+     * would have returned.
+     */
+    public CalcExpression withValues(Term[] values) {
+        checkSlotCount(values);
+        return withValues(expression, values, new int[1]);
+    }
+
+    private static CalcExpression withValues(CalcExpression expression, Term[] values, int[] nextSlot) {
+        if (expression instanceof BinaryExpression) {
+            BinaryExpression binary = (BinaryExpression) expression;
+            CalcExpression left = withValues(binary.getLeft(), values, nextSlot);
+            CalcExpression right = withValues(binary.getRight(), values, nextSlot);
+            return new BinaryExpression(binary.getOperation(), left, right);
+        }
+        else if (expression instanceof NegationExpression) {
+            return new NegationExpression(withValues(((NegationExpression) expression).getExpression(), values, nextSlot));
+        }
+
+        TermExpression term = (TermExpression) expression;
+        if (term.getValue() instanceof ReferenceTerm) {
+            Term value = values[nextSlot[0]++];
+            return value == term.getValue() ? term : new TermExpression(value);
+        }
+        return term;
+    }
+
+    private void checkSlotCount(Term[] values) {
+        if (values.length != references.length) {
+            throw new IllegalArgumentException("values");
+        }
+    }
+
+    /**
+     * Gets the number of const() and param() references in the calculation.
+     *
+     * @return The number of slots filled in for each evaluation.
+     */
+    public int getSlotCount() {
+        return references.length;
+    }
+
+    private static abstract class Node {
+        /**
+         * Evaluates the node into a {@link Calculator}.
+         *
+         * @param values The substituted value of each reference.
+         *
+         * @return true if the result was stored, or false if there was an error.
+         */
+        abstract boolean evaluate(Calculator calculator, Term[] values, EvaluationState state, DeclarationList container);
+    }
+
+    private static final class ConstantNode extends Node {
+        private final double scalar;
+        private final long dimensions;
+
+        ConstantNode(double scalar, long dimensions) {
+            this.scalar = scalar;
+            this.dimensions = dimensions;
+        }
+
+        @Override
+        boolean evaluate(Calculator calculator, Term[] values, EvaluationState state, DeclarationList container) {
+            calculator.scalar = scalar;
+            calculator.dimensions = dimensions;
+            return true;
+        }
+    }
+
+    private static final class SlotNode extends Node {
+        private final int index;
+
+        SlotNode(int index) {
+            this.index = index;
+        }
+
+        @Override
+        boolean evaluate(Calculator calculator, Term[] values, EvaluationState state, DeclarationList container) {
+            return TermExpression.calculate(values[index], calculator, state, container);
+        }
+    }
+
+    private static final class TermNode extends Node {
+        private final Term term;
+
+        TermNode(Term term) {
+            this.term = term;
+        }
+
+        @Override
+        boolean evaluate(Calculator calculator, Term[] values, EvaluationState state, DeclarationList container) {
+            return TermExpression.calculate(term, calculator, state, container);
+        }
+    }
+
+    private static final class BinaryNode extends Node {
+        private final Operation operation;
+        private final Node left;
+        private final Node right;
+
+        BinaryNode(Operation operation, Node left, Node right) {
+            this.operation = operation;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean evaluate(Calculator calculator, Term[] values, EvaluationState state, DeclarationList container) {
+            try {
+                if (!left.evaluate(calculator, values, state, container)) {
+                    return false;
+                }
+                double leftScalar = calculator.scalar;
+                long leftDimensions = calculator.dimensions;
+                if (!right.evaluate(calculator, values, state, container)) {
+                    return false;
+                }
+                if (calculator.apply(operation, leftScalar, leftDimensions)) {
+                    return true;
+                }
+                state.getErrors().semanticError("Unrecognized operation");
+            } catch (IllegalArgumentException ex) {
+                state.getErrors().semanticError("incompatible units");
+            } catch (ArithmeticException ex) {
+                state.getErrors().semanticError(ex.getMessage());
+            }
+            return false;
+        }
+    }
+
+    private static final class NegationNode extends Node {
+        private final Node operand;
+
+        NegationNode(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        boolean evaluate(Calculator calculator, Term[] values, EvaluationState state, DeclarationList container) {
+            if (!operand.evaluate(calculator, values, state, container)) {
+                return false;
+            }
+            calculator.scalar = Value.negate(calculator.scalar, calculator.dimensions);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.silentmatt.dss.calc;
+
+/**
+ * Operations on the dimensions of a {@link CalculationUnit}, packed into a
+ * long.
+ *
+ * Each dimension's exponent is stored as a signed bit field, so two units can
+ * be compared with <code>==</code>, and multiplied or divided by adding or
+ * subtracting all of the fields at once. The four dimensions that commonly
+ * show up in calculations (pixels, percentages, absolute lengths, and ems)
+ * get 7 bits each, for exponents from -64 to 63. The others get 4 bits each,
+ * for exponents from -8 to 7. Operations that would go outside those ranges
+ * throw an {@link ArithmeticException}.
+ *
+ * The fields are numbered in the same order that {@link CalculationUnit}
+ * compares them.
+ *
+ * @author Matthew Crumley
+ */
+final class Dimensions {
+    static final int PX = 0;
+    static final int PERCENT = 1;
+    static final int LENGTH = 2;
+    static final int ANGLE = 3;
+    static final int TIME = 4;
+    static final int FONT = 5;
+    static final int GD = 6;
+    static final int REM = 7;
+    static final int VW = 8;
+    static final int VH = 9;
+    static final int VM = 10;
+    static final int CH = 11;
+    static final int FRACTION = 12;
+
+    /**
+     * The number of dimensions.
+     */
+    static final int COUNT = 13;
+
+    /**
+     * A scalar, with every exponent zero.
+     */
+    static final long NONE = 0;
+
+    private static final int[] WIDTHS = { 7, 7, 7, 4, 4, 7, 4, 4, 4, 4, 4, 4, 4 };
+    private static final int[] SHIFTS = new int[COUNT];
+
+    /**
+     * The sign bit of every field.
+     */
+    private static final long SIGN_BITS;
+
+    static {
+        int shift = 0;
+        long signBits = 0;
+        for (int i = 0; i < COUNT; i++) {
+            SHIFTS[i] = shift;
+            shift += WIDTHS[i];
+            signBits |= 1L << (shift - 1);
+        }
+        if (shift != Long.SIZE) {
+            throw new AssertionError("dimension fields must fill a long");
+        }
+        SIGN_BITS = signBits;
+    }
+
+    private Dimensions() {
+    }
+
+    /**
+     * Packs a list of exponents.
+     *
+     * @param exponents The exponent of each dimension, in field order.
+     *
+     * @return The packed dimensions.
+     */
+    static long of(int... exponents) {
+        if (exponents.length != COUNT) {
+            throw new IllegalArgumentException("exponents");
+        }
+        long result = NONE;
+        for (int i = 0; i < COUNT; i++) {
+            int min = -1 << (WIDTHS[i] - 1);
+            if (exponents[i] < min || exponents[i] > ~min) {
+                throw new ArithmeticException("unit exponent out of range");
+            }
+            result |= (exponents[i] & ((1L << WIDTHS[i]) - 1)) << SHIFTS[i];
+        }
+        return result;
+    }
+
+    /**
+     * Gets the exponent of one dimension.
+     *
+     * @param dimensions The packed dimensions.
+     * @param field The dimension, like {@link #PX}.
+     *
+     * @return The signed exponent.
+     */
+    static int get(long dimensions, int field) {
+        int top = Long.SIZE - SHIFTS[field] - WIDTHS[field];
+        return (int) ((dimensions << top) >> (Long.SIZE - WIDTHS[field]));
+    }
+
+    /**
+     * Multiplies two units, by adding their exponents.
+     *
+     * @param a The first unit's dimensions.
+     * @param b The second unit's dimensions.
+     *
+     * @return The dimensions of the product.
+     * @throws ArithmeticException if an exponent is out of range.
+     */
+    static long multiply(long a, long b) {
+        // Add the fields without their sign bits, so nothing carries into the
+        // next field, then fix up the sign bits
+        long sum = ((a & ~SIGN_BITS) + (b & ~SIGN_BITS)) ^ ((a ^ b) & SIGN_BITS);
+        if (((a ^ sum) & (b ^ sum) & SIGN_BITS) != 0) {
+            throw new ArithmeticException("unit exponent out of range");
+        }
+        return sum;
+    }
+
+    /**
+     * Divides two units, by subtracting their exponents.
+     *
+     * @param a The dividend's dimensions.
+     * @param b The divisor's dimensions.
+     *
+     * @return The dimensions of the quotient.
+     * @throws ArithmeticException if an exponent is out of range.
+     */
+    static long divide(long a, long b) {
+        // Set the sign bits first so nothing borrows from the next field
+        long difference = ((a | SIGN_BITS) - (b & ~SIGN_BITS)) ^ ((a ^ ~b) & SIGN_BITS);
+        if (((a ^ b) & (a ^ difference) & SIGN_BITS) != 0) {
+            throw new ArithmeticException("unit exponent out of range");
+        }
+        return difference;
+    }
+
+    /**
+     * Compares two units lexicographically, one dimension at a time.
+     *
+     * @param a The first unit's dimensions.
+     * @param b The second unit's dimensions.
+     *
+     * @return A negative integer, zero, or a positive integer.
+     */
+    static int compare(long a, long b) {
+        if (a == b) {
+            return 0;
+        }
+        for (int i = 0; i < COUNT; i++) {
+            int difference = get(a, i) - get(b, i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Hashes a set of dimensions, spreading every field over the whole hash
+     * code.
+     *
+     * @param dimensions The packed dimensions.
+     *
+     * @return The hash code.
+     */
+    static int hashCode(long dimensions) {
+        long h = dimensions * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -24,11 +24,8 @@ public class NegationExpression implements CalcExpression {
 
     @Override
     public Value calculateValue(EvaluationState state, DeclarationList container) {
-        Value value = expr.calculateValue(state, container);
-        if (value == null) {
-            return null;
-        }
-        return value.negate();
+        Calculator calculator = new Calculator();
+        return calculator.evaluate(this, state, container) ? calculator.toValue() : null;
     }
 
     @Override
@@ -48,6 +45,15 @@ public class NegationExpression implements CalcExpression {
         return "-(" + expr + ")";
     }
 
+    /**
+     * Gets the expression being negated.
+     *
+     * @return The expression being negated.
+     */
+    public CalcExpression getExpression() {
+        return expr;
+    }
+
     @Override
     public int getPrecidence() {
         return 3;
@@ -32,25 +32,78 @@ public class TermExpression implements CalcExpression {
 
     @Override
     public Value calculateValue(EvaluationState state, DeclarationList container) {
-        Term value = withSubstitutedValues(state, container, true, false).value;
+        Calculator calculator = new Calculator();
+        return calculate(calculator, state, container) ? calculator.toValue() : null;
+    }
+
+    /**
+     * Evaluates the term into a {@link Calculator}.
+     *
+     * @return true if the result was stored, or false if there was an error.
+     */
+    boolean calculate(Calculator calculator, EvaluationState state, DeclarationList container) {
+        return calculate(value, calculator, state, container);
+    }
+
+    /**
+     * Evaluates a term into a {@link Calculator}, substituting it first if
+     * it's a reference.
+     *
+     * @return true if the result was stored, or false if there was an error.
+     */
+    static boolean calculate(Term term, Calculator calculator, EvaluationState state, DeclarationList container) {
+        Term value = substitute(term, state, container, true);
         if (value instanceof NumberTerm) {
-            return new Value((NumberTerm) value);
+            return calculator.set((NumberTerm) value);
         }
         else if (value instanceof CalculationTerm) {
-            return ((CalculationTerm) value).getCalculation().calculateValue(state, container);
+            return calculator.evaluate(((CalculationTerm) value).getCalculation(), state, container);
         }
         else if (value instanceof FunctionTerm) {
             Expression result = ((FunctionTerm) value).applyFunction(state);
             if (result != null) {
                 List<Term> resultTerms = result.getTerms();
                 if (resultTerms.size() == 1 && resultTerms.get(0) instanceof NumberTerm) {
-                    return new Value((NumberTerm) resultTerms.get(0));
+                    return calculator.set((NumberTerm) resultTerms.get(0));
                 }
             }
         }
 
         state.getErrors().semanticError("Invalid term in calculation: '" + value + "'");
-        return null;
+        return false;
+    }
+
+    /**
+     * Replaces a reference with its value.
+     *
+     * @return The value, or <code>term</code> itself if it isn't a reference or
+     * the value is missing.
+     */
+    static Term substitute(Term term, EvaluationState state, DeclarationList container, boolean withParams) {
+        if (term instanceof ReferenceTerm && !(!withParams && term instanceof ParamTerm)) {
+            ReferenceTerm function = (ReferenceTerm) term;
+            Expression variable = function.evaluate(state, container);
+            if (variable == null) {
+                state.getErrors().semanticError("missing value: " + function.toString());
+                return term;
+            }
+            if (variable.getTerms().size() > 1) {
+                state.getErrors().semanticError("not a single value: " + function.toString());
+                return term;
+            }
+
+            return variable.getTerms().get(0);
+        }
+        return term;
+    }
+
+    /**
+     * Gets the term.
+     *
+     * @return The term.
+     */
+    public Term getValue() {
+        return value;
     }
 
     @Override
@@ -70,19 +123,9 @@ public class TermExpression implements CalcExpression {
 
     @Override
     public TermExpression withSubstitutedValues(EvaluationState state, DeclarationList container, boolean withParams, boolean doNestedCalculations) {
-        if (value instanceof ReferenceTerm && !(!withParams && value instanceof ParamTerm)) {
-            ReferenceTerm function = (ReferenceTerm) value;
-            Expression variable = function.evaluate(state, container);
-            if (variable == null) {
-                state.getErrors().semanticError("missing value: " + function.toString());
-                return this;
-            }
-            if (variable.getTerms().size() > 1) {
-                state.getErrors().semanticError("not a single value: " + function.toString());
-                return this;
-            }
-
-            return new TermExpression(variable.getTerms().get(0));
+        Term substituted = substitute(value, state, container, withParams);
+        if (substituted != value) {
+            return new TermExpression(substituted);
         }
         else if (doNestedCalculations && value instanceof CalculationTerm) {
             Value calc = calculateValue(state, container);
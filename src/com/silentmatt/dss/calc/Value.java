@@ -12,7 +12,7 @@ import com.silentmatt.dss.term.Term;
 @Immutable
 public final class Value {
     private final double scalar;
-    private final CalculationUnit unit;
+    private final long dimensions;
 
     /**
      * Constructs a Value from a number and a unit.
@@ -22,7 +22,7 @@ public final class Value {
      */
     public Value(double scalar, CalculationUnit unit) {
         this.scalar = scalar * unit.getScale();
-        this.unit = CalculationUnit.getCanonicalUnit(unit);
+        this.dimensions = unit.getDimensions();
     }
 
     /**
@@ -37,7 +37,7 @@ public final class Value {
             throw new IllegalArgumentException("term");
         }
         this.scalar = term.getValue() * thisUnit.getScale();
-        this.unit = CalculationUnit.getCanonicalUnit(thisUnit);
+        this.dimensions = thisUnit.getDimensions();
     }
 
     /**
@@ -47,9 +47,27 @@ public final class Value {
      * @param unit The associated CSS Unit.
      */
     public Value(double scalar, Unit unit) {
-        CalculationUnit thisUnit = CalculationUnit.fromCssUnit(unit);
-        this.scalar = scalar * thisUnit.getScale();
-        this.unit = CalculationUnit.getCanonicalUnit(thisUnit);
+        this(scalar, CalculationUnit.fromCssUnit(unit));
+    }
+
+    /**
+     * Constructs a Value from an already scaled number and its dimensions.
+     *
+     * @param scalar The scalar part of the value, in the canonical unit.
+     * @param dimensions The packed {@link Dimensions} of the unit.
+     */
+    Value(double scalar, long dimensions) {
+        this.scalar = scalar;
+        this.dimensions = dimensions;
+    }
+
+    /**
+     * Gets the packed dimensions of the value's unit.
+     *
+     * @return The {@link Dimensions} of the unit.
+     */
+    long getDimensions() {
+        return dimensions;
     }
 
     /**
@@ -72,8 +90,8 @@ public final class Value {
      * @see CalculationUnit#isAddCompatible(com.silentmatt.dss.expression.CalculationUnit)
      */
     public Value add(Value other) {
-        if (unit.isAddCompatible(other.unit)) {
-            return new Value(scalar + other.scalar, unit);
+        if (dimensions == other.dimensions) {
+            return new Value(add(scalar, other.scalar, dimensions), dimensions);
         }
         else {
             throw new IllegalArgumentException("other");
@@ -91,8 +109,8 @@ public final class Value {
      * @see CalculationUnit#isAddCompatible(com.silentmatt.dss.expression.CalculationUnit)
      */
     public Value subtract(Value other) {
-        if (unit.isAddCompatible(other.unit)) {
-            return new Value(scalar - other.scalar, unit);
+        if (dimensions == other.dimensions) {
+            return new Value(subtract(scalar, other.scalar, dimensions), dimensions);
         }
         else {
             throw new IllegalArgumentException("other");
@@ -108,7 +126,7 @@ public final class Value {
      * @return The product, <code>this</code> * <code>other</code>.
      */
     public Value multiply(Value other) {
-        return new Value(scalar * other.scalar, unit.multiply(other.unit));
+        return new Value(scalar * other.scalar, Dimensions.multiply(dimensions, other.dimensions));
     }
 
     /**
@@ -120,7 +138,7 @@ public final class Value {
      * @return The quotient, <code>this</code> / <code>other</code>.
      */
     public Value divide(Value other) {
-        return new Value(scalar / other.scalar, unit.divide(other.unit));
+        return new Value(scalar / other.scalar, Dimensions.divide(dimensions, other.dimensions));
     }
 
     /**
@@ -129,7 +147,23 @@ public final class Value {
      * @return -<code>this</code>
      */
     public Value negate() {
-        return new Value(-scalar, unit);
+        return new Value(negate(scalar, dimensions), dimensions);
+    }
+
+    // Sums and negations are rescaled by the canonical unit, just like
+    // constructing a new Value from them would be. That only matters for
+    // time, since s is the canonical unit, but ms is the base.
+
+    static double add(double a, double b, long dimensions) {
+        return (a + b) * CalculationUnit.getCanonicalScale(dimensions);
+    }
+
+    static double subtract(double a, double b, long dimensions) {
+        return (a - b) * CalculationUnit.getCanonicalScale(dimensions);
+    }
+
+    static double negate(double a, long dimensions) {
+        return -a * CalculationUnit.getCanonicalScale(dimensions);
     }
 
     /**
@@ -141,13 +175,15 @@ public final class Value {
      * @throws CalculationException <code>this</code> cannot be represented by a valid CSS unit.
      */
     public NumberTerm toTerm() throws CalculationException {
-        NumberTerm term = new NumberTerm(scalar);
-        Unit cssUnit = CalculationUnit.toCssUnit(unit);
+        return toTerm(scalar, dimensions);
+    }
+
+    static NumberTerm toTerm(double scalar, long dimensions) throws CalculationException {
+        Unit cssUnit = CalculationUnit.toCssUnit(dimensions);
         if (cssUnit == null) {
-            throw new CalculationException("not a valid CSS unit: " + toString());
+            throw new CalculationException("not a valid CSS unit: " + toString(scalar, dimensions));
         }
-        term = term.withUnit(cssUnit);
-        return term;
+        return new NumberTerm(null, scalar, cssUnit);
     }
 
     /**
@@ -157,6 +193,10 @@ public final class Value {
      */
     @Override
     public String toString() {
-        return scalar + unit.toString();
+        return toString(scalar, dimensions);
+    }
+
+    static String toString(double scalar, long dimensions) {
+        return scalar + CalculationUnit.toString(dimensions);
     }
 }
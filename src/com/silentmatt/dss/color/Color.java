@@ -1,9 +1,10 @@
 package com.silentmatt.dss.color;
 
+import com.google.common.collect.ImmutableMap;
 import com.silentmatt.dss.Immutable;
 import com.silentmatt.dss.term.Term;
+import com.silentmatt.dss.util.NumberFormatter;
 import java.lang.reflect.Field;
-import java.text.DecimalFormat;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -157,16 +158,18 @@ public abstract class Color {
     public static final Color YellowGreen = new RGBIColor(0x9A, 0xCD, 0x32, "YellowGreen");
 
     // TODO: Make private. toNameString will need to be changed.
-    protected static final Map<String, Color> namedColors = new HashMap<>();
+    protected static final Map<String, Color> namedColors;
     static {
+        Map<String, Color> colors = new HashMap<>();
         for (Field field : Color.class.getFields()) {
             if (Color.class.isAssignableFrom(field.getType())) {
                 try {
-                    namedColors.put(field.getName().toLowerCase(Locale.ENGLISH), (Color) field.get(null));
+                    colors.put(field.getName().toLowerCase(Locale.ENGLISH), (Color) field.get(null));
                 } catch (IllegalArgumentException | IllegalAccessException ex) {
                 }
             }
         }
+        namedColors = ImmutableMap.copyOf(colors);
     }
 
     /**
@@ -239,9 +242,13 @@ public abstract class Color {
         return Math.min(Math.max(0, c), 255);
     }
 
-    protected static final DecimalFormat floatFormat = new DecimalFormat("#.####");
+    private static final int FLOAT_DIGITS = 4;
+
+    protected static String formatFloat(double value) {
+        return NumberFormatter.format(value, FLOAT_DIGITS);
+    }
 
     protected static boolean areEquivalent(double a, double b) {
-        return floatFormat.format(a).equals(floatFormat.format(b));
+        return NumberFormatter.areEquivalent(a, b, FLOAT_DIGITS);
     }
 }
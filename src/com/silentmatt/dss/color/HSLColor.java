@@ -104,12 +104,12 @@ public final class HSLColor extends Color {
      */
     public String toHSLString() {
         if (areEquivalent(alpha, 1.0)) {
-            return "hsl(" + hue + "," + floatFormat.format(saturation * 100.0) + "%," + floatFormat.format(lightness * 100.0) + "%)";
+            return "hsl(" + hue + "," + formatFloat(saturation * 100.0) + "%," + formatFloat(lightness * 100.0) + "%)";
         }
         else if (areEquivalent(alpha, 0.0)) {
-            return "hsla(" + hue + "," + floatFormat.format(saturation * 100.0) + "%," + floatFormat.format(lightness * 100.0) + "%,0)";
+            return "hsla(" + hue + "," + formatFloat(saturation * 100.0) + "%," + formatFloat(lightness * 100.0) + "%,0)";
         }
-        return "hsla(" + hue + "," + floatFormat.format(saturation * 100.0) + "%," + floatFormat.format(lightness * 100.0) + "%," + floatFormat.format(alpha) + ")";
+        return "hsla(" + hue + "," + formatFloat(saturation * 100.0) + "%," + formatFloat(lightness * 100.0) + "%," + formatFloat(alpha) + ")";
     }
 
     /**
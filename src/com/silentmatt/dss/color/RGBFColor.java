@@ -51,12 +51,12 @@ public final class RGBFColor extends Color {
      */
     public String toRGBString() {
         if (areEquivalent(alpha, 1.0)) {
-            return "rgb(" + floatFormat.format(red * 100.0) + "%," + floatFormat.format(green * 100.0) + "%," + floatFormat.format(blue * 100.0) + "%)";
+            return "rgb(" + formatFloat(red * 100.0) + "%," + formatFloat(green * 100.0) + "%," + formatFloat(blue * 100.0) + "%)";
         }
         else if (areEquivalent(alpha, 0.0)) {
-            return "rgba(" + floatFormat.format(red * 100.0) + "%," + floatFormat.format(green * 100.0) + "%," + floatFormat.format(blue * 100.0) + "%,0)";
+            return "rgba(" + formatFloat(red * 100.0) + "%," + formatFloat(green * 100.0) + "%," + formatFloat(blue * 100.0) + "%,0)";
         }
-        return "rgba(" + floatFormat.format(red * 100.0) + "%," + floatFormat.format(green * 100.0) + "%," + floatFormat.format(blue * 100.0) + "%," + floatFormat.format(alpha) + ")";
+        return "rgba(" + formatFloat(red * 100.0) + "%," + formatFloat(green * 100.0) + "%," + formatFloat(blue * 100.0) + "%," + formatFloat(alpha) + ")";
     }
 
     /**
@@ -84,7 +84,7 @@ public final class RGBIColor extends Color {
         else if (areEquivalent(alpha, 0.0)) {
             return "rgba(" + red + "," + green + "," + blue + ",0)";
         }
-        return "rgba(" + red + "," + green + "," + blue + "," + floatFormat.format(alpha) + ")";
+        return "rgba(" + red + "," + green + "," + blue + "," + formatFloat(alpha) + ")";
     }
 
     /**
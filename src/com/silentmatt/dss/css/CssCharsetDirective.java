@@ -1,5 +1,7 @@
 package com.silentmatt.dss.css;
 
+import java.io.IOException;
+
 /**
  *
  * @author Matthew Crumley
@@ -11,7 +13,9 @@ public class CssCharsetDirective extends CssExpressionDirective {
     }
 
     @Override
-    public String toString() {
-        return "@charset " + getExpression() + ";";
+    protected void writeDirective(CssWriter out) throws IOException {
+        out.append("@charset ");
+        getExpression().write(out, false);
+        out.append(';');
     }
 }
@@ -1,5 +1,7 @@
 package com.silentmatt.dss.css;
 
+import java.io.IOException;
+
 /**
  * Represents a CSS declaration (name-value pair).
  * Declarations are in this form: "name : term [,] term ... [!important]".
@@ -113,15 +115,31 @@ public class CssDeclaration /*implements Map.Entry<String, CssExpression>*/ {
     }
 
     public String toString(boolean compact) {
-        StringBuilder txt = new StringBuilder();
-        txt.append(name).append(":");
+        StringBuilder sb = new StringBuilder();
+        try {
+            write(new CssWriter(sb), compact);
+        } catch (IOException ex) {
+            // Can't happen, since StringBuilder doesn't throw
+            throw new AssertionError(ex);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the declaration, without the trailing semicolon.
+     *
+     * @param out The destination.
+     * @param compact true to omit unnecessary whitespace.
+     * @throws IOException if the writer throws an IOException.
+     */
+    public void write(CssWriter out, boolean compact) throws IOException {
+        out.append(name).append(':');
         if (!compact) {
-            txt.append(' ');
+            out.append(' ');
         }
-        txt.append(expression.toString(compact));
+        expression.write(out, compact);
         if (important) {
-            txt.append(" !important");
+            out.append(" !important");
         }
-        return txt.toString();
     }
 }
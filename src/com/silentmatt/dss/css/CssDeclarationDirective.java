@@ -1,5 +1,6 @@
 package com.silentmatt.dss.css;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -38,64 +39,65 @@ public abstract class CssDeclarationDirective extends CssRule {
     }
 
     public String getDeclarationsString(int nesting) {
-        String start = CssRule.getIndent(nesting);
-
-        StringBuilder txt = new StringBuilder("{");
+        return getDeclarationsString(false, nesting);
+    }
 
-        for (CssDeclaration dec : declarations) {
-            txt.append("\n\t").append(start);
-            txt.append(dec.toString());
-            txt.append(";");
+    public String getDeclarationsString(boolean compact, int nesting) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeDeclarations(new CssWriter(sb), compact, nesting);
+        } catch (IOException ex) {
+            // Can't happen, since StringBuilder doesn't throw
+            throw new AssertionError(ex);
         }
-
-        txt.append("\n").append(start).append("}");
-
-        return txt.toString();
+        return sb.toString();
     }
 
-    public String getDeclarationsString(boolean compact, int nesting) {
+    /**
+     * Writes the declaration block, including the braces.
+     *
+     * @param out The destination.
+     * @param compact true to omit unnecessary whitespace.
+     * @param nesting The indentation level.
+     * @throws IOException if the writer throws an IOException.
+     */
+    protected void writeDeclarations(CssWriter out, boolean compact, int nesting) throws IOException {
+        out.append('{');
+
         if (!compact) {
-            return getDeclarationsString(nesting);
-        }
+            for (CssDeclaration dec : declarations) {
+                out.append('\n').indent(nesting + 1);
+                dec.write(out, false);
+                out.append(';');
+            }
 
-        StringBuilder txt = new StringBuilder("{");
+            out.append('\n').indent(nesting).append('}');
+            return;
+        }
 
         int count = 0;
         for (CssDeclaration dec : declarations) {
-            txt.append(dec.toString(compact));
+            dec.write(out, compact);
             ++count;
-            if (!compact || count < declarations.size()) {
-                txt.append(';');
+            if (count < declarations.size()) {
+                out.append(';');
             }
         }
 
-        txt.append('}');
-
-        return txt.toString();
+        out.append('}');
     }
 
     public abstract String getName();
 
     @Override
-    public String toString() {
-        return toString(0);
-    }
-
-    @Override
-    public String toString(int nesting) {
-        String start = CssRule.getIndent(nesting);
-        StringBuilder txt = new StringBuilder(start);
-        txt.append(getName());
-        txt.append(" ");
-        txt.append(getDeclarationsString(nesting));
-        return txt.toString();
+    public void write(CssWriter out, int nesting) throws IOException {
+        out.indent(nesting).append(getName()).append(' ');
+        writeDeclarations(out, false, nesting);
     }
 
     @Override
-    public String toString(boolean compact, int nesting) {
-        StringBuilder txt = new StringBuilder();
-        txt.append(getName());
-        txt.append(getDeclarationsString(compact, nesting));
-        return txt.toString();
+    public void write(CssWriter out, boolean compact, int nesting) throws IOException {
+        out.append(getName());
+        writeDeclarations(out, compact, nesting);
     }
 }
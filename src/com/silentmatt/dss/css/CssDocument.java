@@ -1,5 +1,7 @@
 package com.silentmatt.dss.css;
 
+import com.silentmatt.dss.events.Events;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,31 +20,49 @@ public class CssDocument {
         return rules;
     }
 
-    @Override
-    public String toString() {
-        StringBuilder txt = new StringBuilder();
-        for (CssRule r : rules) {
-            String ruleString = r.toString(0);
-            if (ruleString.length() > 0) {
-                txt.append(ruleString).append("\n");
+    /**
+     * Writes the document to a {@link CssWriter}.
+     *
+     * @param out The destination.
+     * @param compact true to omit unnecessary whitespace.
+     * @throws IOException if the writer throws an IOException.
+     */
+    public void write(CssWriter out, boolean compact) throws IOException {
+        long start = out.getCount();
+        Events.Span span = Events.write(compact);
+        try {
+            for (CssRule r : rules) {
+                if (compact) {
+                    r.write(out, true, 0);
+                }
+                else {
+                    long before = out.getCount();
+                    r.write(out, 0);
+                    if (out.getCount() != before) {
+                        out.append('\n');
+                    }
+                }
             }
         }
-        return txt.toString();
+        finally {
+            span.setSize(out.getCount() - start);
+            span.end();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toString(false);
     }
 
     public String toString(boolean compact) {
-        if (compact) {
-            StringBuilder txt = new StringBuilder();
-            for (CssRule r : rules) {
-                String ruleString = r.toString(compact, 0);
-                if (ruleString.length() > 0) {
-                    txt.append(ruleString);
-                }
-            }
-            return txt.toString();
-        }
-        else {
-            return toString();
+        StringBuilder sb = new StringBuilder();
+        try {
+            write(new CssWriter(sb), compact);
+        } catch (IOException ex) {
+            // Can't happen, since StringBuilder doesn't throw
+            throw new AssertionError(ex);
         }
+        return sb.toString();
     }
 }
@@ -1,5 +1,6 @@
 package com.silentmatt.dss.css;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -40,24 +41,40 @@ public class CssExpression {
     }
 
     public String toString(boolean compact) {
-        StringBuilder txt = new StringBuilder();
+        StringBuilder sb = new StringBuilder();
+        try {
+            write(new CssWriter(sb), compact);
+        } catch (IOException ex) {
+            // Can't happen, since StringBuilder doesn't throw
+            throw new AssertionError(ex);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the expression.
+     *
+     * @param out The destination.
+     * @param compact true to omit unnecessary whitespace.
+     * @throws IOException if the writer throws an IOException.
+     */
+    public void write(CssWriter out, boolean compact) throws IOException {
         boolean first = true;
         for (CssTerm t : terms) {
             if (first) {
                 first = false;
             } else {
                 if (t.getSeperator() == null) {
-                    txt.append(" ");
+                    out.append(' ');
                 }
                 else {
-                    txt.append(t.getSeperator());
+                    out.append(t.getSeperator().charValue());
                     if (!compact && t.getSeperator().equals(',')) {
-                        txt.append(" ");
+                        out.append(' ');
                     }
                 }
             }
-            txt.append(t.toString(compact));
+            out.append(t.toString(compact));
         }
-        return txt.toString();
     }
 }
@@ -1,5 +1,7 @@
 package com.silentmatt.dss.css;
 
+import java.io.IOException;
+
 /**
  *
  * @author Matthew Crumley
@@ -16,13 +18,22 @@ public abstract class CssExpressionDirective extends CssRule {
         return expression;
     }
 
+    /**
+     * Writes the directive, without any indentation.
+     *
+     * @param out The destination.
+     * @throws IOException if the writer throws an IOException.
+     */
+    protected abstract void writeDirective(CssWriter out) throws IOException;
+
     @Override
-    public String toString(int nesting) {
-        return CssRule.getIndent(nesting) + toString();
+    public void write(CssWriter out, int nesting) throws IOException {
+        out.indent(nesting);
+        writeDirective(out);
     }
 
     @Override
-    public String toString(boolean compact, int nesting) {
-        return toString();
+    public void write(CssWriter out, boolean compact, int nesting) throws IOException {
+        writeDirective(out);
     }
 }
@@ -1,5 +1,6 @@
 package com.silentmatt.dss.css;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -51,62 +52,46 @@ public class CssGenericDirective extends CssRule {
     }
 
     @Override
-    public String toString() {
-        return toString(0);
-    }
-
-    @Override
-    public String toString(int nesting) {
-        String start = CssRule.getIndent(nesting);
-
-        StringBuilder txt = new StringBuilder();
-
-        txt.append(name);
+    public void write(CssWriter out, boolean compact, int nesting) throws IOException {
+        out.append(name);
 
         if (getExpression() != null) {
-            txt.append(" ");
-            txt.append(getExpression().toString());
+            out.append(' ');
+            getExpression().write(out, false);
         }
 
         boolean first = true;
         for (CssMedium m : mediums) {
             if (first) {
                 first = false;
-                txt.append(" ");
+                out.append(' ');
             } else {
-                txt.append(", ");
+                out.append(", ");
             }
-            txt.append(m.toString());
+            out.append(m);
         }
 
         boolean hasBlock = (this.declarations.size() > 0 || this.rules.size() > 0);
 
         if (!hasBlock) {
-            txt.append(";");
-            return txt.toString();
+            out.append(';');
+            return;
         }
 
-        txt.append(" {").append(start);
+        out.append(" {").indent(nesting);
 
         for (CssRule dir : rules) {
-            txt.append("\n");
-            txt.append(dir.toString(nesting + 1));
+            out.append('\n');
+            dir.write(out, nesting + 1);
         }
 
         first = true;
         for (CssDeclaration dec : declarations) {
-            if (first) { first = false; } else { txt.append(";"); }
-            txt.append("\n\t").append(start);
-            txt.append(dec.toString());
+            if (first) { first = false; } else { out.append(';'); }
+            out.append('\n').indent(nesting + 1);
+            dec.write(out, false);
         }
 
-        txt.append("\n").append(start).append("}");
-
-        return txt.toString();
-    }
-
-    @Override
-    public String toString(boolean compact, int nesting) {
-        return toString(nesting);
+        out.append('\n').indent(nesting).append('}');
     }
 }
@@ -1,5 +1,6 @@
 package com.silentmatt.dss.css;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 
@@ -21,8 +22,10 @@ public class CssImportDirective extends CssExpressionDirective {
     }
 
     @Override
-    public String toString() {
-        return "@import " + getExpression() + " " + medium + ";";
+    protected void writeDirective(CssWriter out) throws IOException {
+        out.append("@import ");
+        getExpression().write(out, false);
+        out.append(' ').append(medium).append(';');
     }
 
     public String getURLString() {
@@ -1,5 +1,7 @@
 package com.silentmatt.dss.css;
 
+import java.io.IOException;
+
 /**
  *
  * @author Matthew Crumley
@@ -17,12 +19,7 @@ public class CssLiteralText extends CssRule {
     }
 
     @Override
-    public String toString(int nesting) {
-        return CssRule.getIndent(nesting) + text;
-    }
-
-    @Override
-    public String toString(boolean compact, int nesting) {
-        return toString(nesting);
+    public void write(CssWriter out, boolean compact, int nesting) throws IOException {
+        out.indent(nesting).append(text);
     }
 }
@@ -1,5 +1,6 @@
 package com.silentmatt.dss.css;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -24,73 +25,61 @@ public class CssMediaDirective extends CssRule {
         return rules;
     }
 
-    @Override
-    public String toString() {
-        return toString(0);
-    }
-
     public void addRule(CssRule rule) {
         this.rules.add(rule);
     }
 
     @Override
-    public String toString(int nesting) {
-        String start = CssRule.getIndent(nesting);
-        StringBuilder txt = new StringBuilder(start);
-        txt.append("@media ");
+    public void write(CssWriter out, int nesting) throws IOException {
+        out.indent(nesting).append("@media ");
 
         boolean first = true;
         for (CssMediaQuery m : mediums) {
             if (first) {
                 first = false;
             } else {
-                txt.append(", ");
+                out.append(", ");
             }
-            txt.append(m.toString());
+            out.append(m);
         }
-        txt.append(" {\n");
+        out.append(" {\n");
 
         for (CssRule rule : rules) {
-            String ruleString = rule.toString(nesting + 1);
-            if (ruleString.length() > 0) {
-                txt.append(ruleString);
-                txt.append("\n");
+            long before = out.getCount();
+            rule.write(out, nesting + 1);
+            if (out.getCount() != before) {
+                out.append('\n');
             }
         }
 
-        txt.append(start).append("}");
-        return txt.toString();
+        out.indent(nesting).append('}');
     }
 
     @Override
-    public String toString(boolean compact, int nesting) {
+    public void write(CssWriter out, boolean compact, int nesting) throws IOException {
         if (!compact) {
-            return toString(nesting);
+            write(out, nesting);
+            return;
         }
 
-        StringBuilder txt = new StringBuilder();
-        txt.append("@media");
+        out.append("@media");
 
         boolean first = true;
         for (CssMediaQuery m : mediums) {
             if (first) {
                 first = false;
-                txt.append(' ');
+                out.append(' ');
             } else {
-                txt.append(',');
+                out.append(',');
             }
-            txt.append(m.toString());
+            out.append(m);
         }
-        txt.append('{');
+        out.append('{');
 
         for (CssRule rule : rules) {
-            String ruleString = rule.toString(compact, nesting);
-            if (ruleString.length() > 0) {
-                txt.append(ruleString);
-            }
+            rule.write(out, compact, nesting);
         }
 
-        txt.append('}');
-        return txt.toString();
+        out.append('}');
     }
 }
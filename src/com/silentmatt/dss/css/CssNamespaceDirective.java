@@ -1,5 +1,7 @@
 package com.silentmatt.dss.css;
 
+import java.io.IOException;
+
 /**
  * @todo Why does this extend ExpressionDirective?
  * @author Matthew Crumley
@@ -18,7 +20,12 @@ public class CssNamespaceDirective extends CssExpressionDirective {
     }
 
     @Override
-    public String toString() {
-        return "@namespace " + (prefix != null ? (prefix + " ") : "") + getExpression().toString() + ";";
+    protected void writeDirective(CssWriter out) throws IOException {
+        out.append("@namespace ");
+        if (prefix != null) {
+            out.append(prefix).append(' ');
+        }
+        getExpression().write(out, false);
+        out.append(';');
     }
 }
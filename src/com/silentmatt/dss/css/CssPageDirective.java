@@ -1,5 +1,6 @@
 package com.silentmatt.dss.css;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -24,23 +25,22 @@ public class CssPageDirective extends CssDeclarationDirective {
     }
 
     @Override
-    public String toString(int nesting) {
-        return toString(false, nesting);
+    public void write(CssWriter out, int nesting) throws IOException {
+        write(out, false, nesting);
     }
 
     @Override
-    public String toString(boolean compact, int nesting) {
-        String start = CssRule.getIndent(nesting);
-        StringBuilder txt = new StringBuilder(start).append("@page");
+    public void write(CssWriter out, boolean compact, int nesting) throws IOException {
+        out.indent(nesting).append("@page");
         if (selector != null && selector.getPseudo() != null) {
-            txt.append(' ').append(selector.toString(compact));
+            out.append(' ');
+            selector.write(out, compact);
         }
 
         if (!compact) {
-            txt.append(' ');
+            out.append(' ');
         }
 
-        txt.append(getDeclarationsString(compact, nesting));
-        return txt.toString();
+        writeDeclarations(out, compact, nesting);
     }
 }
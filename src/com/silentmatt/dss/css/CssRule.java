@@ -1,5 +1,6 @@
 package com.silentmatt.dss.css;
 
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -7,10 +8,53 @@ import java.util.Arrays;
  * @author Matthew Crumley
  */
 public abstract class CssRule {
+    /**
+     * Writes the rule to a {@link CssWriter}.
+     *
+     * @param out The destination.
+     * @param compact true to omit unnecessary whitespace.
+     * @param nesting The indentation level.
+     * @throws IOException if the writer throws an IOException.
+     */
+    public abstract void write(CssWriter out, boolean compact, int nesting) throws IOException;
+
+    /**
+     * Writes the rule, in its normal form, to a {@link CssWriter}.
+     *
+     * @param out The destination.
+     * @param nesting The indentation level.
+     * @throws IOException if the writer throws an IOException.
+     */
+    public void write(CssWriter out, int nesting) throws IOException {
+        write(out, false, nesting);
+    }
+
     @Override
-    public abstract String toString();
-    public abstract String toString(int nesting);
-    public abstract String toString(boolean compact, int nesting);
+    public String toString() {
+        return toString(0);
+    }
+
+    public String toString(int nesting) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            write(new CssWriter(sb), nesting);
+        } catch (IOException ex) {
+            // Can't happen, since StringBuilder doesn't throw
+            throw new AssertionError(ex);
+        }
+        return sb.toString();
+    }
+
+    public String toString(boolean compact, int nesting) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            write(new CssWriter(sb), compact, nesting);
+        } catch (IOException ex) {
+            // Can't happen, since StringBuilder doesn't throw
+            throw new AssertionError(ex);
+        }
+        return sb.toString();
+    }
 
     protected static String getIndent(int nesting) {
         char[] chars = new char[nesting];
@@ -1,5 +1,6 @@
 package com.silentmatt.dss.css;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -26,35 +27,32 @@ public class CssRuleList extends CssRule {
     }
 
     @Override
-    public String toString() {
-        return toString(0);
-    }
-
-    @Override
-    public String toString(int nesting) {
-        StringBuilder sb = new StringBuilder();
+    public void write(CssWriter out, int nesting) throws IOException {
+        boolean first = true;
         for (CssRule r : rules) {
-            String toAppend = r.toString(nesting);
-            if (toAppend.length() > 0) {
-                sb.append('\n').append(toAppend);
+            if (!first) {
+                out.deferSeparator("\n");
+            }
+            long before = out.getCount();
+            r.write(out, nesting);
+            if (out.getCount() != before) {
+                first = false;
+            }
+            else if (!first) {
+                out.cancelSeparator();
             }
         }
-        return sb.length() > 0 ? sb.substring(1) : "";
     }
 
     @Override
-    public String toString(boolean compact, int nesting) {
+    public void write(CssWriter out, boolean compact, int nesting) throws IOException {
         if (!compact) {
-            return toString(nesting);
+            write(out, nesting);
+            return;
         }
 
-        StringBuilder sb = new StringBuilder();
         for (CssRule r : rules) {
-            String toAppend = r.toString(compact, nesting);
-            if (toAppend.length() > 0) {
-                sb.append(toAppend);
-            }
+            r.write(out, compact, nesting);
         }
-        return sb.toString();
     }
 }
@@ -1,5 +1,6 @@
 package com.silentmatt.dss.css;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -44,69 +45,55 @@ public class CssRuleSet extends CssRule {
     }
 
     @Override
-    public String toString() {
-        return toString(0);
-    }
-
-    @Override
-    public String toString(int nesting) {
-        return toString(false, nesting);
-    }
-
-    @Override
-    public String toString(boolean compact, int nesting) {
+    public void write(CssWriter out, boolean compact, int nesting) throws IOException {
         if (declarations.isEmpty()) {
-            return "";
+            return;
         }
-        String start = CssRule.getIndent(nesting);
 
-        StringBuilder txt = new StringBuilder();
         boolean first = true;
         for (CssSelector sel : selectors) {
             if (first) {
                 first = false;
                 if (!compact) {
-                    txt.append(start);
+                    out.indent(nesting);
                 }
             }
             else {
-                txt.append(',');
+                out.append(',');
                 if (!compact) {
-                    txt.append(' ');
+                    out.append(' ');
                 }
             }
-            txt.append(sel.toString(compact));
+            sel.write(out, compact);
         }
 
-        txt.append(compact ? "{" : " {");
+        out.append(compact ? "{" : " {");
 
         for (CssRule dir : rules) {
-            String dirString = dir.toString(compact, nesting + 1);
-            if (dirString.length() > 0) {
-                if (!compact) {
-                    txt.append("\n\t").append(start);
-                }
-                txt.append(dirString);
+            if (!compact) {
+                out.deferSeparator("\n\t" + CssRule.getIndent(nesting));
+            }
+            dir.write(out, compact, nesting + 1);
+            if (!compact) {
+                out.cancelSeparator();
             }
         }
 
         int count = 0;
         for (CssDeclaration dec : declarations) {
             if (!compact) {
-                txt.append("\n\t").append(start);
+                out.append('\n').indent(nesting + 1);
             }
-            txt.append(dec.toString(compact));
+            dec.write(out, compact);
             ++count;
             if (!compact || count < declarations.size()) {
-                txt.append(";");
+                out.append(';');
             }
         }
 
         if (!compact) {
-            txt.append("\n").append(start);
+            out.append('\n').indent(nesting);
         }
-        txt.append("}");
-
-        return txt.toString();
+        out.append('}');
     }
 }
@@ -1,5 +1,6 @@
 package com.silentmatt.dss.css;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -20,23 +21,30 @@ public class CssSelector {
 
     @Override
     public String toString() {
-        StringBuilder txt = new StringBuilder();
-
-        for (CssSimpleSelector ss : simpleSelectors) {
-            txt.append(ss.toString());
-        }
-        return txt.toString();
+        return toString(false);
     }
 
     public String toString(boolean compact) {
-        if (!compact) {
-            return toString();
+        StringBuilder sb = new StringBuilder();
+        try {
+            write(new CssWriter(sb), compact);
+        } catch (IOException ex) {
+            // Can't happen, since StringBuilder doesn't throw
+            throw new AssertionError(ex);
         }
+        return sb.toString();
+    }
 
-        StringBuilder txt = new StringBuilder();
+    /**
+     * Writes the selector.
+     *
+     * @param out The destination.
+     * @param compact true to omit unnecessary whitespace.
+     * @throws IOException if the writer throws an IOException.
+     */
+    public void write(CssWriter out, boolean compact) throws IOException {
         for (CssSimpleSelector ss : simpleSelectors) {
-            txt.append(ss.toString(compact));
+            ss.write(out, compact);
         }
-        return txt.toString();
     }
 }
@@ -1,5 +1,7 @@
 package com.silentmatt.dss.css;
 
+import java.io.IOException;
+
 /**
  *
  * @author Matthew Crumley
@@ -76,16 +78,32 @@ public class CssSimpleSelector {
     }
 
     public String toString(boolean compact) {
-        StringBuilder txt = new StringBuilder();
-        txt.append(compact ? combinator.toCompactString() : combinator.toString());
-        if (elementName != null) { txt.append(elementName); }
-        if (id != null) { txt.append("#").append(id); }
-        if (className != null) { txt.append(".").append(className); }
-        if (pseudo != null) { txt.append(":").append(pseudo); }
-        if (attribute != null) { txt.append(attribute); }
+        StringBuilder sb = new StringBuilder();
+        try {
+            write(new CssWriter(sb), compact);
+        } catch (IOException ex) {
+            // Can't happen, since StringBuilder doesn't throw
+            throw new AssertionError(ex);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the simple selector, including its combinator.
+     *
+     * @param out The destination.
+     * @param compact true to omit unnecessary whitespace.
+     * @throws IOException if the writer throws an IOException.
+     */
+    public void write(CssWriter out, boolean compact) throws IOException {
+        out.append(compact ? combinator.toCompactString() : combinator.toString());
+        if (elementName != null) { out.append(elementName); }
+        if (id != null) { out.append('#').append(id); }
+        if (className != null) { out.append('.').append(className); }
+        if (pseudo != null) { out.append(':').append(pseudo); }
+        if (attribute != null) { out.append(attribute); }
         if (child != null) {
-            txt.append(child.toString(compact));
+            child.write(out, compact);
         }
-        return txt.toString();
     }
 }
@@ -0,0 +1,145 @@
+package com.silentmatt.dss.css;
+
+import com.google.common.base.Charsets;
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+
+/**
+ * Streams CSS text to an {@link Appendable}.
+ *
+ * Rules write themselves directly to a CssWriter, so a document can be sent to
+ * a file or socket without building the whole stylesheet as a String first.
+ *
+ * Separators between rules are deferred until something is actually written,
+ * so rules that turn out to produce no output don't leave blank lines.
+ *
+ * @author Matthew Crumley
+ */
+public class CssWriter implements Appendable, Flushable {
+    private final Appendable out;
+    private long count = 0;
+    private String separator = null;
+
+    /**
+     * Constructs a CssWriter that appends to an {@link Appendable}, such as a
+     * {@link StringBuilder} or {@link java.io.Writer}.
+     *
+     * @param out The destination.
+     */
+    public CssWriter(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * Constructs a buffered CssWriter that encodes its output as UTF-8.
+     *
+     * {@link #flush()} must be called after writing.
+     *
+     * @param out The destination.
+     */
+    public CssWriter(OutputStream out) {
+        this(new BufferedWriter(new OutputStreamWriter(out, Charsets.UTF_8)));
+    }
+
+    /**
+     * Gets the number of characters written so far.
+     *
+     * @return The number of characters written, including separators.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Writes a separator before the next character, if there is one.
+     *
+     * @param separator The text to write.
+     */
+    public void deferSeparator(String separator) {
+        this.separator = separator;
+    }
+
+    /**
+     * Discards a separator that hasn't been written yet.
+     */
+    public void cancelSeparator() {
+        this.separator = null;
+    }
+
+    /**
+     * Writes one tab character for each nesting level.
+     *
+     * @param nesting The nesting level.
+     * @return this
+     * @throws IOException if the destination throws an IOException.
+     */
+    public CssWriter indent(int nesting) throws IOException {
+        if (nesting > 0) {
+            writeSeparator();
+            for (int i = 0; i < nesting; i++) {
+                out.append('\t');
+            }
+            count += nesting;
+        }
+        return this;
+    }
+
+    @Override
+    public CssWriter append(CharSequence csq) throws IOException {
+        if (csq == null) {
+            csq = "null";
+        }
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public CssWriter append(CharSequence csq, int start, int end) throws IOException {
+        if (csq == null) {
+            csq = "null";
+        }
+        if (end > start) {
+            writeSeparator();
+            out.append(csq, start, end);
+            count += end - start;
+        }
+        return this;
+    }
+
+    @Override
+    public CssWriter append(char c) throws IOException {
+        writeSeparator();
+        out.append(c);
+        count++;
+        return this;
+    }
+
+    /**
+     * Appends the string representation of an object.
+     *
+     * @param value The object to write.
+     * @return this
+     * @throws IOException if the destination throws an IOException.
+     */
+    public CssWriter append(Object value) throws IOException {
+        return append(String.valueOf(value));
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+    }
+
+    private void writeSeparator() throws IOException {
+        if (separator != null) {
+            String s = separator;
+            separator = null;
+            out.append(s);
+            count += s.length();
+        }
+    }
+}
@@ -200,6 +200,9 @@ public final class Declaration implements Map.Entry<String, Expression> {
 
     public Declaration substituteValues(EvaluationState state, DeclarationList container, boolean withParams, boolean doCalculations) {
         Expression newValue = getExpression().substituteValues(state, container, withParams, doCalculations);
+        if (newValue == getExpression()) {
+            return this;
+        }
         return new Declaration(getName(), newValue, important, condition);
     }
 
@@ -3,6 +3,7 @@ package com.silentmatt.dss.declaration;
 import com.google.common.collect.ImmutableList;
 import com.silentmatt.dss.Immutable;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
@@ -13,12 +14,38 @@ import java.util.Map;
  *
  * If you need an actual List or Map, call {@link #asMap()} to get a Map view.
  *
+ * Names are case-insensitive. Lookups in long lists use an index that is
+ * built the first time it's needed, so looking up every property in a large
+ * block doesn't take quadratic time.
+ *
  * @author Matthew Crumley
  */
 @Immutable
 public final class DeclarationList implements Iterable<Declaration> {
+    /**
+     * Lists with more declarations than this are indexed instead of searched.
+     */
+    private static final int INDEX_THRESHOLD = 8;
+
+    private static final class IndexEntry {
+        final Declaration first;
+        Declaration winner;
+
+        IndexEntry(Declaration declaration) {
+            this.first = declaration;
+            this.winner = declaration;
+        }
+    }
+
     private final ImmutableList<Declaration> list;
 
+    /**
+     * Maps normalized names to their declarations. It's built on demand, and
+     * since it only depends on the immutable list, it's safe for threads to
+     * race to build it.
+     */
+    private volatile Map<String, IndexEntry> index = null;
+
     public static final DeclarationList EMPTY = new DeclarationList(ImmutableList.copyOf(new Declaration[0]));
 
     /**
@@ -77,6 +104,9 @@ public final class DeclarationList implements Iterable<Declaration> {
 
     // Map methods
     public boolean containsKey(String key) {
+        if (list.size() > INDEX_THRESHOLD) {
+            return getIndex().containsKey(normalize(key));
+        }
         for (Declaration declaration : list) {
             if (matches(declaration, key)) {
                 return true;
@@ -98,6 +128,54 @@ public final class DeclarationList implements Iterable<Declaration> {
         return declaration.getName().equalsIgnoreCase(name);
     }
 
+    /**
+     * Converts a name to a form that's equal for any two names that match
+     * with {@link String#equalsIgnoreCase}.
+     *
+     * @param name The name to normalize.
+     *
+     * @return The normalized name. Lower-case ASCII names are returned as-is.
+     */
+    static String normalize(String name) {
+        int i = 0;
+        while (i < name.length()) {
+            char c = name.charAt(i);
+            if (c >= 0x80 || (c >= 'A' && c <= 'Z')) {
+                break;
+            }
+            ++i;
+        }
+        if (i == name.length()) {
+            return name;
+        }
+
+        // This is the same comparison equalsIgnoreCase does for each character
+        char[] chars = name.toCharArray();
+        for (; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    private Map<String, IndexEntry> getIndex() {
+        Map<String, IndexEntry> result = index;
+        if (result == null) {
+            result = new HashMap<>();
+            for (Declaration declaration : list) {
+                String key = normalize(declaration.getName());
+                IndexEntry entry = result.get(key);
+                if (entry == null) {
+                    result.put(key, new IndexEntry(declaration));
+                }
+                else if (declaration.isImportant() || !entry.winner.isImportant()) {
+                    entry.winner = declaration;
+                }
+            }
+            index = result;
+        }
+        return result;
+    }
+
     @Deprecated
     public ImmutableList<Declaration> getAllDeclarations(String name) {
         ImmutableList.Builder<Declaration> all = ImmutableList.builder();
@@ -111,7 +189,22 @@ public final class DeclarationList implements Iterable<Declaration> {
         return all.build();
     }
 
+    /**
+     * Gets the declaration that sets a property.
+     *
+     * That's the last <code>!important</code> declaration with the name, or
+     * the last declaration if none of them are important.
+     *
+     * @param name The property name, which is case-insensitive.
+     *
+     * @return The {@link Declaration}, or null if there isn't one.
+     */
     public Declaration getDeclaration(String name) {
+        if (list.size() > INDEX_THRESHOLD) {
+            IndexEntry entry = getIndex().get(normalize(name));
+            return entry != null ? entry.winner : null;
+        }
+
         Declaration found = null;
 
         ListIterator<Declaration> it = list.listIterator(list.size());
@@ -131,6 +224,27 @@ public final class DeclarationList implements Iterable<Declaration> {
         return found;
     }
 
+    /**
+     * Gets the first declaration with a name.
+     *
+     * @param name The property name, which is case-insensitive.
+     *
+     * @return The first matching {@link Declaration}, or null if there isn't one.
+     */
+    public Declaration getFirstDeclaration(String name) {
+        if (list.size() > INDEX_THRESHOLD) {
+            IndexEntry entry = getIndex().get(normalize(name));
+            return entry != null ? entry.first : null;
+        }
+
+        for (Declaration declaration : list) {
+            if (matches(declaration, name)) {
+                return declaration;
+            }
+        }
+        return null;
+    }
+
     public Expression get(String name) {
         Declaration declaration = getDeclaration(name);
         return declaration != null ? declaration.getExpression() : null;
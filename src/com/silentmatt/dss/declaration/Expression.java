@@ -56,6 +56,11 @@ public final class Expression {
 
     private final ImmutableList<Term> terms;
 
+    /**
+     * Whether any of the terms could be changed by substitution.
+     */
+    private final boolean needsSubstitution;
+
     /**
      * Constructs an Expression containing a single Term.
      *
@@ -65,6 +70,7 @@ public final class Expression {
      */
     public Expression(Term term) {
         terms = ImmutableList.of(term);
+        needsSubstitution = term.needsSubstitution();
     }
 
     /**
@@ -74,6 +80,16 @@ public final class Expression {
      */
     public Expression(ImmutableList<Term> terms) {
         this.terms = terms;
+        this.needsSubstitution = needsSubstitution(terms);
+    }
+
+    private static boolean needsSubstitution(List<Term> terms) {
+        for (Term term : terms) {
+            if (term.needsSubstitution()) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -113,6 +129,17 @@ public final class Expression {
         return txt.toString();
     }
 
+    /**
+     * Checks whether substituting values could change the expression.
+     *
+     * @return <code>true</code> if any term needs substitution.
+     *
+     * @see Term#needsSubstitution()
+     */
+    public boolean needsSubstitution() {
+        return needsSubstitution;
+    }
+
     /**
      * Substitutes the values of DSS-specific terms into the expression.
      *
@@ -120,24 +147,39 @@ public final class Expression {
      * @param container The {@link DeclarationList} that the expression is contained in.
      * @param withParams true if param terms should be substituted.
      * @param doCalculations true if calc terms should be substituted.
-     * @return
+     * @return The substituted expression, or <code>this</code> if nothing changed.
      */
     public Expression substituteValues(EvaluationState state, DeclarationList container, boolean withParams, boolean doCalculations) {
+        if (!needsSubstitution) {
+            return this;
+        }
+
         Expression.Builder newValue = new Expression.Builder();
+        boolean changed = false;
 
         for (Term primitiveValue : getTerms()) {
+            if (!primitiveValue.needsSubstitution()) {
+                newValue.addTerm(primitiveValue);
+                continue;
+            }
+
             Expression sub = primitiveValue.substituteValues(state, container, withParams, doCalculations);
             if (sub != null) {
-                for (Term t : sub.getTerms()) {
+                List<Term> subTerms = sub.getTerms();
+                if (subTerms.size() != 1 || subTerms.get(0) != primitiveValue) {
+                    changed = true;
+                }
+                for (Term t : subTerms) {
                     newValue.addTerm(t);
                 }
             }
             else {
+                changed = true;
                 state.getErrors().semanticError("Error evaluating '" + primitiveValue + "'");
             }
         }
 
-        return newValue.build();
+        return changed ? newValue.build() : this;
     }
 
     /**
@@ -6,7 +6,6 @@ import com.silentmatt.dss.css.CssRule;
 import com.silentmatt.dss.declaration.Declaration;
 import com.silentmatt.dss.declaration.DeclarationList;
 import com.silentmatt.dss.evaluator.EvaluationState;
-import com.silentmatt.dss.evaluator.Scope;
 import com.silentmatt.dss.rule.DeclarationBlock;
 import com.silentmatt.dss.rule.NestedRuleSet;
 import com.silentmatt.dss.rule.Rule;
@@ -48,6 +47,24 @@ public class ClassDirective extends Rule {
         return className;
     }
 
+    /**
+     * Gets the declared parameters and their default values.
+     *
+     * @return The declared parameters and their default values.
+     */
+    public DeclarationList getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Gets the class body.
+     *
+     * @return The class body.
+     */
+    public DeclarationBlock getDeclarationBlock() {
+        return declarationBlock;
+    }
+
     public DeclarationList getParameters(DeclarationList arguments) {
         return parameters;
     }
@@ -131,14 +148,9 @@ public class ClassDirective extends Rule {
             state.popScope();
         }
 
-        Scope<ClassDirective> scope = state.getClasses();
-        if (isGlobal()) {
-            scope = scope.getGlobalScope();
-        }
-
         if (newBlock != null) {
             // XXX: Do we really need to create a new instance here?
-            scope.declare(className, new ClassDirective(className, parameters, global, newBlock.getDeclarations(), nested.build(), getRules()));
+            state.declareClass(className, new ClassDirective(className, parameters, global, newBlock.getDeclarations(), nested.build(), getRules()), isGlobal());
         }
         else {
             throw new RuntimeException("Error evaluating class " + className);
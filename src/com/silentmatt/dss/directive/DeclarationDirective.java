@@ -30,12 +30,7 @@ public abstract class DeclarationDirective extends Rule {
     }
 
     public Declaration getDeclaration(String name) {
-        for (Declaration d : declarations.getDeclarations()) {
-            if (d.getName().equalsIgnoreCase(name)) {
-                return d;
-            }
-        }
-        return null;
+        return declarations.getDeclarations().getFirstDeclaration(name);
     }
 
     public String getDeclarationsString(int nesting) {
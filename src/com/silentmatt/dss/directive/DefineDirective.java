@@ -5,9 +5,7 @@ import com.silentmatt.dss.bool.BooleanExpression;
 import com.silentmatt.dss.css.CssRule;
 import com.silentmatt.dss.declaration.Declaration;
 import com.silentmatt.dss.declaration.DeclarationList;
-import com.silentmatt.dss.declaration.Expression;
 import com.silentmatt.dss.evaluator.EvaluationState;
-import com.silentmatt.dss.evaluator.Scope;
 import com.silentmatt.dss.rule.Rule;
 import java.io.IOException;
 import java.util.List;
@@ -41,6 +39,10 @@ public final class DefineDirective extends DeclarationDirective {
         return global;
     }
 
+    public BooleanExpression getCondition() {
+        return condition;
+    }
+
     @Override
     public CssRule evaluate(EvaluationState state, List<Rule> container) throws IOException {
         Boolean cond = condition.evaluate(state);
@@ -48,13 +50,8 @@ public final class DefineDirective extends DeclarationDirective {
             return null;
         }
 
-        Scope<Expression> scope = state.getVariables();
-        if (isGlobal()) {
-            scope = scope.getGlobalScope();
-        }
-
         for (Declaration declaration : getDeclarationBlock().getDeclarations()) {
-            scope.declare(declaration.getName(), declaration.getExpression());
+            state.declareVariable(declaration.getName(), declaration.getExpression(), isGlobal());
         }
 
         return null;
@@ -83,6 +83,14 @@ public final class GenericDirective extends Rule {
         return declarations.getDeclarations();
     }
 
+    public DeclarationBlock getDeclarationBlock() {
+        return declarations;
+    }
+
+    public ImmutableList<Rule> getRules() {
+        return rules;
+    }
+
     @Override
     public String toString() {
         return toString(0);
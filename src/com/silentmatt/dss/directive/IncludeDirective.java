@@ -10,6 +10,7 @@ import com.silentmatt.dss.declaration.Declaration;
 import com.silentmatt.dss.declaration.DeclarationList;
 import com.silentmatt.dss.declaration.Expression;
 import com.silentmatt.dss.evaluator.EvaluationState;
+import com.silentmatt.dss.events.Events;
 import com.silentmatt.dss.rule.DeclarationBlock;
 import com.silentmatt.dss.rule.Rule;
 import com.silentmatt.dss.rule.RuleSet;
@@ -53,6 +54,10 @@ public class IncludeDirective extends ExpressionDirective {
         return literal;
     }
 
+    public DeclarationList getParameters() {
+        return parameters;
+    }
+
     @Override
     public String toString(int nesting) {
         String start = Rule.getIndent(nesting);
@@ -83,14 +88,28 @@ public class IncludeDirective extends ExpressionDirective {
 
     @Override
     public CssRule evaluate(EvaluationState state, List<Rule> container) throws IOException {
-        CssRule result = null;
         URL url = new URL(state.getBaseURL(), this.getURLString());
+        state.addDependency(url);
 
-        if (literal) {
-            return evaluateLiteral(state, url);
+        Events.Span span = Events.include(url, literal);
+        try {
+            if (literal) {
+                return evaluateLiteral(state, url);
+            }
+            return evaluateDocument(state, url);
+        }
+        finally {
+            span.end();
         }
+    }
 
-        DSSDocument includedDocument = DSSDocument.parse(state.getResourceLocator().openResource(url), state.getErrors());
+    private CssRule evaluateDocument(EvaluationState state, URL url) throws IOException {
+        CssRule result = null;
+        long start = System.nanoTime();
+        DSSDocument includedDocument = state.getParseCache().parse(state.getResourceLocator(), url, state.getErrors());
+        if (state.getStatistics() != null) {
+            state.getStatistics().addInclude(System.nanoTime() - start);
+        }
         if (includedDocument != null) {
             state.pushBaseURL(url, Rule.getRuleSets(includedDocument.getRules()));
             try {
@@ -119,7 +138,11 @@ public class IncludeDirective extends ExpressionDirective {
     }
 
     private CssRule evaluateLiteral(EvaluationState state, URL url) throws IOException {
+        long start = System.nanoTime();
         CssRule result = new CssLiteralText(convertStreamToString(state.getResourceLocator().openResource(url)));
+        if (state.getStatistics() != null) {
+            state.getStatistics().addInclude(System.nanoTime() - start);
+        }
         if (state.getIncludeCallback() != null) {
             state.getIncludeCallback().call(url);
         }
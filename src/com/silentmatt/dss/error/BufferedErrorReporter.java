@@ -0,0 +1,64 @@
+package com.silentmatt.dss.error;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@link ErrorReporter} that holds on to errors and warnings, so they can
+ * be passed on to another ErrorReporter later, in the order they were reported.
+ *
+ * @author Matthew Crumley
+ */
+public class BufferedErrorReporter extends AbstractErrorReporter {
+    private final List<Message> messages = new ArrayList<>();
+    private final List<Boolean> isError = new ArrayList<>();
+    private int errorCount = 0;
+
+    @Override
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    @Override
+    public int getWarningCount() {
+        return messages.size() - errorCount;
+    }
+
+    @Override
+    public void addError(Message msg) {
+        messages.add(msg);
+        isError.add(true);
+        ++errorCount;
+    }
+
+    @Override
+    public void addWarning(Message msg) {
+        messages.add(msg);
+        isError.add(false);
+    }
+
+    /**
+     * Reports each of the buffered messages to another ErrorReporter.
+     *
+     * @param target The ErrorReporter to pass the messages on to.
+     */
+    public void replay(ErrorReporter target) {
+        for (int i = 0; i < messages.size(); i++) {
+            if (isError.get(i)) {
+                target.addError(messages.get(i));
+            }
+            else {
+                target.addWarning(messages.get(i));
+            }
+        }
+    }
+
+    /**
+     * Removes all of the buffered messages.
+     */
+    public void clear() {
+        messages.clear();
+        isError.clear();
+        errorCount = 0;
+    }
+}
@@ -38,7 +38,7 @@ public class ListErrorReporter extends AbstractErrorReporter {
      * @return a {@link List} of warning messages.
      */
     public List<Message> getWarnings() {
-        return errors;
+        return warnings;
     }
 
     @Override
@@ -0,0 +1,286 @@
+package com.silentmatt.dss.evaluator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.MapMaker;
+import com.silentmatt.dss.bool.BooleanExpression;
+import com.silentmatt.dss.declaration.Declaration;
+import com.silentmatt.dss.declaration.DeclarationList;
+import com.silentmatt.dss.declaration.Expression;
+import com.silentmatt.dss.directive.ClassDirective;
+import com.silentmatt.dss.rule.DeclarationBlock;
+import com.silentmatt.dss.rule.NestedRuleSet;
+import com.silentmatt.dss.term.FunctionTerm;
+import com.silentmatt.dss.term.HexTerm;
+import com.silentmatt.dss.term.NumberTerm;
+import com.silentmatt.dss.term.StringTerm;
+import com.silentmatt.dss.term.Term;
+import com.silentmatt.dss.term.UnicodeTerm;
+import com.silentmatt.dss.term.UrlTerm;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the result of applying a class with a set of arguments, so
+ * applying it again with the same arguments doesn't have to substitute
+ * everything again.
+ *
+ * Expansions are keyed by the {@link ClassDirective} object and the values of
+ * the arguments. A class can only be cached if its properties depend on
+ * nothing but its own parameters, and the arguments don't contain any
+ * references. Expansions that report errors or warnings aren't cached, so the
+ * messages are reported every time the class is applied.
+ *
+ * The cache is thread-safe, and keeps track of how often it was used.
+ *
+ * @author Matthew Crumley
+ */
+public final class ClassExpansionCache {
+    /**
+     * The properties and nested rule sets from applying a class.
+     */
+    public static final class Expansion {
+        private final ImmutableList<Declaration> declarations;
+        private final ImmutableList<NestedRuleSet> nestedRuleSets;
+
+        public Expansion(List<Declaration> declarations, List<NestedRuleSet> nestedRuleSets) {
+            this.declarations = ImmutableList.copyOf(declarations);
+            this.nestedRuleSets = ImmutableList.copyOf(nestedRuleSets);
+        }
+
+        public ImmutableList<Declaration> getDeclarations() {
+            return declarations;
+        }
+
+        public ImmutableList<NestedRuleSet> getNestedRuleSets() {
+            return nestedRuleSets;
+        }
+    }
+
+    /**
+     * Identifies an application of a class.
+     */
+    public static final class Key {
+        private final ClassEntry entry;
+        private final List<Object> arguments;
+
+        private Key(ClassEntry entry, List<Object> arguments) {
+            this.entry = entry;
+            this.arguments = arguments;
+        }
+    }
+
+    private static final class ClassEntry {
+        final boolean cacheable;
+        final ConcurrentMap<List<Object>, Expansion> expansions = new ConcurrentHashMap<>();
+
+        ClassEntry(boolean cacheable) {
+            this.cacheable = cacheable;
+        }
+    }
+
+    private final ConcurrentMap<ClassDirective, ClassEntry> classes = new MapMaker().weakKeys().makeMap();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong uncached = new AtomicLong();
+
+    /**
+     * Gets the key for applying a class with a list of arguments.
+     *
+     * @param clazz The class being applied.
+     * @param arguments The arguments to the class.
+     *
+     * @return The key, or <code>null</code> if the application can't be cached.
+     */
+    public Key getKey(ClassDirective clazz, DeclarationList arguments) {
+        ClassEntry entry = classes.get(clazz);
+        if (entry == null) {
+            entry = new ClassEntry(isCacheable(clazz));
+            ClassEntry existing = classes.putIfAbsent(clazz, entry);
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+
+        List<Object> argumentKey = entry.cacheable ? argumentKey(arguments) : null;
+        if (argumentKey == null) {
+            uncached.incrementAndGet();
+            return null;
+        }
+        return new Key(entry, argumentKey);
+    }
+
+    /**
+     * Gets a previous expansion.
+     *
+     * @param key The key from {@link #getKey}.
+     *
+     * @return The expansion, or <code>null</code> if it hasn't been cached yet.
+     */
+    public Expansion get(Key key) {
+        Expansion expansion = key.entry.expansions.get(key.arguments);
+        if (expansion != null) {
+            hits.incrementAndGet();
+        }
+        else {
+            misses.incrementAndGet();
+        }
+        return expansion;
+    }
+
+    /**
+     * Remembers an expansion.
+     *
+     * @param key The key from {@link #getKey}.
+     * @param expansion The result of applying the class.
+     */
+    public void put(Key key, Expansion expansion) {
+        key.entry.expansions.putIfAbsent(key.arguments, expansion);
+    }
+
+    /**
+     * Gets the number of times a class was applied using a cached expansion.
+     *
+     * @return The number of cache hits.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of times a cacheable class application had to be expanded.
+     *
+     * @return The number of cache misses.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of times a class was applied in a way that can't be cached.
+     *
+     * @return The number of class applications that bypassed the cache.
+     */
+    public long getUncachedCount() {
+        return uncached.get();
+    }
+
+    /**
+     * Gets the fraction of class applications that used a cached expansion.
+     *
+     * @return The hit rate, from 0 to 1, or 0 if no classes have been applied.
+     */
+    public double getHitRate() {
+        long total = getHitCount() + getMissCount() + getUncachedCount();
+        return total == 0 ? 0 : (double) getHitCount() / total;
+    }
+
+    private static boolean isCacheable(ClassDirective clazz) {
+        // Rule set classes are looked up again each time they're applied
+        if (clazz.getClass() != ClassDirective.class) {
+            return false;
+        }
+
+        Set<String> parameters = new HashSet<>();
+        for (Declaration parameter : clazz.getParameters()) {
+            if (!ConstantCache.isConstant(parameter.getExpression())) {
+                return false;
+            }
+            parameters.add(parameter.getName());
+        }
+
+        for (Declaration declaration : clazz.getDeclarationBlock().getDeclarations()) {
+            if (declaration.getCondition() != BooleanExpression.TRUE || !ConstantCache.isConstant(declaration.getExpression(), parameters)) {
+                return false;
+            }
+        }
+        for (NestedRuleSet nested : clazz.getNestedRuleSets()) {
+            if (nested.getCondition() != BooleanExpression.TRUE || !isCacheable(nested.getDeclarationBlock(), parameters)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCacheable(DeclarationBlock block, Set<String> parameters) {
+        for (Declaration declaration : block.getDeclarations()) {
+            if (!ConstantCache.isConstant(declaration.getExpression(), parameters)) {
+                return false;
+            }
+        }
+        for (NestedRuleSet nested : block.getNestedRuleSets()) {
+            if (nested.getCondition() != BooleanExpression.TRUE || !isCacheable(nested.getDeclarationBlock(), parameters)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds a key that compares the exact values of a list of arguments.
+     *
+     * @return The key, or <code>null</code> if any of the arguments aren't
+     * simple values.
+     */
+    private static List<Object> argumentKey(DeclarationList arguments) {
+        List<Object> key = new ArrayList<>();
+        for (Declaration argument : arguments) {
+            key.add(argument.getName());
+            List<Object> value = valueKey(argument.getExpression());
+            if (value == null) {
+                return null;
+            }
+            key.add(value);
+        }
+        return key;
+    }
+
+    private static List<Object> valueKey(Expression value) {
+        List<Object> key = new ArrayList<>(value.getTerms().size());
+        for (Term term : value.getTerms()) {
+            List<Object> termKey = termKey(term);
+            if (termKey == null) {
+                return null;
+            }
+            key.add(termKey);
+        }
+        return key;
+    }
+
+    private static List<Object> termKey(Term term) {
+        Object value;
+        if (term instanceof NumberTerm) {
+            NumberTerm number = (NumberTerm) term;
+            value = Arrays.<Object>asList(number.getValue(), number.getUnit());
+        }
+        else if (term instanceof HexTerm) {
+            value = ((HexTerm) term).getValue();
+        }
+        else if (term instanceof StringTerm) {
+            value = ((StringTerm) term).getValue();
+        }
+        else if (term instanceof UrlTerm) {
+            value = ((UrlTerm) term).getValue();
+        }
+        else if (term instanceof UnicodeTerm) {
+            value = ((UnicodeTerm) term).getValue();
+        }
+        else if (term instanceof FunctionTerm) {
+            FunctionTerm function = (FunctionTerm) term;
+            List<Object> arguments = valueKey(function.getExpression());
+            if (arguments == null) {
+                return null;
+            }
+            value = Arrays.<Object>asList(function.getName(), arguments);
+        }
+        else {
+            return null;
+        }
+        return Arrays.<Object>asList(term.getClass(), term.getSeperator(), value);
+    }
+}
@@ -0,0 +1,363 @@
+package com.silentmatt.dss.evaluator;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts where the time goes while compiling a document.
+ *
+ * The caller times each phase of the compile (reading and parsing the
+ * document, evaluating it, and writing the output) with
+ * {@link #beginPhase} and {@link #endPhase}, which record the wall time and
+ * the memory allocated by the current thread. During evaluation, the
+ * {@link EvaluationState} counts the included documents and the time spent
+ * reading and parsing them, class applications and how many of them were
+ * found in the class expansion cache, nested rule sets, and calculations.
+ *
+ * The counters are thread-safe, so a parallel evaluation can share one
+ * CompileStatistics, but allocations on other threads aren't included in the
+ * phase that started them.
+ *
+ * @author Matthew Crumley
+ */
+public final class CompileStatistics {
+    /**
+     * The time and memory used by one phase of a compile.
+     */
+    public static final class Phase {
+        private final String name;
+        private final long nanos;
+        private final long allocatedBytes;
+
+        private Phase(String name, long nanos, long allocatedBytes) {
+            this.name = name;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        /**
+         * Gets the name of the phase.
+         *
+         * @return The phase name, like "parse" or "evaluate".
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the wall time of the phase.
+         *
+         * @return The elapsed time, in nanoseconds.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Gets the memory allocated by the thread that ran the phase.
+         *
+         * @return The number of bytes, or -1 if the JVM can't count them.
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+
+    private final URL url;
+    private final List<Phase> phases = new ArrayList<>();
+    private String currentPhase = null;
+    private long phaseStart;
+    private long phaseBytes;
+    private final AtomicLong includes = new AtomicLong();
+    private final AtomicLong includeNanos = new AtomicLong();
+    private final AtomicLong classApplications = new AtomicLong();
+    private final AtomicLong classCacheHits = new AtomicLong();
+    private final AtomicLong classCacheMisses = new AtomicLong();
+    private final AtomicLong nestedRuleSets = new AtomicLong();
+    private final AtomicLong calculations = new AtomicLong();
+    private final AtomicLong outputBytes = new AtomicLong(-1);
+
+    /**
+     * Constructs an empty CompileStatistics.
+     *
+     * @param url The URL of the document being compiled.
+     */
+    public CompileStatistics(URL url) {
+        this.url = url;
+    }
+
+    /**
+     * Gets the URL of the compiled document.
+     *
+     * @return The document's URL.
+     */
+    public URL getURL() {
+        return url;
+    }
+
+    /**
+     * Starts timing a phase, ending the current phase if there is one.
+     *
+     * @param name The name of the phase.
+     */
+    public synchronized void beginPhase(String name) {
+        endPhase();
+        currentPhase = name;
+        phaseBytes = currentThreadAllocatedBytes();
+        phaseStart = System.nanoTime();
+    }
+
+    /**
+     * Stops timing the current phase. Does nothing if no phase was started.
+     */
+    public synchronized void endPhase() {
+        if (currentPhase != null) {
+            long nanos = System.nanoTime() - phaseStart;
+            long bytes = currentThreadAllocatedBytes();
+            phases.add(new Phase(currentPhase, nanos, bytes < 0 || phaseBytes < 0 ? -1 : bytes - phaseBytes));
+            currentPhase = null;
+        }
+    }
+
+    /**
+     * Gets the phases that have been timed.
+     *
+     * @return The finished phases, in the order they were run.
+     */
+    public synchronized List<Phase> getPhases() {
+        return new ArrayList<>(phases);
+    }
+
+    /**
+     * Records an included document.
+     *
+     * @param nanos The time it took to read and parse the document, or get it
+     * from the parse cache.
+     */
+    public void addInclude(long nanos) {
+        includes.incrementAndGet();
+        includeNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Records that a class was applied to a block.
+     */
+    public void addClassApplication() {
+        classApplications.incrementAndGet();
+    }
+
+    /**
+     * Records that a class application used a cached expansion.
+     */
+    public void addClassCacheHit() {
+        classCacheHits.incrementAndGet();
+    }
+
+    /**
+     * Records that a cacheable class application had to be expanded.
+     */
+    public void addClassCacheMiss() {
+        classCacheMisses.incrementAndGet();
+    }
+
+    /**
+     * Records that a nested rule set was expanded into a top-level rule set.
+     */
+    public void addNestedRuleSet() {
+        nestedRuleSets.incrementAndGet();
+    }
+
+    /**
+     * Records that a calculation was evaluated.
+     */
+    public void addCalculation() {
+        calculations.incrementAndGet();
+    }
+
+    /**
+     * Sets the size of the output.
+     *
+     * @param bytes The number of bytes written.
+     */
+    public void setOutputBytes(long bytes) {
+        outputBytes.set(bytes);
+    }
+
+    /**
+     * Gets the number of included documents.
+     *
+     * @return The number of times an @include was evaluated.
+     */
+    public long getIncludeCount() {
+        return includes.get();
+    }
+
+    /**
+     * Gets the total time spent getting included documents.
+     *
+     * @return The time, in nanoseconds.
+     */
+    public long getIncludeNanos() {
+        return includeNanos.get();
+    }
+
+    /**
+     * Gets the number of class applications.
+     *
+     * @return The number of times a class was applied, including applications
+     * that used a cached expansion.
+     */
+    public long getClassApplicationCount() {
+        return classApplications.get();
+    }
+
+    /**
+     * Gets the number of class applications that used a cached expansion.
+     *
+     * @return The number of class expansion cache hits.
+     */
+    public long getClassCacheHitCount() {
+        return classCacheHits.get();
+    }
+
+    /**
+     * Gets the number of cacheable class applications that were expanded.
+     *
+     * @return The number of class expansion cache misses. Applications that
+     * can't be cached aren't counted.
+     */
+    public long getClassCacheMissCount() {
+        return classCacheMisses.get();
+    }
+
+    /**
+     * Gets the number of nested rule sets expanded.
+     *
+     * @return The number of nested rule sets that were evaluated.
+     */
+    public long getNestedRuleSetCount() {
+        return nestedRuleSets.get();
+    }
+
+    /**
+     * Gets the number of calculations evaluated.
+     *
+     * @return The number of calc() and @calc terms that were evaluated.
+     */
+    public long getCalculationCount() {
+        return calculations.get();
+    }
+
+    /**
+     * Gets the size of the output.
+     *
+     * @return The number of bytes written, or -1 if it hasn't been set.
+     */
+    public long getOutputBytes() {
+        return outputBytes.get();
+    }
+
+    /**
+     * Formats the statistics as a single-line JSON object.
+     *
+     * Times are in nanoseconds, and unknown values are -1.
+     *
+     * @return The JSON text.
+     */
+    public String toJSON() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"url\":");
+        appendJSONString(json, String.valueOf(url));
+        json.append(",\"phases\":[");
+        boolean first = true;
+        for (Phase phase : getPhases()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append("{\"name\":");
+            appendJSONString(json, phase.getName());
+            json.append(",\"nanos\":").append(phase.getNanos())
+                .append(",\"allocatedBytes\":").append(phase.getAllocatedBytes())
+                .append('}');
+        }
+        json.append("],\"includes\":").append(getIncludeCount())
+            .append(",\"includeNanos\":").append(getIncludeNanos())
+            .append(",\"classApplications\":").append(getClassApplicationCount())
+            .append(",\"classCacheHits\":").append(getClassCacheHitCount())
+            .append(",\"classCacheMisses\":").append(getClassCacheMissCount())
+            .append(",\"nestedRuleSets\":").append(getNestedRuleSetCount())
+            .append(",\"calculations\":").append(getCalculationCount())
+            .append(",\"outputBytes\":").append(getOutputBytes())
+            .append('}');
+        return json.toString();
+    }
+
+    /**
+     * Formats the statistics as a human-readable table.
+     *
+     * @return The statistics, one per line.
+     */
+    @Override
+    public String toString() {
+        String newline = System.getProperty("line.separator");
+        StringBuilder text = new StringBuilder();
+        text.append("Statistics for ").append(url).append(':').append(newline);
+        for (Phase phase : getPhases()) {
+            text.append(String.format(Locale.ROOT, "  %-22s %10.2f ms", phase.getName(), phase.getNanos() / 1e6));
+            if (phase.getAllocatedBytes() >= 0) {
+                text.append(String.format(Locale.ROOT, " %10.2f MB allocated", phase.getAllocatedBytes() / 1e6));
+            }
+            text.append(newline);
+        }
+        text.append(String.format(Locale.ROOT, "  %-22s %10d (%.2f ms)", "includes", getIncludeCount(), getIncludeNanos() / 1e6)).append(newline);
+        text.append(String.format(Locale.ROOT, "  %-22s %10d", "class applications", getClassApplicationCount())).append(newline);
+        text.append(String.format(Locale.ROOT, "  %-22s %10d", "class cache hits", getClassCacheHitCount())).append(newline);
+        text.append(String.format(Locale.ROOT, "  %-22s %10d", "class cache misses", getClassCacheMissCount())).append(newline);
+        text.append(String.format(Locale.ROOT, "  %-22s %10d", "nested rule sets", getNestedRuleSetCount())).append(newline);
+        text.append(String.format(Locale.ROOT, "  %-22s %10d", "calculations", getCalculationCount())).append(newline);
+        if (getOutputBytes() >= 0) {
+            text.append(String.format(Locale.ROOT, "  %-22s %10d", "output bytes", getOutputBytes())).append(newline);
+        }
+        return text.toString();
+    }
+
+    private static void appendJSONString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            }
+            else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            }
+            else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Gets the number of bytes the current thread has allocated.
+     *
+     * @return The number of bytes, or -1 if the JVM doesn't support counting
+     * allocations.
+     */
+    private static long currentThreadAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+            if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
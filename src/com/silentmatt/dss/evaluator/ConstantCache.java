@@ -0,0 +1,148 @@
+package com.silentmatt.dss.evaluator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.MapMaker;
+import com.silentmatt.dss.calc.BinaryExpression;
+import com.silentmatt.dss.calc.CalcExpression;
+import com.silentmatt.dss.calc.NegationExpression;
+import com.silentmatt.dss.calc.TermExpression;
+import com.silentmatt.dss.declaration.DeclarationList;
+import com.silentmatt.dss.declaration.Expression;
+import com.silentmatt.dss.error.BufferedErrorReporter;
+import com.silentmatt.dss.term.AtReferenceTerm;
+import com.silentmatt.dss.term.CalculationLiteralTerm;
+import com.silentmatt.dss.term.CalculationTerm;
+import com.silentmatt.dss.term.ClassReferenceTerm;
+import com.silentmatt.dss.term.FunctionTerm;
+import com.silentmatt.dss.term.ParamTerm;
+import com.silentmatt.dss.term.ReferenceTerm;
+import com.silentmatt.dss.term.Term;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the substituted values of constants, so they are only evaluated
+ * once no matter how many times they're referenced.
+ *
+ * Values are keyed by the declared {@link Expression} object, so redeclaring
+ * a constant replaces the key that references find, and the old value is
+ * never used again.
+ *
+ * Constants are looked up where they're referenced, not where they're
+ * declared, so only values that don't contain any references (const, param,
+ * prop, or @name) can be cached. Values that report errors or warnings aren't
+ * cached either, so the messages are reported for every reference, just like
+ * they would be without the cache.
+ *
+ * The cache is shared by every fork of an {@link EvaluationState}, so it is
+ * safe to use from multiple threads.
+ *
+ * @author Matthew Crumley
+ */
+final class ConstantCache {
+    /**
+     * Marks a value that has to be substituted at each reference.
+     */
+    private static final Expression UNCACHEABLE = new Expression(ImmutableList.<Term>of());
+
+    private final ConcurrentMap<Expression, Expression> values = new MapMaker().weakKeys().makeMap();
+
+    /**
+     * Gets the substituted value of a constant.
+     *
+     * @param state The current {@link EvaluationState}.
+     * @param value The declared value of the constant.
+     *
+     * @return The substituted value, or <code>null</code> if it can't be cached.
+     */
+    Expression get(EvaluationState state, Expression value) {
+        Expression result = values.get(value);
+        if (result == null) {
+            result = substitute(state, value);
+            Expression existing = values.putIfAbsent(value, result);
+            if (existing != null) {
+                result = existing;
+            }
+        }
+        return result == UNCACHEABLE ? null : result;
+    }
+
+    private static Expression substitute(EvaluationState state, Expression value) {
+        if (!isConstant(value)) {
+            return UNCACHEABLE;
+        }
+
+        BufferedErrorReporter errors = new BufferedErrorReporter();
+        Expression result = value.substituteValues(state.fork(errors), DeclarationList.EMPTY, false, true);
+        return errors.getErrorCount() + errors.getWarningCount() == 0 ? result : UNCACHEABLE;
+    }
+
+    /**
+     * Checks whether an expression evaluates to the same thing everywhere.
+     *
+     * @param value The expression to check.
+     *
+     * @return true if the expression doesn't depend on the current scope,
+     * parameters, or properties.
+     */
+    static boolean isConstant(Expression value) {
+        return isConstant(value, Collections.<String>emptySet());
+    }
+
+    /**
+     * Checks whether an expression evaluates to the same thing everywhere,
+     * given the values of some parameters.
+     *
+     * @param value The expression to check.
+     * @param parameters The names of the parameters that the expression is
+     * allowed to reference, with either param(name) or @name.
+     *
+     * @return true if the expression doesn't depend on the current scope,
+     * properties, or any other parameters.
+     */
+    static boolean isConstant(Expression value, Set<String> parameters) {
+        if (value == null) {
+            return true;
+        }
+        for (Term term : value.getTerms()) {
+            if (!isConstant(term, parameters)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isConstant(Term term, Set<String> parameters) {
+        if (term instanceof ParamTerm || term instanceof AtReferenceTerm) {
+            return parameters.contains(((ReferenceTerm) term).getName());
+        }
+        else if (term instanceof ReferenceTerm || term instanceof ClassReferenceTerm) {
+            return false;
+        }
+        else if (term instanceof FunctionTerm) {
+            return isConstant(((FunctionTerm) term).getExpression(), parameters);
+        }
+        else if (term instanceof CalculationTerm) {
+            return isConstant(((CalculationTerm) term).getCalculation(), parameters);
+        }
+        else if (term instanceof CalculationLiteralTerm) {
+            return isConstant(((CalculationLiteralTerm) term).getCalculation(), parameters);
+        }
+        return true;
+    }
+
+    private static boolean isConstant(CalcExpression calculation, Set<String> parameters) {
+        if (calculation instanceof TermExpression) {
+            return isConstant(((TermExpression) calculation).getValue(), parameters);
+        }
+        else if (calculation instanceof BinaryExpression) {
+            BinaryExpression binary = (BinaryExpression) calculation;
+            return isConstant(binary.getLeft(), parameters) && isConstant(binary.getRight(), parameters);
+        }
+        else if (calculation instanceof NegationExpression) {
+            return isConstant(((NegationExpression) calculation).getExpression(), parameters);
+        }
+        return false;
+    }
+}
@@ -4,6 +4,7 @@ import com.silentmatt.dss.DSSDocument;
 import com.silentmatt.dss.css.CssDocument;
 import com.silentmatt.dss.declaration.Expression;
 import com.silentmatt.dss.directive.ClassDirective;
+import com.silentmatt.dss.error.BufferedErrorReporter;
 import com.silentmatt.dss.error.ErrorReporter;
 import com.silentmatt.dss.error.PrintStreamErrorReporter;
 import com.silentmatt.dss.rule.Rule;
@@ -11,6 +12,7 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Manages the evaluation options and evaluation state to convert a {@link DSSDocument}
@@ -31,6 +33,11 @@ public class DSSEvaluator {
         private Map<String, Function> functions = new HashMap<>();
         private URLCallback includeCallback = null;
         private ResourceLocator resourceLocator = null;
+        private ParseCache parseCache = new MemoryParseCache();
+        private ClassExpansionCache classCache = new ClassExpansionCache();
+        private DependencyGraph dependencyGraph = null;
+        private ForkJoinPool forkJoinPool = null;
+        private CompileStatistics statistics = null;
 
         /**
          * Constructs an Options object for a given URL.
@@ -60,6 +67,66 @@ public class DSSEvaluator {
             return this.includeCallback;
         }
 
+        /**
+         * Sets the graph that includes will be recorded in.
+         *
+         * @param dependencyGraph The dependency graph, or null to not record includes.
+         */
+        public void setDependencyGraph(DependencyGraph dependencyGraph) {
+            this.dependencyGraph = dependencyGraph;
+        }
+
+        /**
+         * Gets the graph that includes will be recorded in.
+         *
+         * @return The dependency graph, or null.
+         */
+        public DependencyGraph getDependencyGraph() {
+            return this.dependencyGraph;
+        }
+
+        /**
+         * Sets the pool used to evaluate top-level rule sets in parallel.
+         *
+         * The output is the same as a sequential evaluation, and errors are
+         * reported in the same order, but they are only reported after the
+         * whole document has been evaluated.
+         *
+         * @param forkJoinPool The pool, or null to evaluate everything on the
+         * calling thread.
+         */
+        public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+            this.forkJoinPool = forkJoinPool;
+        }
+
+        /**
+         * Gets the pool used to evaluate top-level rule sets in parallel.
+         *
+         * @return The pool, or null if evaluation is sequential.
+         */
+        public ForkJoinPool getForkJoinPool() {
+            return this.forkJoinPool;
+        }
+
+        /**
+         * Sets where to count includes, class applications, nested rule sets,
+         * and calculations.
+         *
+         * @param statistics The statistics, or null to not count anything.
+         */
+        public void setStatistics(CompileStatistics statistics) {
+            this.statistics = statistics;
+        }
+
+        /**
+         * Gets where evaluation statistics will be counted.
+         *
+         * @return The statistics, or null.
+         */
+        public CompileStatistics getStatistics() {
+            return this.statistics;
+        }
+
         /**
          * Gets the base URL of the document.
          *
@@ -100,6 +167,49 @@ public class DSSEvaluator {
             return this.resourceLocator;
         }
 
+        /**
+         * Sets the ParseCache used to parse include files.
+         *
+         * By default, each Options object has its own {@link MemoryParseCache},
+         * so a file that's included more than once is only parsed once.
+         *
+         * @param parseCache The parse cache.
+         */
+        public void setParseCache(ParseCache parseCache) {
+            this.parseCache = parseCache;
+        }
+
+        /**
+         * Gets the ParseCache that will be used to parse include files.
+         *
+         * @return The parse cache.
+         */
+        public ParseCache getParseCache() {
+            return this.parseCache;
+        }
+
+        /**
+         * Sets the cache of class expansions.
+         *
+         * By default, each Options object has its own
+         * {@link ClassExpansionCache}. Expansions are only reused within an
+         * evaluation, but the hit counts add up across evaluations.
+         *
+         * @param classCache The class expansion cache.
+         */
+        public void setClassCache(ClassExpansionCache classCache) {
+            this.classCache = classCache;
+        }
+
+        /**
+         * Gets the cache of class expansions.
+         *
+         * @return The class expansion cache.
+         */
+        public ClassExpansionCache getClassCache() {
+            return this.classCache;
+        }
+
         /**
          * Gets the {@link ErrorReporter} that will be used during evaluation.
          *
@@ -188,7 +298,7 @@ public class DSSEvaluator {
         }
     }
 
-    private final EvaluationState state;
+    private final Options opts;
 
     /**
      * Constructs an evaluator with the given options.
@@ -196,12 +306,17 @@ public class DSSEvaluator {
      * @param opts The {@link Options} to use for evaluation.
      */
     public DSSEvaluator(Options opts) {
-        this.state = new EvaluationState(opts);
+        this.opts = opts;
     }
 
     /**
      * Evaluates a DSS document.
      *
+     * Each call gets its own {@link EvaluationState}, so a DSSEvaluator (and a
+     * parsed DSSDocument) can be shared between threads, as long as the
+     * {@link Options} aren't modified and the {@link ErrorReporter} is
+     * thread-safe.
+     *
      * @param dss The document to evaluate
      *
      * @return The resulting {@link CssDocument}.
@@ -211,7 +326,12 @@ public class DSSEvaluator {
      * @todo Should it just add I/O errors to the ErrorReporter?
      */
     public CssDocument evaluate(DSSDocument dss) throws IOException {
+        if (opts.getForkJoinPool() != null) {
+            return evaluateParallel(dss);
+        }
+
         CssDocument document = new CssDocument();
+        EvaluationState state = new EvaluationState(opts);
         state.pushScope(Rule.getRuleSets(dss.getRules()));
         try {
             document.getRules().addAll(Rule.evaluateRules(state, dss.getRules()));
@@ -221,4 +341,19 @@ public class DSSEvaluator {
             state.popScope();
         }
     }
+
+    private CssDocument evaluateParallel(DSSDocument dss) throws IOException {
+        CssDocument document = new CssDocument();
+        BufferedErrorReporter stateErrors = new BufferedErrorReporter();
+        EvaluationState state = new EvaluationState(opts, stateErrors);
+        state.pushScope(Rule.getRuleSets(dss.getRules()));
+        try {
+            ParallelEvaluator evaluator = new ParallelEvaluator(opts.getForkJoinPool());
+            document.getRules().addAll(evaluator.evaluateRules(state, stateErrors, dss.getRules(), opts.getErrors()));
+            return document;
+        }
+        finally {
+            state.popScope();
+        }
+    }
 }
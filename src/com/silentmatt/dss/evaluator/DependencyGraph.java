@@ -0,0 +1,108 @@
+package com.silentmatt.dss.evaluator;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records which documents include which other documents.
+ *
+ * The graph is filled in during evaluation: each @include adds an edge from
+ * the including document to the included one, even if the included document
+ * turns out to have errors, so fixing it can trigger a recompile.
+ *
+ * URLs are compared by their external form, so there are no DNS lookups.
+ *
+ * @author Matthew Crumley
+ */
+public class DependencyGraph {
+    private final Map<String, Set<String>> includes = new HashMap<>();
+    private final Map<String, Set<String>> includedBy = new HashMap<>();
+
+    /**
+     * Records that one document includes another.
+     *
+     * @param from The URL of the including document.
+     * @param to The URL of the included document.
+     */
+    public synchronized void addInclude(URL from, URL to) {
+        String fromKey = from.toExternalForm();
+        String toKey = to.toExternalForm();
+        edges(includes, fromKey).add(toKey);
+        edges(includedBy, toKey).add(fromKey);
+    }
+
+    /**
+     * Removes all of the recorded includes.
+     */
+    public synchronized void clear() {
+        includes.clear();
+        includedBy.clear();
+    }
+
+    /**
+     * Gets every document that a document depends on, directly or indirectly.
+     *
+     * @param root The URL of the document.
+     *
+     * @return The URLs of the dependencies in breadth-first order, starting
+     * with <code>root</code> itself.
+     */
+    public synchronized List<URL> getDependencies(URL root) {
+        return reachable(includes, root);
+    }
+
+    /**
+     * Gets every document that depends on a document, directly or indirectly.
+     *
+     * @param url The URL of the document.
+     *
+     * @return The URLs of the documents that would need to be recompiled if
+     * <code>url</code> changed, starting with <code>url</code> itself.
+     */
+    public synchronized List<URL> getDependents(URL url) {
+        return reachable(includedBy, url);
+    }
+
+    private static Set<String> edges(Map<String, Set<String>> graph, String key) {
+        Set<String> result = graph.get(key);
+        if (result == null) {
+            result = new LinkedHashSet<>();
+            graph.put(key, result);
+        }
+        return result;
+    }
+
+    private static List<URL> reachable(Map<String, Set<String>> graph, URL start) {
+        Set<String> visited = new LinkedHashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add(start.toExternalForm());
+
+        while (!pending.isEmpty()) {
+            String key = pending.removeFirst();
+            if (visited.add(key)) {
+                Set<String> next = graph.get(key);
+                if (next != null) {
+                    pending.addAll(next);
+                }
+            }
+        }
+
+        List<URL> result = new ArrayList<>(visited.size());
+        for (String key : visited) {
+            try {
+                result.add(new URL(key));
+            } catch (MalformedURLException ex) {
+                // Can't happen, since the key came from a URL
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,145 @@
+package com.silentmatt.dss.evaluator;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.silentmatt.dss.DSSDocument;
+import com.silentmatt.dss.error.ErrorReporter;
+import com.silentmatt.dss.events.Events;
+import com.silentmatt.dss.parser.BinaryDocumentReader;
+import com.silentmatt.dss.parser.BinaryDocumentWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link ParseCache} that saves parsed documents to a directory, so they can
+ * be reused by later runs.
+ *
+ * Each document is stored in the compact format written by
+ * {@link BinaryDocumentWriter}, in a file named after a hash of the source
+ * text. The source still has to be read to compute the hash, but an unchanged
+ * document never goes through the parser again. Entries written by a different
+ * version of the format, or that can't be read for any other reason, are
+ * ignored and replaced.
+ *
+ * Entries are written to a temporary file and then renamed, so any number of
+ * processes can share the same directory.
+ *
+ * @author Matthew Crumley
+ */
+public class DiskParseCache implements ParseCache {
+    private static final String EXTENSION = ".dssc";
+
+    private final File directory;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Constructs a DiskParseCache.
+     *
+     * @param directory The directory to store parsed documents in. It will be
+     * created if it doesn't exist.
+     */
+    public DiskParseCache(File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public DSSDocument parse(ResourceLocator resourceLocator, URL url, ErrorReporter errors) throws IOException {
+        byte[] contents;
+        try (InputStream input = resourceLocator.openResource(url)) {
+            contents = ByteStreams.toByteArray(input);
+        }
+
+        File entry = new File(directory, Hashing.sha1().hashBytes(contents).toString() + EXTENSION);
+        DSSDocument document = load(entry);
+        if (document != null) {
+            hitCount.incrementAndGet();
+            return document;
+        }
+
+        missCount.incrementAndGet();
+        Events.Span span = Events.parse(url);
+        try {
+            span.setSize(contents.length);
+            document = DSSDocument.parse(ByteBuffer.wrap(contents), errors);
+        }
+        finally {
+            span.end();
+        }
+        if (document != null) {
+            save(entry, document);
+        }
+        return document;
+    }
+
+    private static DSSDocument load(File entry) {
+        if (!entry.isFile()) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(entry))) {
+            return new BinaryDocumentReader(in, entry.length()).readDocument();
+        } catch (IOException | RuntimeException ex) {
+            // Stale or corrupt entry, so it will be replaced.
+            return null;
+        }
+    }
+
+    private void save(File entry, DSSDocument document) {
+        File temp = null;
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                return;
+            }
+            temp = File.createTempFile(entry.getName(), ".tmp", directory);
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+                new BinaryDocumentWriter(out).writeDocument(document);
+            }
+            Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            temp = null;
+        } catch (IOException ex) {
+            // The cache is only an optimization, so failing to write it isn't an error.
+        } finally {
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Gets the directory that parsed documents are saved in.
+     *
+     * @return The cache directory.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gets the number of documents that were loaded from the cache.
+     *
+     * @return The number of cache hits.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of documents that had to be parsed.
+     *
+     * @return The number of cache misses.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+}
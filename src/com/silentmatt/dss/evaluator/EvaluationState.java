@@ -3,8 +3,12 @@ package com.silentmatt.dss.evaluator;
 import com.silentmatt.dss.declaration.Expression;
 import com.silentmatt.dss.directive.ClassDirective;
 import com.silentmatt.dss.error.ErrorReporter;
+import com.google.common.collect.Lists;
 import com.silentmatt.dss.rule.RuleSet;
+import com.silentmatt.dss.selector.Selector;
 import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -13,6 +17,10 @@ import java.util.Map;
 
 /**
  * Contains the current state of the {@link DSSEvaluator}.
+ *
+ * An EvaluationState belongs to a single evaluation, so it is not thread-safe.
+ * It copies what it needs from the {@link DSSEvaluator.Options}, so any number
+ * of states can be created from the same options and evaluated concurrently.
  * 
  * @author Matthew Crumley
  */
@@ -23,9 +31,15 @@ public final class EvaluationState {
     private Scope<Expression> variables;
     private Scope<Expression> parameters = null;
     private final Map<String, Function> functions = new HashMap<>();
-    private final LinkedList<List<RuleSet>> ruleSetScope = new LinkedList<>();
+    private final LinkedList<RuleSetIndex> ruleSetScope = new LinkedList<>();
+    private final Deque<Boolean> declaredLevels = new ArrayDeque<>();
     private final URLCallback includeCallback;
     private final ResourceLocator resourceLocator;
+    private final ParseCache parseCache;
+    private final DependencyGraph dependencyGraph;
+    private final ConstantCache constants;
+    private final ClassExpansionCache classCache;
+    private final CompileStatistics statistics;
 
     /**
      * Constructs an EvalationState with specified options.
@@ -33,14 +47,76 @@ public final class EvaluationState {
      * @param opts A {@link DSSEvaluator.Options} object, used to initialize the state.
      */
     public EvaluationState(DSSEvaluator.Options opts) {
+        this(opts, opts.getErrors());
+    }
+
+    /**
+     * Constructs an EvalationState with specified options and a different
+     * {@link ErrorReporter}.
+     *
+     * @param opts A {@link DSSEvaluator.Options} object, used to initialize the state.
+     * @param errors The ErrorReporter to use instead of the one in the options.
+     */
+    public EvaluationState(DSSEvaluator.Options opts, ErrorReporter errors) {
         this.baseURL = new LinkedList<>();
         this.baseURL.push(opts.getBaseURL());
-        this.errors = opts.getErrors();
-        this.classes = new GlobalScope<>(opts.getClasses());
-        this.variables = new GlobalScope<>(opts.getVariables());
+        this.errors = errors;
+        this.classes = new GlobalScope<>(opts.getClasses().flatten());
+        this.variables = new GlobalScope<>(opts.getVariables().flatten());
         this.functions.putAll(opts.getFunctions());
         this.includeCallback = opts.getIncludeCallback();
         this.resourceLocator = opts.getResourceLocator();
+        this.parseCache = opts.getParseCache();
+        this.dependencyGraph = opts.getDependencyGraph();
+        this.constants = new ConstantCache();
+        this.classCache = opts.getClassCache();
+        this.statistics = opts.getStatistics();
+    }
+
+    private EvaluationState(EvaluationState state, ErrorReporter errors, Scope<ClassDirective> classes, Scope<Expression> variables) {
+        this.baseURL = new LinkedList<>(state.baseURL);
+        this.errors = errors;
+        this.classes = classes;
+        this.variables = variables;
+        this.parameters = state.parameters;
+        this.functions.putAll(state.functions);
+        this.ruleSetScope.addAll(state.ruleSetScope);
+        this.declaredLevels.addAll(state.declaredLevels);
+        this.includeCallback = state.includeCallback;
+        this.resourceLocator = state.resourceLocator;
+        this.parseCache = state.parseCache;
+        this.dependencyGraph = state.dependencyGraph;
+        this.constants = state.constants;
+        this.classCache = state.classCache;
+        this.statistics = state.statistics;
+    }
+
+    /**
+     * Creates a copy of the state that won't see any later changes to this one.
+     *
+     * The class and variable scopes are flattened into new top-level scopes.
+     * The snapshot is meant to be {@link #fork forked}, not evaluated with
+     * directly.
+     *
+     * @return A new EvaluationState.
+     */
+    public EvaluationState snapshot() {
+        return new EvaluationState(this, errors, new GlobalScope<>(classes.flatten()), new GlobalScope<>(variables.flatten()));
+    }
+
+    /**
+     * Creates a copy of the state that shares its scopes, for evaluating
+     * rules on another thread.
+     *
+     * Forks of the same {@link #snapshot} can be evaluated concurrently, as
+     * long as the rules only declare things in scopes they push themselves.
+     *
+     * @param errors The {@link ErrorReporter} for the new state.
+     *
+     * @return A new EvaluationState.
+     */
+    public EvaluationState fork(ErrorReporter errors) {
+        return new EvaluationState(this, errors, classes, variables);
     }
 
     /**
@@ -61,6 +137,36 @@ public final class EvaluationState {
         return this.resourceLocator;
     }
 
+    /**
+     * Gets the parse cache.
+     *
+     * @return The {@link ParseCache} used to parse included documents.
+     */
+    public ParseCache getParseCache() {
+        return this.parseCache;
+    }
+
+    /**
+     * Records that the current document includes another one.
+     *
+     * @param url The URL of the included document.
+     */
+    public void addDependency(URL url) {
+        if (dependencyGraph != null) {
+            dependencyGraph.addInclude(getBaseURL(), url);
+        }
+    }
+
+    /**
+     * Gets where evaluation statistics are counted.
+     *
+     * @return The {@link CompileStatistics}, or null if nothing is being
+     * counted.
+     */
+    public CompileStatistics getStatistics() {
+        return statistics;
+    }
+
     /**
      * Gets the current base URL.
      *
@@ -83,6 +189,10 @@ public final class EvaluationState {
     /**
      * Gets the current class scope.
      *
+     * This is the innermost scope that has declared anything, so classes
+     * should be declared with {@link #declareClass} instead of through the
+     * returned scope.
+     *
      * @return The current {@link Scope} of {@link ClassDirective}s.
      */
     public Scope<ClassDirective> getClasses() {
@@ -92,12 +202,63 @@ public final class EvaluationState {
     /**
      * Gets the current variable scope.
      *
+     * This is the innermost scope that has declared anything, so variables
+     * should be declared with {@link #declareVariable} instead of through the
+     * returned scope.
+     *
      * @return The current {@link Scope} of {@link Expression}s.
      */
     public Scope<Expression> getVariables() {
         return variables;
     }
 
+    /**
+     * Declares a class in the current scope, or in the global scope.
+     *
+     * @param name The name of the class.
+     * @param clazz The class.
+     * @param global true to declare it in the global scope.
+     */
+    public void declareClass(String name, ClassDirective clazz, boolean global) {
+        if (global) {
+            classes.getGlobalScope().declare(name, clazz);
+        }
+        else {
+            declareLevel();
+            classes.declare(name, clazz);
+        }
+    }
+
+    /**
+     * Declares a variable in the current scope, or in the global scope.
+     *
+     * @param name The name of the variable.
+     * @param value The value of the variable.
+     * @param global true to declare it in the global scope.
+     */
+    public void declareVariable(String name, Expression value, boolean global) {
+        if (global) {
+            variables.getGlobalScope().declare(name, value);
+        }
+        else {
+            declareLevel();
+            variables.declare(name, value);
+        }
+    }
+
+    /**
+     * Creates the class and variable scopes for the current level, if they
+     * haven't been created yet.
+     */
+    private void declareLevel() {
+        if (!declaredLevels.isEmpty() && !declaredLevels.peek()) {
+            classes = new Scope<>(classes);
+            variables = new Scope<>(variables);
+            declaredLevels.pop();
+            declaredLevels.push(true);
+        }
+    }
+
     /**
      * Gets the current class parameter scope.
      *
@@ -109,6 +270,32 @@ public final class EvaluationState {
         return parameters;
     }
 
+    /**
+     * Gets the cache of class expansions.
+     *
+     * @return The {@link ClassExpansionCache} used when classes are applied.
+     */
+    public ClassExpansionCache getClassCache() {
+        return classCache;
+    }
+
+    /**
+     * Gets the substituted value of a constant, evaluating it only the first
+     * time it's referenced.
+     *
+     * Values that depend on where they're referenced (anything containing
+     * const, param, prop, or @name references) aren't cached, and neither are
+     * values that report errors.
+     *
+     * @param value The declared value of the constant.
+     *
+     * @return The substituted value, or <code>null</code> if the value has to
+     * be substituted at each reference.
+     */
+    public Expression getConstantValue(Expression value) {
+        return constants.get(this, value);
+    }
+
     /**
      * Gets a map of function names to functions.
      *
@@ -127,7 +314,34 @@ public final class EvaluationState {
      * document order.
      */
     public List<List<RuleSet>> getRuleSets() {
-        return ruleSetScope;
+        return Lists.transform(ruleSetScope, new com.google.common.base.Function<RuleSetIndex, List<RuleSet>>() {
+            @Override
+            public List<RuleSet> apply(RuleSetIndex level) {
+                return level.getRuleSets();
+            }
+        });
+    }
+
+    /**
+     * Finds the RuleSets in the current and surrounding scopes that have a
+     * selector.
+     *
+     * Each level is indexed by selector the first time it is searched, so
+     * repeated lookups don't have to compare every selector in the document.
+     *
+     * @param selector The {@link Selector} to look for.
+     *
+     * @return A {@link List} of the matching {@link RuleSet}s, in the same
+     * order as {@link #getRuleSets}. A RuleSet is listed once for each of its
+     * selectors that match.
+     */
+    public List<RuleSet> findRuleSets(Selector selector) {
+        String key = selector.getKey();
+        List<RuleSet> result = new ArrayList<>();
+        for (RuleSetIndex level : ruleSetScope) {
+            result.addAll(level.get(key));
+        }
+        return result;
     }
 
     /**
@@ -155,21 +369,27 @@ public final class EvaluationState {
     /**
      * Creates a new level in the scope chain of classes, variables, and rule sets.
      *
+     * The class and variable scopes for the level aren't created until
+     * something is declared in it, so most levels (rule sets that don't
+     * contain any @define or @class rules) don't allocate anything, and
+     * lookups don't have to step through them.
+     *
      * @param currentRuleSetScope The current list of {@link RuleSet}s being
      * evaluated. It is added to the end of the RuleSet scope.
      */
     public void pushScope(List<RuleSet> currentRuleSetScope) {
-        classes = new Scope<>(classes);
-        variables = new Scope<>(variables);
-        ruleSetScope.addLast(currentRuleSetScope);
+        declaredLevels.push(false);
+        ruleSetScope.addLast(new RuleSetIndex(currentRuleSetScope));
     }
 
     /**
      * Restore the previous scope.
      */
     public void popScope() {
-        classes = classes.parent();
-        variables = variables.parent();
+        if (declaredLevels.pop()) {
+            classes = classes.parent();
+            variables = variables.parent();
+        }
         ruleSetScope.removeLast();
     }
 
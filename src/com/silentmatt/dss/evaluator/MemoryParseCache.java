@@ -0,0 +1,229 @@
+package com.silentmatt.dss.evaluator;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.silentmatt.dss.DSSDocument;
+import com.silentmatt.dss.error.ErrorReporter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link ParseCache} that keeps the most recently used documents in memory.
+ *
+ * Documents are keyed by their resolved URL, and each entry has a validator
+ * that has to match before the cached document is used. For "file:" URLs
+ * opened with the {@link DefaultResourcesLocator}, the validator is the file's
+ * modification time and size, so unchanged files aren't even opened. For any
+ * other URL, or a file that another ResourceLocator provides (which may not
+ * exist on disk), the resource is read and the validator is a hash of its
+ * contents, so only the parsing is skipped.
+ *
+ * Documents with syntax errors are never cached, so the errors are reported
+ * every time.
+ *
+ * On a miss, documents are parsed by another ParseCache, so a MemoryParseCache
+ * can sit in front of a {@link DiskParseCache}.
+ *
+ * @author Matthew Crumley
+ */
+public class MemoryParseCache implements ParseCache {
+    /**
+     * The default maximum number of documents to keep.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+    private static final class Entry {
+        private final String validator;
+        private final DSSDocument document;
+
+        Entry(String validator, DSSDocument document) {
+            this.validator = validator;
+            this.document = document;
+        }
+    }
+
+    private final int maximumSize;
+    private final ParseCache source;
+    private final Map<String, Entry> entries;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    /**
+     * Constructs a MemoryParseCache with the default maximum size.
+     */
+    public MemoryParseCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Constructs a MemoryParseCache that holds a limited number of documents.
+     *
+     * @param maximumSize The maximum number of documents to keep. When the
+     * cache is full, the least recently used document is removed.
+     */
+    public MemoryParseCache(int maximumSize) {
+        this(maximumSize, new NullParseCache());
+    }
+
+    /**
+     * Constructs a MemoryParseCache that gets documents from another ParseCache.
+     *
+     * @param maximumSize The maximum number of documents to keep.
+     * @param source The ParseCache used to parse documents that aren't in
+     * memory, or have changed.
+     */
+    public MemoryParseCache(int maximumSize, ParseCache source) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize");
+        }
+        this.maximumSize = maximumSize;
+        this.source = source;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > MemoryParseCache.this.maximumSize) {
+                    ++evictionCount;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public DSSDocument parse(ResourceLocator resourceLocator, URL url, ErrorReporter errors) throws IOException {
+        String key = url.toExternalForm();
+        File file = resourceLocator.getClass() == DefaultResourcesLocator.class ? toFile(url) : null;
+
+        if (file != null && file.isFile()) {
+            String validator = file.lastModified() + ":" + file.length();
+            DSSDocument document = lookup(key, validator);
+            if (document != null) {
+                return document;
+            }
+            return store(key, validator, source.parse(resourceLocator, url, errors));
+        }
+
+        final byte[] contents;
+        try (InputStream input = resourceLocator.openResource(url)) {
+            contents = ByteStreams.toByteArray(input);
+        }
+
+        String validator = Hashing.sha1().hashBytes(contents).toString();
+        DSSDocument document = lookup(key, validator);
+        if (document != null) {
+            return document;
+        }
+        ResourceLocator buffered = new ResourceLocator() {
+            @Override
+            public InputStream openResource(URL url) {
+                return new ByteArrayInputStream(contents);
+            }
+        };
+        return store(key, validator, source.parse(buffered, url, errors));
+    }
+
+    private synchronized DSSDocument lookup(String key, String validator) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.validator.equals(validator)) {
+            ++hitCount;
+            return entry.document;
+        }
+        ++missCount;
+        return null;
+    }
+
+    private synchronized DSSDocument store(String key, String validator, DSSDocument document) {
+        if (document != null) {
+            entries.put(key, new Entry(validator, document));
+        }
+        else {
+            entries.remove(key);
+        }
+        return document;
+    }
+
+    /**
+     * Removes a document from the cache, so it will be parsed again the next
+     * time it's needed, even if its validator hasn't changed.
+     *
+     * @param url The URL of the document.
+     */
+    public synchronized void invalidate(URL url) {
+        entries.remove(url.toExternalForm());
+    }
+
+    /**
+     * Removes all of the cached documents.
+     *
+     * The hit, miss, and eviction counts are not reset.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of cached documents.
+     *
+     * @return The number of documents in the cache.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the maximum number of cached documents.
+     *
+     * @return The maximum size of the cache.
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Gets the number of times a valid cached document was returned.
+     *
+     * @return The number of cache hits.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Gets the number of times a document had to be parsed.
+     *
+     * @return The number of cache misses.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Gets the number of documents that were removed to make room for others.
+     *
+     * @return The number of evictions.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    private static File toFile(URL url) {
+        if (!"file".equalsIgnoreCase(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.silentmatt.dss.evaluator;
+
+import com.silentmatt.dss.DSSDocument;
+import com.silentmatt.dss.error.ErrorReporter;
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * A {@link ParseCache} implementation that doesn't cache anything.
+ *
+ * @author Matthew Crumley
+ */
+public class NullParseCache implements ParseCache {
+    @Override
+    public DSSDocument parse(ResourceLocator resourceLocator, URL url, ErrorReporter errors) throws IOException {
+        return DSSDocument.parse(resourceLocator, url, errors);
+    }
+}
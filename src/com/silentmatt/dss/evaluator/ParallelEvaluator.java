@@ -0,0 +1,203 @@
+package com.silentmatt.dss.evaluator;
+
+import com.silentmatt.dss.css.CssRule;
+import com.silentmatt.dss.directive.ClassDirective;
+import com.silentmatt.dss.directive.DefineDirective;
+import com.silentmatt.dss.error.BufferedErrorReporter;
+import com.silentmatt.dss.error.ErrorReporter;
+import com.silentmatt.dss.rule.DeclarationBlock;
+import com.silentmatt.dss.rule.NestedRuleSet;
+import com.silentmatt.dss.rule.Rule;
+import com.silentmatt.dss.rule.RuleSet;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Evaluates a list of rules, running independent rule sets on a {@link ForkJoinPool}.
+ *
+ * Rules that can change the evaluation state (@define, @class, @if, @include,
+ * and so on) are evaluated in order on the calling thread. Runs of rule sets
+ * that only read the state are split into chunks, and each chunk is evaluated
+ * on its own fork of a snapshot taken at that point in the document, so it
+ * sees exactly what it would have seen in sequential order.
+ *
+ * Errors from each chunk are buffered, then everything is put back together
+ * in document order, so the output and the errors match a sequential
+ * evaluation.
+ *
+ * @author Matthew Crumley
+ */
+final class ParallelEvaluator {
+    /**
+     * The maximum number of rule sets evaluated by each task.
+     */
+    static final int CHUNK_SIZE = 32;
+
+    private static final class Segment {
+        final BufferedErrorReporter errors = new BufferedErrorReporter();
+        Future<List<CssRule>> task = null;
+        List<CssRule> rules = new ArrayList<>();
+        Exception failure = null;
+    }
+
+    private final ForkJoinPool pool;
+
+    ParallelEvaluator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Evaluates each of the rules in a list.
+     *
+     * @param state The current {@link EvaluationState}. Its ErrorReporter must
+     * be <code>stateErrors</code>.
+     * @param stateErrors The buffer that <code>state</code> reports errors to.
+     * @param rules The {@link List} of Rules to evaluate.
+     * @param errors Where to report the errors, in document order.
+     *
+     * @return The resulting {@link List} of {@link CssRule}s.
+     *
+     * @throws IOException if there is an error reading any included documents.
+     */
+    List<CssRule> evaluateRules(EvaluationState state, BufferedErrorReporter stateErrors, List<Rule> rules, ErrorReporter errors) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        EvaluationState snapshot = null;
+        List<Rule> chunk = new ArrayList<>();
+
+        for (Rule rule : rules) {
+            if (isIndependent(rule)) {
+                if (snapshot == null) {
+                    snapshot = state.snapshot();
+                }
+                chunk.add(rule);
+                if (chunk.size() == CHUNK_SIZE) {
+                    segments.add(submit(snapshot, chunk, rules));
+                    chunk = new ArrayList<>();
+                }
+                continue;
+            }
+
+            if (!chunk.isEmpty()) {
+                segments.add(submit(snapshot, chunk, rules));
+                chunk = new ArrayList<>();
+            }
+            snapshot = null;
+
+            Segment segment = new Segment();
+            segments.add(segment);
+            try {
+                CssRule r = rule.evaluate(state, rules);
+                if (r != null) {
+                    segment.rules.add(r);
+                }
+            } catch (IOException | RuntimeException ex) {
+                segment.failure = ex;
+            }
+            stateErrors.replay(segment.errors);
+            stateErrors.clear();
+            if (segment.failure != null) {
+                break;
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            segments.add(submit(snapshot, chunk, rules));
+        }
+
+        return join(segments, errors);
+    }
+
+    private Segment submit(final EvaluationState snapshot, final List<Rule> chunk, final List<Rule> container) {
+        final Segment segment = new Segment();
+        segment.task = pool.submit(new Callable<List<CssRule>>() {
+            @Override
+            public List<CssRule> call() throws IOException {
+                EvaluationState state = snapshot.fork(segment.errors);
+                List<CssRule> result = new ArrayList<>(chunk.size());
+                for (Rule rule : chunk) {
+                    CssRule r = rule.evaluate(state, container);
+                    if (r != null) {
+                        result.add(r);
+                    }
+                }
+                return result;
+            }
+        });
+        return segment;
+    }
+
+    private static List<CssRule> join(List<Segment> segments, ErrorReporter errors) throws IOException {
+        List<CssRule> result = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.task != null) {
+                try {
+                    segment.rules = segment.task.get();
+                } catch (ExecutionException ex) {
+                    segment.failure = ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while evaluating");
+                }
+            }
+
+            segment.errors.replay(errors);
+            if (segment.failure instanceof IOException) {
+                throw (IOException) segment.failure;
+            }
+            else if (segment.failure instanceof RuntimeException) {
+                throw (RuntimeException) segment.failure;
+            }
+            else if (segment.failure != null) {
+                throw new RuntimeException(segment.failure);
+            }
+            result.addAll(segment.rules);
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether a rule can be evaluated on its own fork of the state.
+     *
+     * That's true for rule sets, unless they (or anything nested in them)
+     * declare something globally.
+     *
+     * @param rule The rule to check.
+     *
+     * @return true if evaluating the rule can't affect any other rules.
+     */
+    static boolean isIndependent(Rule rule) {
+        return rule instanceof RuleSet && isIndependent(((RuleSet) rule).getDeclarationBlock());
+    }
+
+    private static boolean isIndependent(DeclarationBlock block) {
+        for (Rule rule : block.getRules()) {
+            if (rule instanceof DefineDirective) {
+                if (((DefineDirective) rule).isGlobal()) {
+                    return false;
+                }
+            }
+            else if (rule instanceof ClassDirective) {
+                ClassDirective clazz = (ClassDirective) rule;
+                if (clazz.isGlobal() || !isIndependent(clazz.getDeclarationBlock())) {
+                    return false;
+                }
+            }
+            else {
+                return false;
+            }
+        }
+
+        for (NestedRuleSet nested : block.getNestedRuleSets()) {
+            if (!isIndependent(nested.getDeclarationBlock())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,29 @@
+package com.silentmatt.dss.evaluator;
+
+import com.silentmatt.dss.DSSDocument;
+import com.silentmatt.dss.error.ErrorReporter;
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Parses documents by URL, possibly returning a previously parsed document.
+ *
+ * Since {@link DSSDocument}s are immutable, a cached document can be shared
+ * between any number of evaluations.
+ *
+ * @author Matthew Crumley
+ */
+public interface ParseCache {
+    /**
+     * Gets the parsed document for a URL.
+     *
+     * @param resourceLocator The {@link ResourceLocator} used to open the URL.
+     * @param url The URL of the document to parse.
+     * @param errors Where to report errors.
+     *
+     * @return The parsed DSSDocument, or null if there were syntax errors.
+     *
+     * @throws IOException if there is an error reading the document.
+     */
+    DSSDocument parse(ResourceLocator resourceLocator, URL url, ErrorReporter errors) throws IOException;
+}
@@ -0,0 +1,83 @@
+package com.silentmatt.dss.evaluator;
+
+import com.silentmatt.dss.rule.RuleSet;
+import com.silentmatt.dss.selector.Selector;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One level of the rule set scope chain, indexed by selector.
+ *
+ * The index maps each {@link Selector#getKey selector key} to the rule sets
+ * that have that selector, in document order. A rule set is listed once for
+ * each of its selectors that match, just like a linear search would find it.
+ *
+ * The index isn't built until the first lookup, since most levels (the nested
+ * rule sets of an ordinary rule set) are never searched. Building it is
+ * idempotent, so a level can be shared between forks of an
+ * {@link EvaluationState}.
+ *
+ * @author Matthew Crumley
+ */
+final class RuleSetIndex {
+    private final List<RuleSet> ruleSets;
+    private volatile Map<String, List<RuleSet>> index;
+
+    /**
+     * Constructs a RuleSetIndex for a list of rule sets.
+     *
+     * @param ruleSets The rule sets in the level, in document order.
+     */
+    RuleSetIndex(List<RuleSet> ruleSets) {
+        this.ruleSets = ruleSets;
+    }
+
+    /**
+     * Gets the rule sets in the level.
+     *
+     * @return The {@link List} of {@link RuleSet}s this level was created with.
+     */
+    List<RuleSet> getRuleSets() {
+        return ruleSets;
+    }
+
+    /**
+     * Gets the rule sets that have a selector.
+     *
+     * @param key The {@link Selector#getKey key} of the selector.
+     *
+     * @return The matching {@link RuleSet}s, in document order.
+     */
+    List<RuleSet> get(String key) {
+        if (ruleSets.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<String, List<RuleSet>> result = index;
+        if (result == null) {
+            result = buildIndex(ruleSets);
+            index = result;
+        }
+
+        List<RuleSet> matches = result.get(key);
+        return matches == null ? Collections.<RuleSet>emptyList() : matches;
+    }
+
+    private static Map<String, List<RuleSet>> buildIndex(List<RuleSet> ruleSets) {
+        Map<String, List<RuleSet>> result = new HashMap<>();
+        for (RuleSet rs : ruleSets) {
+            for (Selector s : rs.getSelectors()) {
+                List<RuleSet> matches = result.get(s.getKey());
+                if (matches == null) {
+                    matches = new ArrayList<>(1);
+                    result.put(s.getKey(), matches);
+                }
+                matches.add(rs);
+            }
+        }
+        return result;
+    }
+}
@@ -1,6 +1,7 @@
 package com.silentmatt.dss.evaluator;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -8,6 +9,9 @@ import java.util.Set;
 /**
  * A Map from Strings to <code>T</code>s, that can inherit from other <code>Scope</code>s.
  *
+ * The map isn't allocated until something is declared, so scopes that never
+ * declare anything are cheap to create and are skipped quickly by lookups.
+ *
  * @author Matthew Crumley
  * @param <T> The type of objects being stored.
  */
@@ -20,7 +24,6 @@ public class Scope<T> {
      */
     public Scope(Scope<T> parent) {
         this.parentScope = parent;
-        this.table = new HashMap<>();
     }
 
     /**
@@ -34,7 +37,7 @@ public class Scope<T> {
         this(scope);
 
         for (String name : variables) {
-            table.put(name, null);
+            declare(name, null);
         }
     }
 
@@ -46,7 +49,9 @@ public class Scope<T> {
      */
     public Scope(Scope<T> parent, Map<String, T> initial) {
         this(parent);
-        table.putAll(initial);
+        if (!initial.isEmpty()) {
+            table = new HashMap<>(initial);
+        }
     }
 
     @Override
@@ -92,7 +97,11 @@ public class Scope<T> {
     }
 
     protected final Scope<T> parentScope;
-    protected final Map<String, T> table;
+
+    /**
+     * The entries declared in this Scope, or <code>null</code> if nothing has been declared.
+     */
+    private Map<String, T> table = null;
 
     /**
      * Returns <code>true</code> if <code>key</code> is declared in this Scope
@@ -108,7 +117,12 @@ public class Scope<T> {
      * @see #declaresKey(java.lang.String)
      */
     public final boolean containsKey(String key) {
-        return table.containsKey(key) || (parentScope != null && parentScope.containsKey(key));
+        for (Scope<T> scope = this; scope != null; scope = scope.parentScope) {
+            if (scope.table != null && scope.table.containsKey(key)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -121,21 +135,44 @@ public class Scope<T> {
      * @see #containsKey(java.lang.String)
      */
     public boolean declaresKey(String key) {
-        return table.containsKey(key);
+        return table != null && table.containsKey(key);
     }
 
+    /**
+     * Gets the value of a key from the nearest Scope that declares it.
+     *
+     * @param key The key to look up.
+     * @return The value, or <code>null</code> if the key isn't declared.
+     */
     public final T get(String key) {
-        T value = table.get(key);
-        if (value != null) {
-            return value;
-        }
-        else if (!table.containsKey(key) && parentScope != null) {
-            return parentScope.get(key);
+        for (Scope<T> scope = this; scope != null; scope = scope.parentScope) {
+            Map<String, T> entries = scope.table;
+            if (entries != null) {
+                T value = entries.get(key);
+                if (value != null || entries.containsKey(key)) {
+                    return value;
+                }
+            }
         }
-
         return null;
     }
 
+    /**
+     * Gets a copy of this Scope, with the entries from its ancestors merged in.
+     *
+     * Later changes to this Scope or its ancestors will not affect the copy,
+     * and vice versa.
+     *
+     * @return A new top-level Scope containing every key visible from this Scope.
+     */
+    public final Scope<T> flatten() {
+        Scope<T> result = new Scope<>(null);
+        for (Map.Entry<String, T> entry : entrySet()) {
+            result.declare(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
     /**
      * Adds a key to this Scope with an initial value.
      *
@@ -145,17 +182,20 @@ public class Scope<T> {
      * @see #declaresKey(java.lang.String)
      */
     public final void declare(String key, T value) {
+        if (table == null) {
+            table = new HashMap<>();
+        }
         table.put(key, value);
     }
 
     @Deprecated
     private Set<Map.Entry<String, T>> entrySet() {
-        Set<Map.Entry<String, T>> entries = table.entrySet();
+        Set<Map.Entry<String, T>> entries = table != null ? table.entrySet() : Collections.<Map.Entry<String, T>>emptySet();
 
         if (parentScope != null) {
             entries = new java.util.HashSet<>(entries);
             for (Map.Entry<String, T> entry : parentScope.entrySet()) {
-                if (!table.containsKey(entry.getKey())) {
+                if (table == null || !table.containsKey(entry.getKey())) {
                     entries.add(entry);
                 }
             }
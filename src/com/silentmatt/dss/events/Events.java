@@ -0,0 +1,177 @@
+package com.silentmatt.dss.events;
+
+import java.net.URL;
+import java.util.List;
+
+/**
+ * Emits diagnostic events for the expensive parts of a compile, so they show
+ * up in profiler recordings as more than anonymous evaluate frames.
+ *
+ * On a JVM with Java Flight Recorder, the events are recorded by
+ * {@link com.silentmatt.dss.events.jfr.JfrEvents} under the "DSS" category.
+ * Otherwise (or if the jfr package wasn't compiled) every method returns
+ * {@link Span#NONE}, which does nothing.
+ *
+ * Each method starts timing an event and returns a {@link Span}, which has to
+ * be ended when the work is done:
+ *
+ * <pre>
+ * Events.Span span = Events.include(url, false);
+ * try {
+ *     ...
+ * }
+ * finally {
+ *     span.end();
+ * }
+ * </pre>
+ *
+ * When recording is off, the spans aren't allocated and their arguments aren't
+ * formatted, so the only cost is a call that returns a constant.
+ *
+ * @author Matthew Crumley
+ */
+public abstract class Events {
+    /**
+     * A timed event that has started.
+     */
+    public abstract static class Span {
+        /**
+         * A span that isn't recorded.
+         */
+        public static final Span NONE = new Span() {
+            @Override
+            public boolean isEnabled() {
+                return false;
+            }
+
+            @Override
+            public void setSize(long size) {
+            }
+
+            @Override
+            public void end() {
+            }
+        };
+
+        /**
+         * Checks whether the event is being recorded, so callers can skip
+         * work that's only needed for the event.
+         *
+         * @return true if the event will be recorded.
+         */
+        public abstract boolean isEnabled();
+
+        /**
+         * Sets the number of bytes or characters the event processed. Events
+         * without a size ignore it.
+         *
+         * @param size The size.
+         */
+        public abstract void setSize(long size);
+
+        /**
+         * Stops timing the event and records it.
+         */
+        public abstract void end();
+    }
+
+    private static final String JFR_EVENTS = "com.silentmatt.dss.events.jfr.JfrEvents";
+
+    private static final Events INSTANCE = load();
+
+    /**
+     * Constructs an Events implementation.
+     */
+    protected Events() {
+    }
+
+    private static Events load() {
+        try {
+            return Class.forName(JFR_EVENTS).asSubclass(Events.class).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            return new Events() {
+            };
+        }
+    }
+
+    /**
+     * Starts a document parse event.
+     *
+     * @param url The URL of the document.
+     *
+     * @return The event's {@link Span}.
+     */
+    public static Span parse(URL url) {
+        return INSTANCE.beginParse(url);
+    }
+
+    /**
+     * Starts an include event, which covers getting and evaluating the
+     * included document.
+     *
+     * @param url The URL of the included document.
+     * @param literal true if the document is included as literal text.
+     *
+     * @return The event's {@link Span}.
+     */
+    public static Span include(URL url, boolean literal) {
+        return INSTANCE.beginInclude(url, literal);
+    }
+
+    /**
+     * Starts a class application event.
+     *
+     * @param className The name of the class being applied.
+     * @param argumentCount The number of arguments passed to the class.
+     *
+     * @return The event's {@link Span}.
+     */
+    public static Span classApplication(String className, int argumentCount) {
+        return INSTANCE.beginClassApplication(className, argumentCount);
+    }
+
+    /**
+     * Starts an event for evaluating a nested rule set as a top-level rule
+     * set.
+     *
+     * @param selectors The rule set's joined selectors. They are only
+     * formatted if the event is recorded.
+     *
+     * @return The event's {@link Span}.
+     */
+    public static Span nestedRuleSet(List<?> selectors) {
+        return INSTANCE.beginNestedRuleSet(selectors);
+    }
+
+    /**
+     * Starts a CSS serialization event. The span's size is the number of
+     * characters written.
+     *
+     * @param compact true if the output is compact.
+     *
+     * @return The event's {@link Span}.
+     */
+    public static Span write(boolean compact) {
+        return INSTANCE.beginWrite(compact);
+    }
+
+    protected Span beginParse(URL url) {
+        return Span.NONE;
+    }
+
+    protected Span beginInclude(URL url, boolean literal) {
+        return Span.NONE;
+    }
+
+    protected Span beginClassApplication(String className, int argumentCount) {
+        return Span.NONE;
+    }
+
+    protected Span beginNestedRuleSet(List<?> selectors) {
+        return Span.NONE;
+    }
+
+    protected Span beginWrite(boolean compact) {
+        return Span.NONE;
+    }
+}
@@ -0,0 +1,195 @@
+package com.silentmatt.dss.events.jfr;
+
+import com.google.common.base.Joiner;
+import com.silentmatt.dss.events.Events;
+import java.net.URL;
+import java.util.List;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Records {@link Events} with Java Flight Recorder.
+ *
+ * This is the only part of DSS that needs the jdk.jfr module, so the build
+ * leaves this package out on JDKs that don't have it, and {@link Events}
+ * falls back to doing nothing.
+ *
+ * Initializing the first event class starts up the recorder's internals,
+ * which takes a noticeable fraction of a second, so no events are created
+ * until Flight Recorder has been started, either on the command line or later
+ * with jcmd.
+ *
+ * @author Matthew Crumley
+ */
+public final class JfrEvents extends Events {
+    @Name("com.silentmatt.dss.Parse")
+    @Label("Parse")
+    @Category("DSS")
+    @Description("Reading and parsing a DSS document")
+    static final class ParseEvent extends Event {
+        @Label("URL")
+        String url;
+
+        @Label("Size")
+        @DataAmount
+        long bytes = -1;
+    }
+
+    @Name("com.silentmatt.dss.Include")
+    @Label("Include")
+    @Category("DSS")
+    @Description("Getting and evaluating an included document")
+    static final class IncludeEvent extends Event {
+        @Label("URL")
+        String url;
+
+        @Label("Literal")
+        boolean literal;
+    }
+
+    @Name("com.silentmatt.dss.ClassApplication")
+    @Label("Class Application")
+    @Category("DSS")
+    @Description("Applying a class to a block")
+    static final class ClassApplicationEvent extends Event {
+        @Label("Class")
+        String className;
+
+        @Label("Arguments")
+        int argumentCount;
+    }
+
+    @Name("com.silentmatt.dss.NestedRuleSet")
+    @Label("Nested Rule Set")
+    @Category("DSS")
+    @Description("Evaluating a nested rule set as a top-level rule set")
+    static final class NestedRuleSetEvent extends Event {
+        @Label("Selectors")
+        String selectors;
+    }
+
+    @Name("com.silentmatt.dss.Write")
+    @Label("Write CSS")
+    @Category("DSS")
+    @Description("Writing an evaluated document as CSS")
+    static final class WriteEvent extends Event {
+        @Label("Compact")
+        boolean compact;
+
+        @Label("Characters")
+        long characters = -1;
+    }
+
+    private static final Joiner SELECTOR_JOINER = Joiner.on(", ");
+
+    /**
+     * An event that has been started.
+     */
+    private static class EventSpan extends Span {
+        final Event event;
+
+        EventSpan(Event event) {
+            this.event = event;
+            event.begin();
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public void setSize(long size) {
+        }
+
+        @Override
+        public void end() {
+            event.end();
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    protected Span beginParse(URL url) {
+        if (!FlightRecorder.isInitialized()) {
+            return Span.NONE;
+        }
+        final ParseEvent parse = new ParseEvent();
+        if (!parse.isEnabled()) {
+            return Span.NONE;
+        }
+        parse.url = url.toExternalForm();
+        return new EventSpan(parse) {
+            @Override
+            public void setSize(long size) {
+                parse.bytes = size;
+            }
+        };
+    }
+
+    @Override
+    protected Span beginInclude(URL url, boolean literal) {
+        if (!FlightRecorder.isInitialized()) {
+            return Span.NONE;
+        }
+        IncludeEvent event = new IncludeEvent();
+        if (!event.isEnabled()) {
+            return Span.NONE;
+        }
+        event.url = url.toExternalForm();
+        event.literal = literal;
+        return new EventSpan(event);
+    }
+
+    @Override
+    protected Span beginClassApplication(String className, int argumentCount) {
+        if (!FlightRecorder.isInitialized()) {
+            return Span.NONE;
+        }
+        ClassApplicationEvent event = new ClassApplicationEvent();
+        if (!event.isEnabled()) {
+            return Span.NONE;
+        }
+        event.className = className;
+        event.argumentCount = argumentCount;
+        return new EventSpan(event);
+    }
+
+    @Override
+    protected Span beginNestedRuleSet(List<?> selectors) {
+        if (!FlightRecorder.isInitialized()) {
+            return Span.NONE;
+        }
+        NestedRuleSetEvent event = new NestedRuleSetEvent();
+        if (!event.isEnabled()) {
+            return Span.NONE;
+        }
+        event.selectors = SELECTOR_JOINER.join(selectors);
+        return new EventSpan(event);
+    }
+
+    @Override
+    protected Span beginWrite(boolean compact) {
+        if (!FlightRecorder.isInitialized()) {
+            return Span.NONE;
+        }
+        final WriteEvent write = new WriteEvent();
+        if (!write.isEnabled()) {
+            return Span.NONE;
+        }
+        write.compact = compact;
+        return new EventSpan(write) {
+            @Override
+            public void setSize(long size) {
+                write.characters = size;
+            }
+        };
+    }
+}
@@ -0,0 +1,442 @@
+package com.silentmatt.dss.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.CountingInputStream;
+import com.silentmatt.dss.DSSDocument;
+import com.silentmatt.dss.bool.BinaryBooleanExpression;
+import com.silentmatt.dss.bool.BooleanExpression;
+import com.silentmatt.dss.bool.BooleanOperation;
+import com.silentmatt.dss.bool.NotExpression;
+import com.silentmatt.dss.bool.TermBooleanExpression;
+import com.silentmatt.dss.calc.BinaryExpression;
+import com.silentmatt.dss.calc.CalcExpression;
+import com.silentmatt.dss.calc.NegationExpression;
+import com.silentmatt.dss.calc.Operation;
+import com.silentmatt.dss.calc.TermExpression;
+import com.silentmatt.dss.calc.Unit;
+import com.silentmatt.dss.declaration.Declaration;
+import com.silentmatt.dss.declaration.DeclarationList;
+import com.silentmatt.dss.declaration.Expression;
+import com.silentmatt.dss.directive.CharsetDirective;
+import com.silentmatt.dss.directive.ClassDirective;
+import com.silentmatt.dss.directive.DefineDirective;
+import com.silentmatt.dss.directive.FontFaceDirective;
+import com.silentmatt.dss.directive.GenericDirective;
+import com.silentmatt.dss.directive.IfDirective;
+import com.silentmatt.dss.directive.ImportDirective;
+import com.silentmatt.dss.directive.IncludeDirective;
+import com.silentmatt.dss.directive.MediaDirective;
+import com.silentmatt.dss.directive.NamespaceDirective;
+import com.silentmatt.dss.directive.PageDirective;
+import com.silentmatt.dss.media.MediaQuery;
+import com.silentmatt.dss.media.Medium;
+import com.silentmatt.dss.rule.DeclarationBlock;
+import com.silentmatt.dss.rule.NestedRuleSet;
+import com.silentmatt.dss.rule.Rule;
+import com.silentmatt.dss.rule.RuleSet;
+import com.silentmatt.dss.selector.Attribute;
+import com.silentmatt.dss.selector.AttributeOperator;
+import com.silentmatt.dss.selector.Combinator;
+import com.silentmatt.dss.selector.Selector;
+import com.silentmatt.dss.selector.SimpleSelector;
+import com.silentmatt.dss.term.AtReferenceTerm;
+import com.silentmatt.dss.term.CalculationLiteralTerm;
+import com.silentmatt.dss.term.CalculationTerm;
+import com.silentmatt.dss.term.ClassReferenceTerm;
+import com.silentmatt.dss.term.ConstTerm;
+import com.silentmatt.dss.term.FunctionTerm;
+import com.silentmatt.dss.term.HexTerm;
+import com.silentmatt.dss.term.NumberTerm;
+import com.silentmatt.dss.term.ParamTerm;
+import com.silentmatt.dss.term.PropertyTerm;
+import com.silentmatt.dss.term.RuleSetClassReferenceTerm;
+import com.silentmatt.dss.term.StringTerm;
+import com.silentmatt.dss.term.Term;
+import com.silentmatt.dss.term.UnicodeTerm;
+import com.silentmatt.dss.term.UrlTerm;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a {@link DSSDocument} written by {@link BinaryDocumentWriter}.
+ *
+ * @author Matthew Crumley
+ */
+public final class BinaryDocumentReader {
+    private static final Combinator[] COMBINATORS = Combinator.values();
+    private static final AttributeOperator[] ATTRIBUTE_OPERATORS = AttributeOperator.values();
+    private static final Medium[] MEDIUMS = Medium.values();
+    private static final Unit[] UNITS = Unit.values();
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final BooleanOperation[] BOOLEAN_OPERATIONS = BooleanOperation.values();
+
+    private final CountingInputStream counter;
+    private final DataInputStream in;
+    private final long length;
+    private final List<String> strings = new ArrayList<>();
+
+    /**
+     * Constructs a BinaryDocumentReader.
+     *
+     * @param in The stream to read from. It is not closed by the reader.
+     */
+    public BinaryDocumentReader(InputStream in) {
+        this(in, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a BinaryDocumentReader for a document of a known size, so
+     * string lengths that run past the end of the document are rejected
+     * before anything is allocated for them.
+     *
+     * @param in The stream to read from. It is not closed by the reader.
+     * @param length The number of bytes in the document.
+     */
+    public BinaryDocumentReader(InputStream in, long length) {
+        this.counter = new CountingInputStream(in);
+        this.in = new DataInputStream(counter);
+        this.length = length;
+    }
+
+    /**
+     * Reads the header and a document.
+     *
+     * @return The document.
+     *
+     * @throws IOException if the stream can't be read, was written by a
+     * different version, or is corrupt.
+     */
+    public DSSDocument readDocument() throws IOException {
+        if (in.readInt() != BinaryFormat.MAGIC) {
+            throw new IOException("Not a binary DSS document");
+        }
+        int version = in.readInt();
+        if (version != BinaryFormat.VERSION) {
+            throw new IOException("Unsupported binary DSS version: " + version);
+        }
+
+        DSSDocument.Builder document = new DSSDocument.Builder();
+        for (Rule rule : readRules()) {
+            document.addRule(rule);
+        }
+        return document.build();
+    }
+
+    private ImmutableList<Rule> readRules() throws IOException {
+        int count = readCount();
+        ImmutableList.Builder<Rule> rules = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            rules.add(readRule());
+        }
+        return rules.build();
+    }
+
+    private Rule readRule() throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+        case BinaryFormat.RULE_SET:
+            return readRuleSetBody();
+        case BinaryFormat.NESTED_RULE_SET:
+            return readNestedRuleSetBody();
+        case BinaryFormat.CLASS: {
+            String className = readString();
+            DeclarationList parameters = readDeclarations();
+            boolean global = in.readBoolean();
+            return new ClassDirective(className, parameters, global, readDeclarationBlock());
+        }
+        case BinaryFormat.DEFINE: {
+            DeclarationList declarations = readDeclarations();
+            boolean global = in.readBoolean();
+            return new DefineDirective(declarations, global, readBooleanExpression());
+        }
+        case BinaryFormat.FONT_FACE:
+            return new FontFaceDirective(readDeclarations());
+        case BinaryFormat.PAGE: {
+            SimpleSelector selector = readNullableSimpleSelector();
+            return new PageDirective(selector, readDeclarations());
+        }
+        case BinaryFormat.CHARSET:
+            return new CharsetDirective(readTerm());
+        case BinaryFormat.IMPORT: {
+            UrlTerm url = readUrlTerm();
+            String medium = readString();
+            return new ImportDirective(url, medium != null ? new MediaQuery(medium) : null);
+        }
+        case BinaryFormat.INCLUDE: {
+            UrlTerm url = readUrlTerm();
+            boolean literal = in.readBoolean();
+            return new IncludeDirective(url, literal, readDeclarations().toList());
+        }
+        case BinaryFormat.NAMESPACE: {
+            String prefix = readString();
+            return new NamespaceDirective(prefix, readUrlTerm());
+        }
+        case BinaryFormat.MEDIA: {
+            int count = readCount();
+            ImmutableList.Builder<MediaQuery> mediums = ImmutableList.builder();
+            for (int i = 0; i < count; i++) {
+                mediums.add(new MediaQuery(readString()));
+            }
+            return new MediaDirective(mediums.build(), readRules());
+        }
+        case BinaryFormat.IF: {
+            BooleanExpression condition = readBooleanExpression();
+            ImmutableList<Rule> ifRules = readRules();
+            ImmutableList<Rule> elseRules = in.readBoolean() ? readRules() : null;
+            return new IfDirective(condition, ifRules, elseRules);
+        }
+        case BinaryFormat.GENERIC: {
+            String name = readString();
+            int count = readCount();
+            ImmutableList.Builder<Medium> mediums = ImmutableList.builder();
+            for (int i = 0; i < count; i++) {
+                mediums.add(readEnum(MEDIUMS));
+            }
+            Expression expression = readNullableExpression();
+            DeclarationBlock block = readDeclarationBlock();
+            return new GenericDirective(block, readRules(), mediums.build(), name, expression);
+        }
+        default:
+            throw new IOException("Invalid rule type: " + type);
+        }
+    }
+
+    private RuleSet readRuleSetBody() throws IOException {
+        int count = readCount();
+        ImmutableList.Builder<Selector> selectors = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            selectors.add(readSelector());
+        }
+        return new RuleSet(selectors.build(), readDeclarationBlock());
+    }
+
+    private NestedRuleSet readNestedRuleSetBody() throws IOException {
+        Combinator combinator = readEnum(COMBINATORS);
+        BooleanExpression condition = readBooleanExpression();
+        return new NestedRuleSet(combinator, readRuleSetBody(), condition);
+    }
+
+    private DeclarationBlock readDeclarationBlock() throws IOException {
+        DeclarationList declarations = readDeclarations();
+        int count = readCount();
+        ImmutableList.Builder<NestedRuleSet> nested = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            nested.add(readNestedRuleSetBody());
+        }
+        return new DeclarationBlock(declarations, nested.build(), readRules());
+    }
+
+    private DeclarationList readDeclarations() throws IOException {
+        int count = readCount();
+        if (count == 0) {
+            return DeclarationList.EMPTY;
+        }
+
+        ImmutableList.Builder<Declaration> declarations = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            String name = readString();
+            boolean important = in.readBoolean();
+            Expression expression = readNullableExpression();
+            declarations.add(new Declaration(name, expression, important, readBooleanExpression()));
+        }
+        return new DeclarationList(declarations.build());
+    }
+
+    private Selector readSelector() throws IOException {
+        int count = readCount();
+        Selector.Builder selector = new Selector.Builder();
+        for (int i = 0; i < count; i++) {
+            selector.addSimpleSelector(readSimpleSelector());
+        }
+        return selector.build();
+    }
+
+    private SimpleSelector readNullableSimpleSelector() throws IOException {
+        return in.readBoolean() ? readSimpleSelector() : null;
+    }
+
+    private SimpleSelector readSimpleSelector() throws IOException {
+        Combinator combinator = readEnum(COMBINATORS);
+        String elementName = readString();
+        String id = readString();
+        String className = readString();
+        String pseudo = readString();
+        Attribute attribute = null;
+        if (in.readBoolean()) {
+            String operand = readString();
+            int operator = readCount();
+            String value = readString();
+            attribute = new Attribute(operand, operator == 0 ? null : readEnum(ATTRIBUTE_OPERATORS, operator - 1), value);
+        }
+        SimpleSelector child = readNullableSimpleSelector();
+        return new SimpleSelector(combinator, elementName, id, className, pseudo, attribute, child);
+    }
+
+    private Expression readNullableExpression() throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        int count = readCount();
+        if (count == 1) {
+            return new Expression(readTerm());
+        }
+
+        ImmutableList.Builder<Term> terms = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            terms.add(readTerm());
+        }
+        return new Expression(terms.build());
+    }
+
+    private UrlTerm readUrlTerm() throws IOException {
+        Term term = readTerm();
+        if (!(term instanceof UrlTerm)) {
+            throw new IOException("Expected a url term");
+        }
+        return (UrlTerm) term;
+    }
+
+    private Term readTerm() throws IOException {
+        byte type = in.readByte();
+        Character sep = readSeparator();
+        switch (type) {
+        case BinaryFormat.NUMBER: {
+            double value = in.readDouble();
+            return new NumberTerm(sep, value, readEnum(UNITS));
+        }
+        case BinaryFormat.STRING:
+            return new StringTerm(sep, readString());
+        case BinaryFormat.HEX:
+            return new HexTerm(sep, readString());
+        case BinaryFormat.FUNCTION: {
+            String name = readString();
+            return new FunctionTerm(sep, name, readNullableExpression());
+        }
+        case BinaryFormat.URL:
+            return new UrlTerm(sep, readString());
+        case BinaryFormat.UNICODE:
+            return new UnicodeTerm(sep, readString());
+        case BinaryFormat.CONST:
+            return new ConstTerm(sep, readString());
+        case BinaryFormat.PARAM:
+            return new ParamTerm(sep, readString());
+        case BinaryFormat.PROPERTY:
+            return new PropertyTerm(sep, readString());
+        case BinaryFormat.AT_REFERENCE:
+            return new AtReferenceTerm(sep, readString());
+        case BinaryFormat.CLASS_REFERENCE: {
+            String name = readString();
+            return new ClassReferenceTerm(sep, name, readDeclarations());
+        }
+        case BinaryFormat.RULE_SET_CLASS_REFERENCE:
+            return new RuleSetClassReferenceTerm(sep, readSelector());
+        case BinaryFormat.CALCULATION:
+            return new CalculationTerm(sep, readCalculation());
+        case BinaryFormat.CALCULATION_LITERAL: {
+            String prefix = readString();
+            return new CalculationLiteralTerm(sep, prefix, readCalculation());
+        }
+        default:
+            throw new IOException("Invalid term type: " + type);
+        }
+    }
+
+    private Character readSeparator() throws IOException {
+        int separator = readCount();
+        return separator == 0 ? null : Character.valueOf((char) (separator - 1));
+    }
+
+    private CalcExpression readCalculation() throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+        case BinaryFormat.CALC_BINARY: {
+            Operation operation = readEnum(OPERATIONS);
+            CalcExpression left = readCalculation();
+            return new BinaryExpression(operation, left, readCalculation());
+        }
+        case BinaryFormat.CALC_NEGATION:
+            return new NegationExpression(readCalculation());
+        case BinaryFormat.CALC_TERM:
+            return new TermExpression(readTerm());
+        default:
+            throw new IOException("Invalid calculation type: " + type);
+        }
+    }
+
+    private BooleanExpression readBooleanExpression() throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+        case BinaryFormat.BOOL_NULL:
+            return null;
+        case BinaryFormat.BOOL_TRUE:
+            return BooleanExpression.TRUE;
+        case BinaryFormat.BOOL_FALSE:
+            return BooleanExpression.FALSE;
+        case BinaryFormat.BOOL_BINARY: {
+            BooleanOperation operation = readEnum(BOOLEAN_OPERATIONS);
+            BooleanExpression left = readBooleanExpression();
+            return new BinaryBooleanExpression(operation, left, readBooleanExpression());
+        }
+        case BinaryFormat.BOOL_NOT:
+            return new NotExpression(readBooleanExpression());
+        case BinaryFormat.BOOL_TERM:
+            return new TermBooleanExpression(readTerm());
+        default:
+            throw new IOException("Invalid condition type: " + type);
+        }
+    }
+
+    private String readString() throws IOException {
+        int index = readCount();
+        if (index == 0) {
+            return null;
+        }
+        if (index <= strings.size()) {
+            return strings.get(index - 1);
+        }
+        if (index != strings.size() + 1) {
+            throw new IOException("Invalid string index: " + index);
+        }
+
+        int size = readCount();
+        if (size > length - counter.getCount()) {
+            throw new IOException("Invalid string length: " + size);
+        }
+        byte[] bytes = new byte[size];
+        in.readFully(bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        strings.add(value);
+        return value;
+    }
+
+    private <T> T readEnum(T[] values) throws IOException {
+        return readEnum(values, readCount());
+    }
+
+    private static <T> T readEnum(T[] values, int ordinal) throws IOException {
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IOException("Invalid enum value: " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    private int readCount() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IOException("Invalid count");
+    }
+}
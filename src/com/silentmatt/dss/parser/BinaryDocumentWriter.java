@@ -0,0 +1,444 @@
+package com.silentmatt.dss.parser;
+
+import com.silentmatt.dss.DSSDocument;
+import com.silentmatt.dss.bool.BinaryBooleanExpression;
+import com.silentmatt.dss.bool.BooleanExpression;
+import com.silentmatt.dss.bool.NotExpression;
+import com.silentmatt.dss.bool.TermBooleanExpression;
+import com.silentmatt.dss.calc.BinaryExpression;
+import com.silentmatt.dss.calc.CalcExpression;
+import com.silentmatt.dss.calc.NegationExpression;
+import com.silentmatt.dss.calc.TermExpression;
+import com.silentmatt.dss.declaration.Declaration;
+import com.silentmatt.dss.declaration.DeclarationList;
+import com.silentmatt.dss.declaration.Expression;
+import com.silentmatt.dss.directive.CharsetDirective;
+import com.silentmatt.dss.directive.ClassDirective;
+import com.silentmatt.dss.directive.DefineDirective;
+import com.silentmatt.dss.directive.FontFaceDirective;
+import com.silentmatt.dss.directive.GenericDirective;
+import com.silentmatt.dss.directive.IfDirective;
+import com.silentmatt.dss.directive.ImportDirective;
+import com.silentmatt.dss.directive.IncludeDirective;
+import com.silentmatt.dss.directive.MediaDirective;
+import com.silentmatt.dss.directive.NamespaceDirective;
+import com.silentmatt.dss.directive.PageDirective;
+import com.silentmatt.dss.media.MediaQuery;
+import com.silentmatt.dss.media.Medium;
+import com.silentmatt.dss.rule.DeclarationBlock;
+import com.silentmatt.dss.rule.NestedRuleSet;
+import com.silentmatt.dss.rule.Rule;
+import com.silentmatt.dss.rule.RuleSet;
+import com.silentmatt.dss.selector.Attribute;
+import com.silentmatt.dss.selector.Selector;
+import com.silentmatt.dss.selector.SimpleSelector;
+import com.silentmatt.dss.term.AtReferenceTerm;
+import com.silentmatt.dss.term.CalculationLiteralTerm;
+import com.silentmatt.dss.term.CalculationTerm;
+import com.silentmatt.dss.term.ClassReferenceTerm;
+import com.silentmatt.dss.term.ConstTerm;
+import com.silentmatt.dss.term.FunctionTerm;
+import com.silentmatt.dss.term.HexTerm;
+import com.silentmatt.dss.term.NumberTerm;
+import com.silentmatt.dss.term.ParamTerm;
+import com.silentmatt.dss.term.PropertyTerm;
+import com.silentmatt.dss.term.RuleSetClassReferenceTerm;
+import com.silentmatt.dss.term.StringTerm;
+import com.silentmatt.dss.term.Term;
+import com.silentmatt.dss.term.UnicodeTerm;
+import com.silentmatt.dss.term.UrlTerm;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a parsed {@link DSSDocument} in a compact binary format.
+ *
+ * The output starts with a header containing the format version, followed by
+ * the syntax tree. Strings are only written the first time they appear, and
+ * referenced by index after that. Use {@link BinaryDocumentReader} to read the
+ * document back.
+ *
+ * Only the node types the parser creates are supported. Anything else (for
+ * example, rules created during evaluation) causes an {@link IOException}.
+ *
+ * @author Matthew Crumley
+ */
+public final class BinaryDocumentWriter {
+    private final DataOutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    /**
+     * Constructs a BinaryDocumentWriter.
+     *
+     * @param out The stream to write to. It is not closed by the writer.
+     */
+    public BinaryDocumentWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    /**
+     * Writes the header and a document.
+     *
+     * @param document The document to write.
+     *
+     * @throws IOException if the document can't be written.
+     */
+    public void writeDocument(DSSDocument document) throws IOException {
+        out.writeInt(BinaryFormat.MAGIC);
+        out.writeInt(BinaryFormat.VERSION);
+        writeRules(document.getRules());
+        out.flush();
+    }
+
+    private void writeRules(List<? extends Rule> rules) throws IOException {
+        writeCount(rules.size());
+        for (Rule rule : rules) {
+            writeRule(rule);
+        }
+    }
+
+    private void writeRule(Rule rule) throws IOException {
+        Class<?> type = rule.getClass();
+        if (type == RuleSet.class) {
+            out.writeByte(BinaryFormat.RULE_SET);
+            writeRuleSetBody((RuleSet) rule);
+        }
+        else if (type == NestedRuleSet.class) {
+            out.writeByte(BinaryFormat.NESTED_RULE_SET);
+            writeNestedRuleSetBody((NestedRuleSet) rule);
+        }
+        else if (type == ClassDirective.class) {
+            ClassDirective dir = (ClassDirective) rule;
+            out.writeByte(BinaryFormat.CLASS);
+            writeString(dir.getClassName());
+            writeDeclarations(dir.getParameters());
+            out.writeBoolean(dir.isGlobal());
+            writeDeclarationBlock(dir.getDeclarationBlock());
+        }
+        else if (type == DefineDirective.class) {
+            DefineDirective dir = (DefineDirective) rule;
+            out.writeByte(BinaryFormat.DEFINE);
+            writeDeclarations(dir.getDeclarationBlock().getDeclarations());
+            out.writeBoolean(dir.isGlobal());
+            writeBooleanExpression(dir.getCondition());
+        }
+        else if (type == FontFaceDirective.class) {
+            out.writeByte(BinaryFormat.FONT_FACE);
+            writeDeclarations(((FontFaceDirective) rule).getDeclarationBlock().getDeclarations());
+        }
+        else if (type == PageDirective.class) {
+            PageDirective dir = (PageDirective) rule;
+            out.writeByte(BinaryFormat.PAGE);
+            writeNullableSimpleSelector(dir.getSelector());
+            writeDeclarations(dir.getDeclarationBlock().getDeclarations());
+        }
+        else if (type == CharsetDirective.class) {
+            out.writeByte(BinaryFormat.CHARSET);
+            writeTerm(((CharsetDirective) rule).getExpression().getTerms().get(0));
+        }
+        else if (type == ImportDirective.class) {
+            ImportDirective dir = (ImportDirective) rule;
+            out.writeByte(BinaryFormat.IMPORT);
+            writeTerm(dir.getExpression().getTerms().get(0));
+            writeString(dir.getMedium() != null ? dir.getMedium().toString() : null);
+        }
+        else if (type == IncludeDirective.class) {
+            IncludeDirective dir = (IncludeDirective) rule;
+            out.writeByte(BinaryFormat.INCLUDE);
+            writeTerm(dir.getExpression().getTerms().get(0));
+            out.writeBoolean(dir.isRaw());
+            writeDeclarations(dir.getParameters());
+        }
+        else if (type == NamespaceDirective.class) {
+            NamespaceDirective dir = (NamespaceDirective) rule;
+            out.writeByte(BinaryFormat.NAMESPACE);
+            writeString(dir.getPrefix());
+            writeTerm(dir.getExpression().getTerms().get(0));
+        }
+        else if (type == MediaDirective.class) {
+            MediaDirective dir = (MediaDirective) rule;
+            out.writeByte(BinaryFormat.MEDIA);
+            writeCount(dir.getMediums().size());
+            for (MediaQuery query : dir.getMediums()) {
+                writeString(query.toString());
+            }
+            writeRules(dir.getRules());
+        }
+        else if (type == IfDirective.class) {
+            IfDirective dir = (IfDirective) rule;
+            out.writeByte(BinaryFormat.IF);
+            writeBooleanExpression(dir.getCondition());
+            writeRules(dir.getIfRules());
+            out.writeBoolean(dir.getElseRules() != null);
+            if (dir.getElseRules() != null) {
+                writeRules(dir.getElseRules());
+            }
+        }
+        else if (type == GenericDirective.class) {
+            GenericDirective dir = (GenericDirective) rule;
+            out.writeByte(BinaryFormat.GENERIC);
+            writeString(dir.getName());
+            writeCount(dir.getMediums().size());
+            for (Medium medium : dir.getMediums()) {
+                writeCount(medium.ordinal());
+            }
+            writeNullableExpression(dir.getExpression());
+            writeDeclarationBlock(dir.getDeclarationBlock());
+            writeRules(dir.getRules());
+        }
+        else {
+            throw new IOException("Unsupported rule type: " + type.getName());
+        }
+    }
+
+    private void writeRuleSetBody(RuleSet rs) throws IOException {
+        writeCount(rs.getSelectors().size());
+        for (Selector selector : rs.getSelectors()) {
+            writeSelector(selector);
+        }
+        writeDeclarationBlock(rs.getDeclarationBlock());
+    }
+
+    private void writeNestedRuleSetBody(NestedRuleSet rs) throws IOException {
+        writeCount(rs.getCombinator().ordinal());
+        writeBooleanExpression(rs.getCondition());
+        writeRuleSetBody(rs);
+    }
+
+    private void writeDeclarationBlock(DeclarationBlock block) throws IOException {
+        writeDeclarations(block.getDeclarations());
+        writeCount(block.getNestedRuleSets().size());
+        for (NestedRuleSet rs : block.getNestedRuleSets()) {
+            if (rs.getClass() != NestedRuleSet.class) {
+                throw new IOException("Unsupported rule type: " + rs.getClass().getName());
+            }
+            writeNestedRuleSetBody(rs);
+        }
+        writeRules(block.getRules());
+    }
+
+    private void writeDeclarations(DeclarationList declarations) throws IOException {
+        writeCount(declarations.size());
+        for (Declaration declaration : declarations) {
+            writeString(declaration.getName());
+            out.writeBoolean(declaration.isImportant());
+            writeNullableExpression(declaration.getExpression());
+            writeBooleanExpression(declaration.getCondition());
+        }
+    }
+
+    private void writeSelector(Selector selector) throws IOException {
+        writeCount(selector.getSimpleSelectors().size());
+        for (SimpleSelector ss : selector.getSimpleSelectors()) {
+            writeSimpleSelector(ss);
+        }
+    }
+
+    private void writeNullableSimpleSelector(SimpleSelector ss) throws IOException {
+        out.writeBoolean(ss != null);
+        if (ss != null) {
+            writeSimpleSelector(ss);
+        }
+    }
+
+    private void writeSimpleSelector(SimpleSelector ss) throws IOException {
+        writeCount(ss.getCombinator().ordinal());
+        writeString(ss.getElementName());
+        writeString(ss.getID());
+        writeString(ss.getClassName());
+        writeString(ss.getPseudo());
+        Attribute attribute = ss.getAttribute();
+        out.writeBoolean(attribute != null);
+        if (attribute != null) {
+            writeString(attribute.getOperand());
+            writeCount(attribute.getOperator() != null ? attribute.getOperator().ordinal() + 1 : 0);
+            writeString(attribute.getValue());
+        }
+        writeNullableSimpleSelector(ss.getChild());
+    }
+
+    private void writeNullableExpression(Expression expression) throws IOException {
+        out.writeBoolean(expression != null);
+        if (expression != null) {
+            writeCount(expression.getTerms().size());
+            for (Term term : expression.getTerms()) {
+                writeTerm(term);
+            }
+        }
+    }
+
+    private void writeTerm(Term term) throws IOException {
+        Class<?> type = term.getClass();
+        if (type == NumberTerm.class) {
+            NumberTerm number = (NumberTerm) term;
+            out.writeByte(BinaryFormat.NUMBER);
+            writeSeparator(term);
+            out.writeDouble(number.getValue());
+            writeCount(number.getUnit().ordinal());
+        }
+        else if (type == StringTerm.class) {
+            out.writeByte(BinaryFormat.STRING);
+            writeSeparator(term);
+            writeString(((StringTerm) term).getValue());
+        }
+        else if (type == HexTerm.class) {
+            out.writeByte(BinaryFormat.HEX);
+            writeSeparator(term);
+            writeString(((HexTerm) term).getValue());
+        }
+        else if (type == FunctionTerm.class) {
+            FunctionTerm function = (FunctionTerm) term;
+            out.writeByte(BinaryFormat.FUNCTION);
+            writeSeparator(term);
+            writeString(function.getName());
+            writeNullableExpression(function.getExpression());
+        }
+        else if (type == UrlTerm.class) {
+            out.writeByte(BinaryFormat.URL);
+            writeSeparator(term);
+            writeString(((UrlTerm) term).getValue());
+        }
+        else if (type == UnicodeTerm.class) {
+            out.writeByte(BinaryFormat.UNICODE);
+            writeSeparator(term);
+            writeString(((UnicodeTerm) term).getValue());
+        }
+        else if (type == ConstTerm.class) {
+            out.writeByte(BinaryFormat.CONST);
+            writeSeparator(term);
+            writeString(((ConstTerm) term).getName());
+        }
+        else if (type == ParamTerm.class) {
+            out.writeByte(BinaryFormat.PARAM);
+            writeSeparator(term);
+            writeString(((ParamTerm) term).getName());
+        }
+        else if (type == PropertyTerm.class) {
+            out.writeByte(BinaryFormat.PROPERTY);
+            writeSeparator(term);
+            writeString(((PropertyTerm) term).getName());
+        }
+        else if (type == AtReferenceTerm.class) {
+            out.writeByte(BinaryFormat.AT_REFERENCE);
+            writeSeparator(term);
+            writeString(((AtReferenceTerm) term).getName());
+        }
+        else if (type == ClassReferenceTerm.class) {
+            ClassReferenceTerm reference = (ClassReferenceTerm) term;
+            out.writeByte(BinaryFormat.CLASS_REFERENCE);
+            writeSeparator(term);
+            writeString(reference.getName());
+            writeDeclarations(reference.getArguments());
+        }
+        else if (type == RuleSetClassReferenceTerm.class) {
+            out.writeByte(BinaryFormat.RULE_SET_CLASS_REFERENCE);
+            writeSeparator(term);
+            writeSelector(((RuleSetClassReferenceTerm) term).getSelector());
+        }
+        else if (type == CalculationTerm.class) {
+            out.writeByte(BinaryFormat.CALCULATION);
+            writeSeparator(term);
+            writeCalculation(((CalculationTerm) term).getCalculation());
+        }
+        else if (type == CalculationLiteralTerm.class) {
+            CalculationLiteralTerm calc = (CalculationLiteralTerm) term;
+            out.writeByte(BinaryFormat.CALCULATION_LITERAL);
+            writeSeparator(term);
+            writeString(calc.getPrefix());
+            writeCalculation(calc.getCalculation());
+        }
+        else {
+            throw new IOException("Unsupported term type: " + type.getName());
+        }
+    }
+
+    private void writeSeparator(Term term) throws IOException {
+        Character separator = term.getSeperator();
+        writeCount(separator == null ? 0 : separator + 1);
+    }
+
+    private void writeCalculation(CalcExpression calc) throws IOException {
+        Class<?> type = calc.getClass();
+        if (type == BinaryExpression.class) {
+            BinaryExpression binary = (BinaryExpression) calc;
+            out.writeByte(BinaryFormat.CALC_BINARY);
+            writeCount(binary.getOperation().ordinal());
+            writeCalculation(binary.getLeft());
+            writeCalculation(binary.getRight());
+        }
+        else if (type == NegationExpression.class) {
+            out.writeByte(BinaryFormat.CALC_NEGATION);
+            writeCalculation(((NegationExpression) calc).getExpression());
+        }
+        else if (type == TermExpression.class) {
+            out.writeByte(BinaryFormat.CALC_TERM);
+            writeTerm(((TermExpression) calc).getValue());
+        }
+        else {
+            throw new IOException("Unsupported calculation type: " + type.getName());
+        }
+    }
+
+    private void writeBooleanExpression(BooleanExpression expr) throws IOException {
+        if (expr == null) {
+            out.writeByte(BinaryFormat.BOOL_NULL);
+        }
+        else if (expr == BooleanExpression.TRUE) {
+            out.writeByte(BinaryFormat.BOOL_TRUE);
+        }
+        else if (expr == BooleanExpression.FALSE) {
+            out.writeByte(BinaryFormat.BOOL_FALSE);
+        }
+        else if (expr instanceof BinaryBooleanExpression) {
+            BinaryBooleanExpression binary = (BinaryBooleanExpression) expr;
+            out.writeByte(BinaryFormat.BOOL_BINARY);
+            writeCount(binary.getOperation().ordinal());
+            writeBooleanExpression(binary.getLeft());
+            writeBooleanExpression(binary.getRight());
+        }
+        else if (expr instanceof NotExpression) {
+            out.writeByte(BinaryFormat.BOOL_NOT);
+            writeBooleanExpression(((NotExpression) expr).getExpression());
+        }
+        else if (expr instanceof TermBooleanExpression) {
+            out.writeByte(BinaryFormat.BOOL_TERM);
+            writeTerm(((TermBooleanExpression) expr).getValue());
+        }
+        else {
+            throw new IOException("Unsupported condition type: " + expr.getClass().getName());
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeCount(0);
+            return;
+        }
+
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeCount(index + 1);
+        }
+        else {
+            index = strings.size();
+            strings.put(value, index);
+            writeCount(index + 1);
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeCount(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private void writeCount(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
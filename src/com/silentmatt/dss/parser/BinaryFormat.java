@@ -0,0 +1,61 @@
+package com.silentmatt.dss.parser;
+
+/**
+ * Constants shared by {@link BinaryDocumentWriter} and {@link BinaryDocumentReader}.
+ *
+ * Any change to the encoding, or to the shape of the syntax tree, needs to
+ * increment {@link #VERSION} so that existing cache entries are ignored.
+ *
+ * @author Matthew Crumley
+ */
+final class BinaryFormat {
+    private BinaryFormat() {
+    }
+
+    static final int MAGIC = 0x44535343; // "DSSC"
+    static final int VERSION = 1;
+
+    // Rules
+    static final byte RULE_SET = 1;
+    static final byte NESTED_RULE_SET = 2;
+    static final byte CLASS = 3;
+    static final byte DEFINE = 4;
+    static final byte FONT_FACE = 5;
+    static final byte PAGE = 6;
+    static final byte CHARSET = 7;
+    static final byte IMPORT = 8;
+    static final byte INCLUDE = 9;
+    static final byte NAMESPACE = 10;
+    static final byte MEDIA = 11;
+    static final byte IF = 12;
+    static final byte GENERIC = 13;
+
+    // Terms
+    static final byte AT_REFERENCE = 1;
+    static final byte CALCULATION_LITERAL = 2;
+    static final byte CALCULATION = 3;
+    static final byte CLASS_REFERENCE = 4;
+    static final byte CONST = 5;
+    static final byte FUNCTION = 6;
+    static final byte HEX = 7;
+    static final byte NUMBER = 8;
+    static final byte PARAM = 9;
+    static final byte PROPERTY = 10;
+    static final byte RULE_SET_CLASS_REFERENCE = 11;
+    static final byte STRING = 12;
+    static final byte UNICODE = 13;
+    static final byte URL = 14;
+
+    // Calculations
+    static final byte CALC_BINARY = 1;
+    static final byte CALC_NEGATION = 2;
+    static final byte CALC_TERM = 3;
+
+    // Boolean expressions
+    static final byte BOOL_NULL = 0;
+    static final byte BOOL_TRUE = 1;
+    static final byte BOOL_FALSE = 2;
+    static final byte BOOL_BINARY = 3;
+    static final byte BOOL_NOT = 4;
+    static final byte BOOL_TERM = 5;
+}
@@ -1,6 +1,5 @@
 package com.silentmatt.dss.parser;
 
-import com.google.common.base.Charsets;
 import com.silentmatt.dss.DSSDocument;
 import com.silentmatt.dss.declaration.Declaration;
 import com.silentmatt.dss.declaration.Expression;
@@ -21,7 +20,6 @@ import com.silentmatt.dss.rule.Rule;
 import com.silentmatt.dss.rule.RuleSet;
 import com.silentmatt.dss.selector.Selector;
 import com.silentmatt.dss.term.Term;
-import java.io.ByteArrayInputStream;
 
 /**
  *
@@ -54,8 +52,8 @@ public class DSSParser {
         return Parser.getErrorMessage(n);
     }
 
-    private static Parser getParser(String text, ErrorReporter errors) {
-        Parser parser = new Parser(new Scanner(new ByteArrayInputStream(text.getBytes(Charsets.UTF_8))));
+    private static Parser getParser(CharSequence text, ErrorReporter errors) {
+        Parser parser = new Parser(Scanner.fromText(text));
         parser.errors = errors != null ? errors : new ExceptionErrorReporter(new NullErrorReporter());
         parser.la = new Token();
 		parser.la.val = "";
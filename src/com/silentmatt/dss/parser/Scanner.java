@@ -3,6 +3,7 @@ package com.silentmatt.dss.parser;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.CharBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -36,6 +37,10 @@ class Buffer {
 	private RandomAccessFile file; // input stream (seekable)
 	private InputStream stream; // growing input stream (e.g.: console, network)
 
+	// called by subclasses that manage their own input
+	protected Buffer() {
+	}
+
 	public Buffer(InputStream s) {
 		stream = s;
 		fileLen = bufLen = bufStart = bufPos = 0;
@@ -122,7 +127,7 @@ class Buffer {
 		return bufPos + bufStart;
 	}
 
-	public final void setPos(int value) {
+	public void setPos(int value) {
 		if (value >= fileLen && stream != null) {
 			// Wanted position is after buffer and the stream
 			// is not seek-able e.g. network or console,
@@ -220,27 +225,65 @@ class UTF8Buffer extends Buffer {
 }
 
 //-----------------------------------------------------------------------------------
-// StartStates  -- maps characters to start states of tokens
+// DecodedBuffer -- input that is already made of characters
 //-----------------------------------------------------------------------------------
-class StartStates {
-	private static class Elem {
-		public int key, val;
-		public Elem next;
-		public Elem(int key, int val) { this.key = key; this.val = val; }
+class DecodedBuffer extends Buffer {
+	private final CharBuffer chars;
+	private final int length;
+	private int pos;
+
+	DecodedBuffer(CharBuffer chars) {
+		this.chars = chars.slice();
+		this.length = this.chars.limit();
+		this.pos = 0;
+	}
+
+	@Override
+	public int Read() {
+		return pos < length ? chars.get(pos++) : EOF;
+	}
+
+	@Override
+	public int Peek() {
+		return pos < length ? chars.get(pos) : EOF;
 	}
 
-	private Elem[] tab = new Elem[128];
+	@Override
+	public String GetString(int beg, int end) {
+		if (chars.hasArray()) {
+			return new String(chars.array(), chars.arrayOffset() + beg, end - beg);
+		}
+		return chars.subSequence(beg, end).toString();
+	}
+
+	@Override
+	public int getPos() {
+		return pos;
+	}
+
+	@Override
+	public void setPos(int value) {
+		if (value < 0 || value > length) {
+			throw new FatalError("buffer out of bounds access, position: " + value);
+		}
+		pos = value;
+	}
+}
+
+//-----------------------------------------------------------------------------------
+// StartStates  -- maps characters to start states of tokens
+//-----------------------------------------------------------------------------------
+class StartStates {
+	// indexed directly by character, since identifiers can start with
+	// almost any non-ASCII character
+	private final int[] tab = new int[Buffer.EOF + 1];
 
 	public void set(int key, int val) {
-		Elem e = new Elem(key, val);
-		int k = key % 128;
-		e.next = tab[k]; tab[k] = e;
+		tab[key] = val;
 	}
 
 	public int state(int key) {
-		Elem e = tab[key % 128];
-		while (e != null && e.key != key) e = e.next;
-		return e == null ? 0: e.val;
+		return key < tab.length ? tab[key] : 0;
 	}
 }
 
@@ -365,6 +408,25 @@ public class Scanner {
 		buffer = new Buffer(s);
 		Init();
 	}
+
+	// scans the text of a document (the String constructor opens a file);
+	// the characters are read directly, without encoding them to UTF-8 first
+	public static Scanner fromText(CharSequence text) {
+		return new Scanner(CharBuffer.wrap(text));
+	}
+
+	// positions are counted in characters instead of bytes
+	public Scanner(CharBuffer chars) {
+		buffer = new DecodedBuffer(chars);
+		pos = -1; line = 1; col = 0;
+		oldEols = 0;
+		NextCh();
+		if (ch == 0xFEFF) { // skip the byte order mark
+			col = 0;
+			NextCh();
+		}
+		pt = tokens = new Token();  // first token is a dummy
+	}
 	
 	final void Init () {
 		pos = -1; line = 1; col = 0;
@@ -11,9 +11,10 @@ import com.silentmatt.dss.directive.ClassDirective;
 import com.silentmatt.dss.directive.DeclarationDirective;
 import com.silentmatt.dss.directive.GenericDirective;
 import com.silentmatt.dss.directive.RuleSetClass;
+import com.silentmatt.dss.evaluator.ClassExpansionCache;
 import com.silentmatt.dss.evaluator.EvaluationState;
+import com.silentmatt.dss.events.Events;
 import com.silentmatt.dss.selector.Combinator;
-import com.silentmatt.dss.selector.Selector;
 import com.silentmatt.dss.term.ClassReferenceTerm;
 import com.silentmatt.dss.term.RuleSetClassReferenceTerm;
 import com.silentmatt.dss.term.Term;
@@ -202,12 +203,7 @@ public final class DeclarationBlock {
      * @return A {@link Declaration} with the specified name, or null if none exists.
      */
     public Declaration getDeclaration(String name) {
-        for (Declaration d : declarations) {
-            if (d.getName().equalsIgnoreCase(name)) {
-                return d;
-            }
-        }
-        return null;
+        return declarations.getFirstDeclaration(name);
     }
 
     /**
@@ -340,6 +336,44 @@ public final class DeclarationBlock {
     }
 
     private static void addInheritedProperties(DeclarationBlock.Builder result, EvaluationState state, ClassDirective clazz, DeclarationList args) throws IOException {
+        if (state.getStatistics() != null) {
+            state.getStatistics().addClassApplication();
+        }
+
+        Events.Span span = Events.classApplication(clazz.getClassName(), args.size());
+        try {
+            applyClass(result, state, clazz, args);
+        }
+        finally {
+            span.end();
+        }
+    }
+
+    private static void applyClass(DeclarationBlock.Builder result, EvaluationState state, ClassDirective clazz, DeclarationList args) throws IOException {
+        ClassExpansionCache cache = state.getClassCache();
+        ClassExpansionCache.Key key = cache.getKey(clazz, args);
+        if (key != null) {
+            ClassExpansionCache.Expansion expansion = cache.get(key);
+            if (state.getStatistics() != null) {
+                if (expansion != null) {
+                    state.getStatistics().addClassCacheHit();
+                }
+                else {
+                    state.getStatistics().addClassCacheMiss();
+                }
+            }
+            if (expansion != null) {
+                for (Declaration declaration : expansion.getDeclarations()) {
+                    result.addDeclaration(declaration);
+                }
+                for (NestedRuleSet rs : expansion.getNestedRuleSets()) {
+                    result.addNestedRuleSet(rs);
+                }
+                return;
+            }
+        }
+        int messages = state.getErrors().getErrorCount() + state.getErrors().getWarningCount();
+
         // Make a copy of the properties, to substitute parameters into
         ArrayList<Declaration> properties = new ArrayList<>();
         for (Declaration prop : clazz.getDeclarations(args)) {
@@ -349,6 +383,7 @@ public final class DeclarationBlock {
             }
         }
 
+        List<NestedRuleSet> nestedRuleSets = new ArrayList<>();
         state.pushParameters(setArguments(state, clazz, args));
         try {
             for (int i = 0; i < properties.size(); i++) {
@@ -363,33 +398,24 @@ public final class DeclarationBlock {
             for (NestedRuleSet rs : clazz.getNestedRuleSets()) {
                 Boolean cond = rs.getCondition().evaluate(state);
                 if (cond != null && cond) {
-                    result.addNestedRuleSet(rs.substituteValues(state).withCondition(BooleanExpression.TRUE));
+                    NestedRuleSet nested = rs.substituteValues(state).withCondition(BooleanExpression.TRUE);
+                    result.addNestedRuleSet(nested);
+                    nestedRuleSets.add(nested);
                 }
             }
         }
         finally {
             state.popParameters();
         }
-    }
-
-    private static ClassDirective lookupRuleSet(RuleSetClassReferenceTerm crt, List<List<RuleSet>> ruleSets) {
-        String needle = crt.getSelector().toString();
-        boolean found = false;
 
-        ImmutableList.Builder<RuleSet> allRuleSets = ImmutableList.builder();
-
-        for (List<RuleSet> rsList : ruleSets) {
-            for (RuleSet rs : rsList) {
-                for (Selector s : rs.getSelectors()) {
-                    if (s.toString().equals(needle)) {
-                        found = true;
-                        allRuleSets.add(rs);
-                    }
-                }
-            }
+        if (key != null && state.getErrors().getErrorCount() + state.getErrors().getWarningCount() == messages) {
+            cache.put(key, new ClassExpansionCache.Expansion(properties, nestedRuleSets));
         }
+    }
 
-        return found ? new RuleSetClass(allRuleSets.build()) : null;
+    private static ClassDirective lookupRuleSet(RuleSetClassReferenceTerm crt, EvaluationState state) {
+        List<RuleSet> ruleSets = state.findRuleSets(crt.getSelector());
+        return ruleSets.isEmpty() ? null : new RuleSetClass(ImmutableList.copyOf(ruleSets));
     }
 
     private static void addInheritedProperties(DeclarationBlock.Builder result, EvaluationState state, Expression inherits) throws MalformedURLException, IOException {
@@ -407,7 +433,7 @@ public final class DeclarationBlock {
             ClassDirective clazz;
             // TODO: Move this logic to EvaluationState?
             if (crt instanceof RuleSetClassReferenceTerm) {
-                clazz = lookupRuleSet((RuleSetClassReferenceTerm) crt, state.getRuleSets());
+                clazz = lookupRuleSet((RuleSetClassReferenceTerm) crt, state);
             }
             else {
                 clazz = state.getClasses().get(crt.getName());
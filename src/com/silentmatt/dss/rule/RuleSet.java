@@ -9,6 +9,7 @@ import com.silentmatt.dss.declaration.Declaration;
 import com.silentmatt.dss.declaration.DeclarationList;
 import com.silentmatt.dss.declaration.Expression;
 import com.silentmatt.dss.evaluator.EvaluationState;
+import com.silentmatt.dss.events.Events;
 import com.silentmatt.dss.selector.Selector;
 import com.silentmatt.dss.util.JoinedSelectorList;
 import java.io.IOException;
@@ -107,8 +108,17 @@ public class RuleSet extends Rule {
                     List<Selector> joinedSelectors = new JoinedSelectorList(getSelectors(), rs.getCombinator(), rs.getSelectors());
                     // TODO: Making a copy of joinedSelectors is wasteful
                     RuleSet finalRuleSet = new RuleSet(ImmutableList.copyOf(joinedSelectors), rs.getDeclarationBlock());
+                    if (state.getStatistics() != null) {
+                        state.getStatistics().addNestedRuleSet();
+                    }
                     //result.addRule(new NestedRuleSet(getSelectors(), rs.getCombinator(), rs).evaluate(state, null));
-                    result.addRule(finalRuleSet.evaluate(state, container));
+                    Events.Span span = Events.nestedRuleSet(joinedSelectors);
+                    try {
+                        result.addRule(finalRuleSet.evaluate(state, container));
+                    }
+                    finally {
+                        span.end();
+                    }
                 }
             }
         }
@@ -39,6 +39,7 @@ public final class Selector {
     private final Combinator combinator;
     private final Selector parents;
     private final Selector children;
+    private volatile String key;
 
     /**
      * Evaluate the Selector.
@@ -135,6 +136,25 @@ public final class Selector {
         return result.build();
     }
 
+    /**
+     * Gets a key that identifies the selector, for looking up rule sets by
+     * selector.
+     *
+     * Two selectors have the same key if they are written the same way after
+     * normalizing whitespace, so this is the same as {@link #toString}, but
+     * it is only built once.
+     *
+     * @return The normalized selector text.
+     */
+    public String getKey() {
+        String result = key;
+        if (result == null) {
+            result = toString();
+            key = result;
+        }
+        return result;
+    }
+
     @Override
     public String toString() {
         StringBuilder txt = new StringBuilder();
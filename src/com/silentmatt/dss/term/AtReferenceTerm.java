@@ -57,8 +57,22 @@ public final class AtReferenceTerm extends ReferenceTerm {
         return value;
     }
 
+    /**
+     * Gets the referenced expression, substituting its values if it's a
+     * constant that doesn't depend on where it's referenced.
+     *
+     * Otherwise, the value is returned as-is, and substituted along with the
+     * rest of the declaration.
+     */
     @Override
     public Expression substituteValues(EvaluationState state, DeclarationList container, boolean withParams, boolean doCalculations) {
+        boolean isParameter = state.getParameters() != null && state.getParameters().containsKey(getName());
+        if (doCalculations && !isParameter && state.getVariables() != null) {
+            Expression value = substituteConstant(state, state.getVariables().get(getName()));
+            if (value != null) {
+                return value;
+            }
+        }
         return evaluate(state, container);
     }
 
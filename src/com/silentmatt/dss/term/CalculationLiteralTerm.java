@@ -1,7 +1,10 @@
 package com.silentmatt.dss.term;
 
 import com.silentmatt.dss.Immutable;
+import com.silentmatt.dss.calc.BinaryExpression;
 import com.silentmatt.dss.calc.CalcExpression;
+import com.silentmatt.dss.calc.NegationExpression;
+import com.silentmatt.dss.calc.TermExpression;
 import com.silentmatt.dss.declaration.DeclarationList;
 import com.silentmatt.dss.declaration.Expression;
 import com.silentmatt.dss.evaluator.EvaluationState;
@@ -23,6 +26,11 @@ public class CalculationLiteralTerm extends Term {
      */
     private final CalcExpression calculation;
 
+    /**
+     * Whether the expression contains anything that substitution would replace.
+     */
+    private final boolean needsSubstitution;
+
     /**
      * Constructs a CalculationLiteralTerm from an expression.
      *
@@ -32,6 +40,7 @@ public class CalculationLiteralTerm extends Term {
         super(null);
         this.prefix = prefix;
         this.calculation = calculation;
+        this.needsSubstitution = needsSubstitution(calculation);
     }
 
     /**
@@ -44,6 +53,16 @@ public class CalculationLiteralTerm extends Term {
         super(sep);
         this.prefix = prefix;
         this.calculation = calculation;
+        this.needsSubstitution = needsSubstitution(calculation);
+    }
+
+    /**
+     * Gets the vendor prefix before "calc".
+     *
+     * @return The vendor prefix before "calc".
+     */
+    public String getPrefix() {
+        return prefix;
     }
 
     /**
@@ -75,10 +94,37 @@ public class CalculationLiteralTerm extends Term {
      */
     @Override
     public Expression substituteValues(EvaluationState state, DeclarationList container, boolean withParams, boolean doCalculations) {
+        if (!needsSubstitution) {
+            return toExpression();
+        }
         CalcExpression calcExp = calculation.withSubstitutedValues(state, container, withParams, true);
         return new CalculationLiteralTerm(getSeperator(), prefix, calcExp).toExpression();
     }
 
+    @Override
+    public boolean needsSubstitution() {
+        return needsSubstitution;
+    }
+
+    /**
+     * Checks whether a calculation contains any references or nested
+     * calculations.
+     */
+    private static boolean needsSubstitution(CalcExpression calculation) {
+        if (calculation instanceof TermExpression) {
+            Term value = ((TermExpression) calculation).getValue();
+            return value instanceof ReferenceTerm || value instanceof CalculationTerm;
+        }
+        else if (calculation instanceof BinaryExpression) {
+            BinaryExpression binary = (BinaryExpression) calculation;
+            return needsSubstitution(binary.getLeft()) || needsSubstitution(binary.getRight());
+        }
+        else if (calculation instanceof NegationExpression) {
+            return needsSubstitution(((NegationExpression) calculation).getExpression());
+        }
+        return true;
+    }
+
     @Override
     public CalculationLiteralTerm withSeparator(Character separator) {
         return new CalculationLiteralTerm(separator, prefix, calculation);
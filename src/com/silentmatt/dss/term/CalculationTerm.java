@@ -3,6 +3,7 @@ package com.silentmatt.dss.term;
 import com.silentmatt.dss.Immutable;
 import com.silentmatt.dss.calc.CalcExpression;
 import com.silentmatt.dss.calc.CalculationException;
+import com.silentmatt.dss.calc.CompiledCalculation;
 import com.silentmatt.dss.calc.Value;
 import com.silentmatt.dss.declaration.DeclarationList;
 import com.silentmatt.dss.declaration.Expression;
@@ -20,14 +21,18 @@ public class CalculationTerm extends Term {
      */
     private final CalcExpression calculation;
 
+    /**
+     * The compiled calculation, if the expression has param() references.
+     */
+    private final CompiledCalculation compiled;
+
     /**
      * Constructs a CalculationTerm from an expression.
      *
      * @param calculation The expression to evaluate
      */
     public CalculationTerm(CalcExpression calculation) {
-        super(null);
-        this.calculation = calculation;
+        this(null, calculation);
     }
 
     /**
@@ -37,8 +42,13 @@ public class CalculationTerm extends Term {
      * @param calculation The expression to evaluate
      */
     public CalculationTerm(Character sep, CalcExpression calculation) {
+        this(sep, calculation, CompiledCalculation.compileParameterized(calculation));
+    }
+
+    private CalculationTerm(Character sep, CalcExpression calculation, CompiledCalculation compiled) {
         super(sep);
         this.calculation = calculation;
+        this.compiled = compiled;
     }
 
     /**
@@ -71,17 +81,25 @@ public class CalculationTerm extends Term {
     @Override
     public Expression substituteValues(EvaluationState state, DeclarationList container, boolean withParams, boolean doCalculations) {
         // XXX: had "withParams ? state.getParameters() : null". Do we need a withParams flag?
+        if (doCalculations && state.getStatistics() != null) {
+            state.getStatistics().addCalculation();
+        }
+
+        if (doCalculations && compiled != null) {
+            Term[] values = compiled.substituteValues(state, container, withParams);
+            Value calc = compiled.calculateValue(values, state, container);
+            if (calc != null) {
+                return toExpression(calc, state);
+            }
+            return new CalculationTerm(getSeperator(), compiled.withValues(values)).toExpression();
+        }
+
         CalcExpression calcExp = calculation.withSubstitutedValues(state, container, withParams, false);
 
         if (doCalculations) {
             Value calc = calcExp.calculateValue(state, container);
             if (calc != null) {
-                try {
-                    return calc.toTerm().toExpression();
-                } catch (CalculationException ex) {
-                    state.getErrors().semanticError(ex.getMessage());
-                    return null;
-                }
+                return toExpression(calc, state);
             }
         }
 
@@ -89,8 +107,22 @@ public class CalculationTerm extends Term {
         //return toExpression();
     }
 
+    private static Expression toExpression(Value calc, EvaluationState state) {
+        try {
+            return calc.toTerm().toExpression();
+        } catch (CalculationException ex) {
+            state.getErrors().semanticError(ex.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public boolean needsSubstitution() {
+        return true;
+    }
+
     @Override
     public CalculationTerm withSeparator(Character separator) {
-        return new CalculationTerm(separator, calculation);
+        return new CalculationTerm(separator, calculation, compiled);
     }
 }
@@ -45,8 +45,21 @@ public final class ConstTerm extends ReferenceTerm {
         return result;
     }
 
+    /**
+     * Gets the referenced expression, substituting its values if they don't
+     * depend on where it's referenced.
+     *
+     * Otherwise, the value is returned as-is, and substituted along with the
+     * rest of the declaration.
+     */
     @Override
     public Expression substituteValues(EvaluationState state, DeclarationList container, boolean withParams, boolean doCalculations) {
+        if (doCalculations && state.getVariables() != null) {
+            Expression value = substituteConstant(state, state.getVariables().get(getName()));
+            if (value != null) {
+                return value;
+            }
+        }
         return evaluate(state, container);
     }
 
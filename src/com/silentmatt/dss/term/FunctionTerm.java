@@ -1,5 +1,6 @@
 package com.silentmatt.dss.term;
 
+import com.google.common.collect.ImmutableMap;
 import com.silentmatt.dss.Immutable;
 import com.silentmatt.dss.calc.Unit;
 import com.silentmatt.dss.color.Color;
@@ -10,7 +11,6 @@ import com.silentmatt.dss.declaration.DeclarationList;
 import com.silentmatt.dss.declaration.Expression;
 import com.silentmatt.dss.evaluator.EvaluationState;
 import com.silentmatt.dss.evaluator.Function;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -33,6 +33,12 @@ public final class FunctionTerm extends Term {
      */
     private final Expression expression;
 
+    /**
+     * The color this term represents, once {@link #toColor} has been called.
+     */
+    private volatile Color color;
+    private volatile boolean colorComputed;
+
     /**
      * Constructs a FunctionTerm with a default name and parameters.
      *
@@ -103,10 +109,7 @@ public final class FunctionTerm extends Term {
      *         or the function doesn't exist.
      */
     public Expression applyFunction(EvaluationState state) {
-        Function function = state.getFunctions().get(getName());
-        if (function == null) {
-            function = builtinFunctions.get(getName());
-        }
+        Function function = getFunction(state);
         if (function != null) {
             try {
                 return function.call(this, state);
@@ -118,95 +121,58 @@ public final class FunctionTerm extends Term {
         return null;
     }
 
+    private Function getFunction(EvaluationState state) {
+        Function function = state.getFunctions().get(getName());
+        if (function == null) {
+            function = builtinFunctions.get(getName());
+        }
+        return function;
+    }
+
     @Override
     public boolean isColor() {
         return toColor() != null;
     }
 
-    private boolean isRGBIColor() {
-        try {
-            List<Term> channels = expression.getTerms();
-            if (!(name.equalsIgnoreCase("rgb") || name.equalsIgnoreCase("rgba"))) {
-                return false;
-            }
-            if (!(channels.size() == 3 || channels.size() == 4)) {
-                return false;
-            }
-            if (((NumberTerm) channels.get(0)).getUnit() != Unit.None) {
-                return false;
-            }
-            if (((NumberTerm) channels.get(1)).getUnit() != Unit.None) {
-                return false;
-            }
-            if (((NumberTerm) channels.get(2)).getUnit() != Unit.None) {
-                return false;
-            }
-            if (channels.size() == 4 && ((NumberTerm) channels.get(3)).getUnit() != Unit.None) {
-                return false;
-            }
-            return true;
-        }
-        catch (ClassCastException ex) {
+    private static boolean hasUnit(Term term, Unit unit) {
+        return term instanceof NumberTerm && ((NumberTerm) term).getUnit() == unit;
+    }
+
+    /**
+     * Checks the arguments of a color function.
+     *
+     * @param channels The function arguments.
+     * @param first The unit for the first channel.
+     * @param second The unit for the second channel.
+     * @param third The unit for the third channel.
+     *
+     * @return true if there are three channels with the right units, and an
+     * optional unitless alpha channel.
+     */
+    private static boolean hasChannels(List<Term> channels, Unit first, Unit second, Unit third) {
+        if (!(channels.size() == 3 || channels.size() == 4)) {
             return false;
         }
+        // FIXME: The alpha check is redundant. Make sure this logic is correct.
+        return hasUnit(channels.get(0), first)
+                && hasUnit(channels.get(1), second)
+                && hasUnit(channels.get(2), third)
+                && (channels.size() == 3 || hasUnit(channels.get(3), Unit.None));
+    }
+
+    private boolean isRGBIColor() {
+        return (name.equalsIgnoreCase("rgb") || name.equalsIgnoreCase("rgba"))
+                && hasChannels(expression.getTerms(), Unit.None, Unit.None, Unit.None);
     }
 
     private boolean isRGBFColor() {
-        try {
-            List<Term> channels = expression.getTerms();
-            if (!(name.equalsIgnoreCase("rgb") || name.equalsIgnoreCase("rgba"))) {
-                return false;
-            }
-            if (!(channels.size() == 3 || channels.size() == 4)) {
-                return false;
-            }
-            if (((NumberTerm) channels.get(0)).getUnit() != Unit.Percent) {
-                return false;
-            }
-            if (((NumberTerm) channels.get(1)).getUnit() != Unit.Percent) {
-                return false;
-            }
-            if (((NumberTerm) channels.get(2)).getUnit() != Unit.Percent) {
-                return false;
-            }
-            // FIXME: This is redundant. Make sure this logic is correct.
-            if (channels.size() == 4 && ((NumberTerm) channels.get(3)).getUnit() != Unit.None) {
-                return false;
-            }
-            return true;
-        }
-        catch (ClassCastException ex) {
-            return false;
-        }
+        return (name.equalsIgnoreCase("rgb") || name.equalsIgnoreCase("rgba"))
+                && hasChannels(expression.getTerms(), Unit.Percent, Unit.Percent, Unit.Percent);
     }
 
     private boolean isHSLColor() {
-        try {
-            List<Term> channels = expression.getTerms();
-            if (!(name.equalsIgnoreCase("hsl") || name.equalsIgnoreCase("hsla"))) {
-                return false;
-            }
-            if (!(channels.size() == 3 || channels.size() == 4)) {
-                return false;
-            }
-            if (((NumberTerm) channels.get(0)).getUnit() != Unit.None) {
-                return false;
-            }
-            if (((NumberTerm) channels.get(1)).getUnit() != Unit.Percent) {
-                return false;
-            }
-            if (((NumberTerm) channels.get(2)).getUnit() != Unit.Percent) {
-                return false;
-            }
-            // FIXME: This is redundant. Make sure this logic is correct.
-            if (channels.size() == 4 && ((NumberTerm) channels.get(3)).getUnit() != Unit.None) {
-                return false;
-            }
-            return true;
-        }
-        catch (ClassCastException ex) {
-            return false;
-        }
+        return (name.equalsIgnoreCase("hsl") || name.equalsIgnoreCase("hsla"))
+                && hasChannels(expression.getTerms(), Unit.None, Unit.Percent, Unit.Percent);
     }
 
     /**
@@ -219,10 +185,24 @@ public final class FunctionTerm extends Term {
      * You can also mix percentages and integer values. Each channel is
      * considered separately.
      *
+     * The color is only computed the first time, since the term can't change.
+     *
      * @return The Color corresponding to this function, or null.
      */
     @Override
     public Color toColor() {
+        if (!colorComputed) {
+            color = computeColor();
+            colorComputed = true;
+        }
+        return color;
+    }
+
+    private Color computeColor() {
+        if (expression == null) {
+            return null;
+        }
+
         List<Term> terms = expression.getTerms();
         double a = 1.0;
 
@@ -271,6 +251,9 @@ public final class FunctionTerm extends Term {
     @Override
     public Expression substituteValues(EvaluationState state, DeclarationList container, boolean withParams, boolean doCalculations) {
         Expression argument = getExpression().substituteValues(state, container, withParams, doCalculations);
+        if (argument == getExpression() && getFunction(state) == null) {
+            return toExpression();
+        }
         Expression result = new FunctionTerm(getName(), argument).applyFunction(state);
         if (result == null) {
             result = new FunctionTerm(getName(), argument).toExpression();
@@ -290,22 +273,24 @@ public final class FunctionTerm extends Term {
         return resultBuilder.build();
     }
 
-    private static final Map<String, Function> builtinFunctions = new HashMap<>();
+    // Shared by every evaluation, so it must never be modified after initialization
+    private static final Map<String, Function> builtinFunctions;
     static {
+        ImmutableMap.Builder<String, Function> functions = ImmutableMap.builder();
         Function hueshift = new HueShift();
-        builtinFunctions.put("compose", new ComposeFunction());
-        builtinFunctions.put("whiten", new OverlayFunction(Color.White));
-        builtinFunctions.put("blacken", new OverlayFunction(Color.Black));
-        builtinFunctions.put("lighten", new Lighten());
-        builtinFunctions.put("darken", new Darken());
-        builtinFunctions.put("saturate", new Saturate());
-        builtinFunctions.put("desaturate", new Desaturate());
-        builtinFunctions.put("hueshift", hueshift);
-        builtinFunctions.put("spin", hueshift);
-        builtinFunctions.put("fadein", new FadeIn());
-        builtinFunctions.put("fadeout", new FadeOut());
-
-        builtinFunctions.put("toHSL", new Function() {
+        functions.put("compose", new ComposeFunction());
+        functions.put("whiten", new OverlayFunction(Color.White));
+        functions.put("blacken", new OverlayFunction(Color.Black));
+        functions.put("lighten", new Lighten());
+        functions.put("darken", new Darken());
+        functions.put("saturate", new Saturate());
+        functions.put("desaturate", new Desaturate());
+        functions.put("hueshift", hueshift);
+        functions.put("spin", hueshift);
+        functions.put("fadein", new FadeIn());
+        functions.put("fadeout", new FadeOut());
+
+        functions.put("toHSL", new Function() {
             @Override
             public Expression call(FunctionTerm function, EvaluationState state) {
                 List<Term> args = function.getExpression().getTerms();
@@ -315,7 +300,7 @@ public final class FunctionTerm extends Term {
                 return args.get(0).toColor().toHSLColor().toTerm().toExpression();
             }
         });
-        builtinFunctions.put("toRGB", new Function() {
+        functions.put("toRGB", new Function() {
             @Override
             public Expression call(FunctionTerm function, EvaluationState state) {
                 List<Term> args = function.getExpression().getTerms();
@@ -325,7 +310,7 @@ public final class FunctionTerm extends Term {
                 return args.get(0).toColor().toRGBColor().toTerm().toExpression();
             }
         });
-        builtinFunctions.put("alpha", new Function() {
+        functions.put("alpha", new Function() {
             @Override
             public Expression call(FunctionTerm function, EvaluationState state) {
                 List<Term> args = function.getExpression().getTerms();
@@ -336,6 +321,17 @@ public final class FunctionTerm extends Term {
                 return args.get(0).toColor().withAlpha(alpha).toTerm().toExpression();
             }
         });
+    
+        builtinFunctions = functions.build();
+    }
+
+    /**
+     * Always returns <code>true</code>, because the function could be defined
+     * in the {@link EvaluationState}.
+     */
+    @Override
+    public boolean needsSubstitution() {
+        return true;
     }
 
     @Override
@@ -432,7 +428,7 @@ public final class FunctionTerm extends Term {
     }
 
     private static abstract class ColorScalarFunction implements Function {
-        protected double defaultValue, percentAdjust;
+        protected final double defaultValue, percentAdjust;
 
         protected ColorScalarFunction(double defaultValue, double percentAdjust) {
             this.defaultValue = defaultValue;
@@ -17,6 +17,12 @@ public final class HexTerm extends Term {
      */
     private final String value;
 
+    /**
+     * The color this term represents, once {@link #toColor} has been called.
+     */
+    private volatile Color color;
+    private volatile boolean colorComputed;
+
     /**
      * Constructs a HexTerm from a String.
      *
@@ -70,8 +76,23 @@ public final class HexTerm extends Term {
         return toColor() != null;
     }
 
+    /**
+     * Converts the hex digits to a color.
+     *
+     * The color is only computed the first time, since the term can't change.
+     *
+     * @return The color, or null if the value isn't a valid color.
+     */
     @Override
     public Color toColor() {
+        if (!colorComputed) {
+            color = computeColor();
+            colorComputed = true;
+        }
+        return color;
+    }
+
+    private Color computeColor() {
         String hex = "000000";
         if ((value.length() == 7 || value.length() == 4) && value.charAt(0) == '#') {
             hex = value.substring(1);
@@ -2,7 +2,7 @@ package com.silentmatt.dss.term;
 
 import com.silentmatt.dss.Immutable;
 import com.silentmatt.dss.calc.Unit;
-import java.text.DecimalFormat;
+import com.silentmatt.dss.util.NumberFormatter;
 
 /**
  * A numeric term, with its associated unit.
@@ -90,9 +90,7 @@ public final class NumberTerm extends Term {
     public String toString() {
         StringBuilder txt = new StringBuilder();
 
-        DecimalFormat format = new DecimalFormat("#.######");
-        String valueString = format.format(value);
-        txt.append(valueString);
+        NumberFormatter.format(txt, value, 6);
         if (unit != null) {
             txt.append(unit.toString());
         }
@@ -4,6 +4,7 @@ import com.silentmatt.dss.Immutable;
 import com.silentmatt.dss.declaration.DeclarationList;
 import com.silentmatt.dss.declaration.Expression;
 import com.silentmatt.dss.evaluator.EvaluationState;
+import java.util.Objects;
 
 /**
  * A constant or parameter reference.
@@ -66,4 +67,31 @@ public abstract class ReferenceTerm extends Term {
      * @return The value of the referenced expression, or null if it doesn't exist.
      */
     public abstract Expression evaluate(EvaluationState state, DeclarationList container);
+
+    @Override
+    public boolean needsSubstitution() {
+        return true;
+    }
+
+    /**
+     * Gets the cached, substituted value of a constant.
+     *
+     * The cached value can only stand in for the reference if the separator
+     * wouldn't change, since a calculation drops its separator when it's
+     * evaluated.
+     *
+     * @param state The current evaluation state.
+     * @param value The declared value of the constant, or null if it isn't declared.
+     *
+     * @return The substituted value, or null if it needs to be substituted in place.
+     */
+    protected final Expression substituteConstant(EvaluationState state, Expression value) {
+        if (value == null || value.getTerms().isEmpty()) {
+            return null;
+        }
+        if (!Objects.equals(value.getTerms().get(0).getSeperator(), getSeperator())) {
+            return null;
+        }
+        return state.getConstantValue(value);
+    }
 }
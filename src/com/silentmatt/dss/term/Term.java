@@ -53,6 +53,8 @@ public abstract class Term {
     /**
      * Gets the result of substituting any DSS terms.
      * The default implementation is to return <code>toExpression()</code>.
+     * Subclasses that override it should also override
+     * {@link #needsSubstitution()}.
      *
      * @param state The current evaluation state
      * @param withParams <code>true</code> if parameters should be evaluated
@@ -64,6 +66,20 @@ public abstract class Term {
         return toExpression();
     }
 
+    /**
+     * Checks whether substituting values could change this term.
+     *
+     * If this returns false, {@link #substituteValues} always returns an
+     * expression containing only <code>this</code>, so callers can skip it.
+     * The default implementation returns false, since the default
+     * <code>substituteValues</code> doesn't change anything.
+     *
+     * @return <code>true</code> if the term might be replaced by substitution
+     */
+    public boolean needsSubstitution() {
+        return false;
+    }
+
     /**
      * Returns true if this term can be treated as a color.
      *
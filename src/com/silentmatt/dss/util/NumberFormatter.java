@@ -0,0 +1,218 @@
+package com.silentmatt.dss.util;
+
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Formats numbers the same way as a {@link DecimalFormat} with a pattern like
+ * "#.######" (up to six fraction digits), without creating a formatter or any
+ * intermediate strings.
+ *
+ * Values are rounded half-even, trailing zeros are dropped, and negative
+ * values (including negative zero, and negative values that round to zero)
+ * get a minus sign. The decimal separator is always ".", no matter what the
+ * default locale is.
+ *
+ * Values that are very large, not finite, or too close to halfway between
+ * two results to round the same way as DecimalFormat are passed on to a
+ * DecimalFormat, so the output is always identical.
+ *
+ * The only state is a per-thread DecimalFormat for those values, so
+ * NumberFormatter is thread-safe.
+ *
+ * @author Matthew Crumley
+ */
+public final class NumberFormatter {
+    /**
+     * The largest number of fraction digits supported.
+     */
+    public static final int MAX_FRACTION_DIGITS = 6;
+
+    private static final long[] POWERS_OF_TEN = {
+        1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L,
+        100000000L, 1000000000L, 10000000000L, 100000000000L, 1000000000000L,
+        10000000000000L, 100000000000000L, 1000000000000000L,
+        10000000000000000L, 100000000000000000L, 1000000000000000000L
+    };
+
+    // Below this, the scaled value fits in a long, although values above
+    // about 2^32 will rarely be precise enough to take the fast path
+    private static final double FAST_PATH_LIMIT = 0x1p43;
+
+    // Much larger than the rounding error of frac * 10^6, which is at most 2^-34
+    private static final double TIE_MARGIN = 1e-9;
+
+    private static final long SLOW_PATH = -1;
+
+    // DecimalFormat isn't thread-safe, so each thread gets its own instances
+    private static final ThreadLocal<DecimalFormat[]> formats = new ThreadLocal<DecimalFormat[]>() {
+        @Override
+        protected DecimalFormat[] initialValue() {
+            return new DecimalFormat[MAX_FRACTION_DIGITS + 1];
+        }
+    };
+
+    private NumberFormatter() {
+    }
+
+    /**
+     * Formats a number as a String.
+     *
+     * @param value The number to format.
+     * @param fractionDigits The maximum number of digits after the decimal point.
+     *
+     * @return The formatted number.
+     */
+    public static String format(double value, int fractionDigits) {
+        return format(new StringBuilder(24), value, fractionDigits).toString();
+    }
+
+    /**
+     * Formats a number into a StringBuilder.
+     *
+     * @param out The StringBuilder to append to.
+     * @param value The number to format.
+     * @param fractionDigits The maximum number of digits after the decimal point.
+     *
+     * @return out
+     */
+    public static StringBuilder format(StringBuilder out, double value, int fractionDigits) {
+        try {
+            format((Appendable) out, value, fractionDigits);
+        }
+        catch (IOException ex) {
+            throw new AssertionError(ex);
+        }
+        return out;
+    }
+
+    /**
+     * Formats a number into an {@link Appendable}.
+     *
+     * @param out The Appendable to write to.
+     * @param value The number to format.
+     * @param fractionDigits The maximum number of digits after the decimal point.
+     *
+     * @throws IOException if the Appendable throws an IOException.
+     */
+    public static void format(Appendable out, double value, int fractionDigits) throws IOException {
+        checkFractionDigits(fractionDigits);
+        long scaled = round(value, fractionDigits);
+        if (scaled == SLOW_PATH) {
+            out.append(getFormat(fractionDigits).format(value));
+            return;
+        }
+
+        if (isNegative(value)) {
+            out.append('-');
+        }
+
+        long scale = POWERS_OF_TEN[fractionDigits];
+        appendDigits(out, scaled / scale, 1);
+
+        long fraction = scaled % scale;
+        if (fraction != 0) {
+            int digits = fractionDigits;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits--;
+            }
+            out.append('.');
+            appendDigits(out, fraction, digits);
+        }
+    }
+
+    /**
+     * Checks whether two numbers would be formatted the same way.
+     *
+     * @param a The first number.
+     * @param b The second number.
+     * @param fractionDigits The maximum number of digits after the decimal point.
+     *
+     * @return true if <code>format(a, fractionDigits)</code> equals
+     * <code>format(b, fractionDigits)</code>.
+     */
+    public static boolean areEquivalent(double a, double b, int fractionDigits) {
+        checkFractionDigits(fractionDigits);
+        long scaledA = round(a, fractionDigits);
+        long scaledB = round(b, fractionDigits);
+        if (scaledA == SLOW_PATH || scaledB == SLOW_PATH) {
+            return format(a, fractionDigits).equals(format(b, fractionDigits));
+        }
+        return scaledA == scaledB && isNegative(a) == isNegative(b);
+    }
+
+    private static void checkFractionDigits(int fractionDigits) {
+        if (fractionDigits < 0 || fractionDigits > MAX_FRACTION_DIGITS) {
+            throw new IllegalArgumentException("fractionDigits must be between 0 and " + MAX_FRACTION_DIGITS);
+        }
+    }
+
+    private static boolean isNegative(double value) {
+        return Double.doubleToRawLongBits(value) < 0;
+    }
+
+    /**
+     * Rounds the absolute value of a number to a whole number of
+     * 10^-fractionDigits units.
+     *
+     * @return The rounded value, or SLOW_PATH if it can't be rounded exactly.
+     */
+    private static long round(double value, int fractionDigits) {
+        double abs = Math.abs(value);
+        if (!(abs < FAST_PATH_LIMIT)) {
+            return SLOW_PATH;
+        }
+
+        // Both of these are exact
+        long integer = (long) abs;
+        double fraction = abs - integer;
+
+        long scale = POWERS_OF_TEN[fractionDigits];
+        double scaled = fraction * scale;
+        long units = (long) scaled;
+        double remainder = scaled - units;
+
+        // DecimalFormat rounds the shortest decimal representation of the
+        // value (the digits from Double.toString), which can be up to half an
+        // ulp away from the exact binary value, so values that close to a
+        // rounding boundary have to be left to DecimalFormat
+        double margin = Math.max(TIE_MARGIN, Math.ulp(abs) * scale);
+        if (Math.abs(remainder - 0.5) < margin) {
+            return SLOW_PATH;
+        }
+        if (remainder > 0.5) {
+            units++;
+        }
+        return integer * scale + units;
+    }
+
+    private static void appendDigits(Appendable out, long value, int minDigits) throws IOException {
+        int digits = 1;
+        while (digits < POWERS_OF_TEN.length && POWERS_OF_TEN[digits] <= value) {
+            digits++;
+        }
+        for (int i = Math.max(digits, minDigits) - 1; i >= 0; i--) {
+            out.append((char) ('0' + (value / POWERS_OF_TEN[i]) % 10));
+        }
+    }
+
+    private static DecimalFormat getFormat(int fractionDigits) {
+        DecimalFormat[] cache = formats.get();
+        DecimalFormat format = cache[fractionDigits];
+        if (format == null) {
+            // "#." would always print the decimal point
+            StringBuilder pattern = new StringBuilder(fractionDigits > 0 ? "#." : "#");
+            for (int i = 0; i < fractionDigits; i++) {
+                pattern.append('#');
+            }
+            format = new DecimalFormat(pattern.toString(), DecimalFormatSymbols.getInstance(Locale.ROOT));
+            format.setRoundingMode(RoundingMode.HALF_EVEN);
+            cache[fractionDigits] = format;
+        }
+        return format;
+    }
+}
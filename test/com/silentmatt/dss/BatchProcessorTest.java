@@ -0,0 +1,78 @@
+package com.silentmatt.dss;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URL;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BatchProcessorTest {
+    private File dir;
+    private File outDir;
+
+    @Before
+    public void setUp() {
+        dir = Files.createTempDir();
+        outDir = new File(dir, "out");
+    }
+
+    @After
+    public void tearDown() {
+        delete(dir);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private URL write(String path, String dss) throws IOException {
+        File file = new File(dir, path);
+        file.getParentFile().mkdirs();
+        Files.write(dss, file, Charsets.UTF_8);
+        return file.toURI().toURL();
+    }
+
+    private int process(ByteArrayOutputStream summary, URL... urls) throws IOException {
+        String[] args = { "--out-dir", outDir.getPath() };
+        BatchProcessor processor = new BatchProcessor(new OptionsParser().getConfiguration(args));
+        return processor.processFiles(Arrays.asList(urls), outDir, new PrintStream(summary, true, "UTF-8"));
+    }
+
+    @Test
+    public void testSameOutputNameIsAnError() throws IOException {
+        URL a = write("a/main.dss", "a { color: red; }\n");
+        URL b = write("b/main.dss", "b { color: blue; }\n");
+        URL other = write("a/other.dss", "c { color: green; }\n");
+
+        ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        assertEquals(1, process(summary, a, other, b));
+        String text = new String(summary.toByteArray(), Charsets.UTF_8);
+        assertTrue(text, text.contains("output main.css would overwrite the output of"));
+        assertFalse(new File(outDir, "main.css").exists());
+        assertFalse(new File(outDir, "other.css").exists());
+    }
+
+    @Test
+    public void testRepeatedInputIsCompiledOnce() throws IOException {
+        URL a = write("a/main.dss", "a { color: red; }\n");
+
+        ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        assertEquals(0, process(summary, a, a));
+        String text = new String(summary.toByteArray(), Charsets.UTF_8);
+        assertTrue(text, text.contains("1 of 1 file compiled successfully."));
+        assertEquals("a {\n\tcolor: #F00;\n}\n", Files.toString(new File(outDir, "main.css"), Charsets.UTF_8));
+    }
+}
@@ -0,0 +1,111 @@
+package com.silentmatt.dss;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CompileServerTest {
+    private static int port;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort();
+        }
+        final CompileServer server = new CompileServer(port);
+        server.setReadTimeout(500);
+        server.setThreadCount(2);
+        start(server);
+    }
+
+    private static Thread start(final CompileServer server) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    server.serve();
+                } catch (IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static Socket connect() throws IOException, InterruptedException {
+        return connect(port);
+    }
+
+    private static Socket connect(int port) throws IOException, InterruptedException {
+        for (int i = 0; ; i++) {
+            try {
+                Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                socket.setSoTimeout(10000);
+                return socket;
+            } catch (ConnectException ex) {
+                if (i == 50) {
+                    throw ex;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private static String request(String request) throws IOException, InterruptedException {
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            out.write(request.getBytes(Charsets.UTF_8));
+            out.flush();
+            return new String(ByteStreams.toByteArray(socket.getInputStream()), Charsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testSilentClientDoesNotBlockOthers() throws Exception {
+        String url = new File("test/include/inc.dss").getAbsoluteFile().toURI().toURL().toExternalForm();
+        try (Socket silent = connect()) {
+            String response = request("URL " + url + "\n\n");
+            assertTrue(response, response.startsWith("OK 0 0\n\n"));
+
+            // The server gives up on the silent client after the read timeout
+            assertEquals(-1, silent.getInputStream().read());
+        }
+    }
+
+    @Test
+    public void testInvalidDefine() throws Exception {
+        String url = new File("test/include/inc.dss").getAbsoluteFile().toURI().toURL().toExternalForm();
+        for (String define : new String[] { "width 10px", "width: (1" }) {
+            String response = request("URL " + url + "\nDEFINE " + define + "\n\n");
+            assertTrue(response, response.startsWith("ERROR "));
+            assertTrue(response, response.contains("DSS: Invalid DEFINE: " + define + "\n"));
+            assertFalse(response, response.contains("DSS: null"));
+        }
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        int otherPort;
+        try (ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            otherPort = socket.getLocalPort();
+        }
+        CompileServer server = new CompileServer(otherPort);
+        Thread thread = start(server);
+        connect(otherPort).close();
+
+        server.close();
+        thread.join(10000);
+        assertFalse(thread.isAlive());
+    }
+}
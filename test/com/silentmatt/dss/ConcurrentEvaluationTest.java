@@ -0,0 +1,96 @@
+package com.silentmatt.dss;
+
+import com.silentmatt.dss.error.ErrorReporter;
+import com.silentmatt.dss.error.ExceptionErrorReporter;
+import com.silentmatt.dss.error.NullErrorReporter;
+import com.silentmatt.dss.evaluator.DSSEvaluator;
+import com.silentmatt.dss.evaluator.DefaultResourcesLocator;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Evaluates the test corpus on many threads at once, sharing the parsed
+ * documents, and checks the output against a single-threaded run.
+ */
+public class ConcurrentEvaluationTest {
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 20;
+
+    private static String compile(URL url, DSSDocument dss, boolean compact) throws Exception {
+        ErrorReporter errors = new ExceptionErrorReporter(new NullErrorReporter());
+        DSSEvaluator.Options opts = new DSSEvaluator.Options(url);
+        opts.setErrors(errors);
+        opts.setResourceLocator(new DefaultResourcesLocator());
+        return new DSSEvaluator(opts).evaluate(dss).toString(compact);
+    }
+
+    @Test
+    public void concurrentOutputMatchesSequential() throws Exception {
+        File dir = new File("./test");
+        String[] names = dir.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File directory, String filename) {
+                return filename.endsWith(".dss");
+            }
+        });
+        Arrays.sort(names);
+        assertTrue(names.length > 0);
+
+        final List<URL> urls = new ArrayList<>();
+        final List<DSSDocument> documents = new ArrayList<>();
+        final List<String> expected = new ArrayList<>();
+        for (String name : names) {
+            URL url = new File(dir, name).toURI().toURL();
+            DSSDocument dss = DSSDocument.parse(new DefaultResourcesLocator(), url, new ExceptionErrorReporter(new NullErrorReporter()));
+            urls.add(url);
+            documents.add(dss);
+            expected.add(compile(url, dss, false) + compile(url, dss, true));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int offset = t;
+                results.add(pool.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws Exception {
+                        String[] output = new String[documents.size()];
+                        for (int i = 0; i < ITERATIONS; i++) {
+                            for (int j = 0; j < documents.size(); j++) {
+                                // Each thread walks the corpus in a different order
+                                int k = (j + offset * 7 + i) % documents.size();
+                                String css = compile(urls.get(k), documents.get(k), false) + compile(urls.get(k), documents.get(k), true);
+                                if (output[k] != null && !output[k].equals(css)) {
+                                    throw new AssertionError("Output changed between iterations: " + urls.get(k));
+                                }
+                                output[k] = css;
+                            }
+                        }
+                        return Arrays.asList(output);
+                    }
+                }));
+            }
+
+            for (Future<List<String>> result : results) {
+                List<String> output = result.get();
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(names[i], expected.get(i), output.get(i));
+                }
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+}
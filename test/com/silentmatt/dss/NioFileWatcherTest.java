@@ -0,0 +1,64 @@
+package com.silentmatt.dss;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class NioFileWatcherTest {
+    private static List<File> waitForChanges(ExecutorService executor, final FileWatcher watcher) throws Exception {
+        return executor.submit(new Callable<List<File>>() {
+            @Override
+            public List<File> call() throws InterruptedException {
+                return watcher.waitForChanges();
+            }
+        }).get(10, TimeUnit.SECONDS);
+    }
+
+    private static void deleteDirectory(File dir) throws IOException {
+        for (File f : dir.listFiles()) {
+            if (!f.delete()) {
+                throw new IOException("Can't delete " + f);
+            }
+        }
+        if (!dir.delete()) {
+            throw new IOException("Can't delete " + dir);
+        }
+    }
+
+    @Test
+    public void testDeletedDirectory() throws Exception {
+        File root = Files.createTempDir();
+        File dir = new File(root, "styles");
+        File file = new File(dir, "main.dss");
+        assertTrue(dir.mkdir());
+        Files.write("a { width: 1px; }", file, Charsets.UTF_8);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (NioFileWatcher watcher = new NioFileWatcher(Arrays.asList(file), 10)) {
+            assertFalse(watcher.isPolling());
+
+            deleteDirectory(dir);
+            assertEquals(Arrays.asList(file), waitForChanges(executor, watcher));
+            // Nothing is registered now, so this has to check the file itself.
+            assertEquals(Arrays.asList(file), waitForChanges(executor, watcher));
+
+            assertTrue(dir.mkdir());
+            Files.write("a { width: 2px; }", file, Charsets.UTF_8);
+            assertEquals(Arrays.asList(file), waitForChanges(executor, watcher));
+        }
+        finally {
+            executor.shutdownNow();
+            deleteDirectory(dir);
+            root.delete();
+        }
+    }
+}
@@ -0,0 +1,463 @@
+package com.silentmatt.dss;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+import com.silentmatt.dss.css.CssDocument;
+import com.silentmatt.dss.declaration.Declaration;
+import com.silentmatt.dss.declaration.DeclarationList;
+import com.silentmatt.dss.directive.DefineDirective;
+import com.silentmatt.dss.error.ExceptionErrorReporter;
+import com.silentmatt.dss.error.NullErrorReporter;
+import com.silentmatt.dss.evaluator.DSSEvaluator;
+import com.silentmatt.dss.evaluator.DefaultResourcesLocator;
+import com.silentmatt.dss.evaluator.EvaluationState;
+import com.silentmatt.dss.evaluator.ResourceLocator;
+import com.silentmatt.dss.parser.BinaryDocumentReader;
+import com.silentmatt.dss.parser.BinaryDocumentWriter;
+import com.silentmatt.dss.parser.TokenCounter;
+import com.silentmatt.dss.rule.Rule;
+import com.silentmatt.dss.rule.RuleSet;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Measures each phase of compiling a stylesheet separately: tokenizing,
+ * parsing, evaluating, and writing the result in both the normal and compact
+ * formats.
+ *
+ * By default, every phase is run on every stylesheet in the test directory
+ * and on a synthetic stylesheet from {@link StylesheetGenerator}. For each
+ * combination, it reports the throughput and the memory allocated per
+ * operation, counted with the per-thread counters from
+ * {@link com.sun.management.ThreadMXBean}, along with the allocation rate.
+ * Each measurement is preceded by a warmup period, and the phases are run on
+ * the output of the earlier phases, prepared before anything is measured.
+ *
+ * The arguments choose what to run. Phase names (scan, parse, evaluate,
+ * write, write-compact) and input names (like "calc" for test/calc.dss, or
+ * "synthetic") select those phases and inputs. "-w ms" and "-t ms" set the
+ * warmup and measurement time of each combination. These phases are only run
+ * when they're named:
+ *
+ * <ul>
+ * <li>scan-stream and scan-decoded tokenize the UTF-8 bytes, one byte at a
+ * time or after decoding them all at once.</li>
+ * <li>parse-stream and parse-bytes do the same for a full parse.</li>
+ * <li>load-binary reads the parsed document from the binary format.</li>
+ * <li>lookup-indexed and lookup-linear look up every property of the first
+ * rule set, with the {@link DeclarationList} index or with a linear
+ * search.</li>
+ * <li>substitute substitutes values into every top-level declaration, with
+ * the document's @define constants.</li>
+ * </ul>
+ *
+ * Besides the test stylesheets, these inputs are generated:
+ *
+ * <ul>
+ * <li>synthetic: {@link StylesheetGenerator}'s default stylesheet, with 1000
+ * rule sets.</li>
+ * <li>calc-classes: test/calc.dss and test/calc-prop.dss repeated 1000 times,
+ * followed by a rule for each copy that applies a class with a different
+ * parameter.</li>
+ * <li>mixins: a class with four param() calculations, applied 2000 times with
+ * different arguments.</li>
+ * <li>declarations: 20 rule sets with 500 declarations each, most of which
+ * use prop() to refer to an earlier one.</li>
+ * <li>substitution: 2000 rule sets with 10 declarations each, mostly plain
+ * literals.</li>
+ * </ul>
+ *
+ * A number after a colon sets the size of an input: the number of copies of
+ * a test stylesheet (like "big:1000"), or the number of rule sets or copies
+ * in a generated one. Some useful combinations are:
+ *
+ * <pre>
+ * scan scan-stream scan-decoded parse parse-stream parse-bytes load-binary big:1000
+ * evaluate lookup-indexed lookup-linear declarations
+ * evaluate substitute substitution
+ * evaluate write color:500 calc-classes mixins
+ * evaluate write write-compact synthetic:500 synthetic:4000 synthetic:16000
+ * </pre>
+ *
+ * Run it with "ant benchmark", passing the arguments in benchmark.args, or
+ * from the project directory:
+ *
+ * <pre>java -cp build/classes:build/test/classes:lib/guava-18.0.jar com.silentmatt.dss.PhaseBenchmark -t 2000 parse evaluate calc synthetic</pre>
+ */
+public final class PhaseBenchmark {
+    private static final List<String> PHASES = Arrays.asList("scan", "parse", "evaluate", "write", "write-compact");
+    private static final List<String> EXTRA_PHASES = Arrays.asList("scan-stream", "scan-decoded", "parse-stream", "parse-bytes",
+            "load-binary", "lookup-indexed", "lookup-linear", "substitute");
+    private static final String SYNTHETIC = "synthetic";
+    private static final int SYNTHETIC_RULES = 1000;
+    private static final int CALC_COPIES = 1000;
+    private static final int MIXIN_RULES = 2000;
+    private static final int DECLARATION_RULES = 20;
+    private static final int DECLARATIONS = 500;
+    private static final int SUBSTITUTION_RULES = 2000;
+
+    /**
+     * Keeps the results alive, so the work can't be optimized away.
+     */
+    private static volatile int sink;
+
+    private PhaseBenchmark() {
+    }
+
+    /**
+     * A stylesheet, with the output of each phase.
+     */
+    private static final class Input {
+        final String name;
+        final URL url;
+        final ResourceLocator locator;
+        final String source;
+        final byte[] bytes;
+        final DSSDocument document;
+        final CssDocument css;
+        final byte[] binary;
+        final DeclarationList block;
+        final EvaluationState state;
+
+        Input(String name, URL url, ResourceLocator locator, String source) throws IOException {
+            this.name = name;
+            this.url = url;
+            this.locator = locator;
+            this.source = source;
+            this.bytes = source.getBytes(Charsets.UTF_8);
+            this.document = parse(source);
+            this.css = evaluate();
+            this.binary = writeBinary(document);
+            this.block = firstBlock(document);
+            this.state = defineConstants(options(), document);
+        }
+
+        DSSEvaluator.Options options() {
+            DSSEvaluator.Options opts = new DSSEvaluator.Options(url);
+            opts.setErrors(new NullErrorReporter());
+            opts.setResourceLocator(locator);
+            return opts;
+        }
+
+        CssDocument evaluate() throws IOException {
+            return new DSSEvaluator(options()).evaluate(document);
+        }
+    }
+
+    private static ExceptionErrorReporter errors() {
+        return new ExceptionErrorReporter(new NullErrorReporter());
+    }
+
+    private static DSSDocument parse(String source) {
+        return DSSDocument.parse(source, errors());
+    }
+
+    private static byte[] writeBinary(DSSDocument document) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BinaryDocumentWriter(out).writeDocument(document);
+        return out.toByteArray();
+    }
+
+    private static DeclarationList firstBlock(DSSDocument document) {
+        for (Rule rule : document.getRules()) {
+            if (rule instanceof RuleSet) {
+                return ((RuleSet) rule).getDeclarationBlock().getDeclarations();
+            }
+        }
+        return null;
+    }
+
+    private static EvaluationState defineConstants(DSSEvaluator.Options opts, DSSDocument document) throws IOException {
+        EvaluationState state = new EvaluationState(opts);
+        for (Rule rule : document.getRules()) {
+            if (rule instanceof DefineDirective) {
+                rule.evaluate(state, document.getRules());
+            }
+        }
+        return state;
+    }
+
+    /**
+     * The linear search that DeclarationList used before it was indexed.
+     */
+    private static Declaration linearSearch(DeclarationList list, String name) {
+        Declaration found = null;
+        ListIterator<Declaration> it = list.listIterator(list.size());
+        while (it.hasPrevious()) {
+            Declaration declaration = it.previous();
+            if (declaration.getName().equalsIgnoreCase(name)) {
+                if (declaration.isImportant()) {
+                    return declaration;
+                }
+                else if (found == null) {
+                    found = declaration;
+                }
+            }
+        }
+        return found;
+    }
+
+    private static int lookupAll(DeclarationList list, boolean indexed) {
+        int found = 0;
+        if (list != null) {
+            for (Declaration declaration : list) {
+                Declaration d = indexed ? list.getDeclaration(declaration.getName()) : linearSearch(list, declaration.getName());
+                if (d != null) {
+                    ++found;
+                }
+            }
+        }
+        return found;
+    }
+
+    private static int substituteAll(DSSDocument document, EvaluationState state) {
+        int unchanged = 0;
+        for (Rule rule : document.getRules()) {
+            if (rule instanceof RuleSet) {
+                DeclarationList declarations = ((RuleSet) rule).getDeclarationBlock().getDeclarations();
+                for (Declaration declaration : declarations) {
+                    if (declaration.substituteValues(state, declarations, true, true) == declaration) {
+                        ++unchanged;
+                    }
+                }
+            }
+        }
+        return unchanged;
+    }
+
+    private static int run(String phase, Input input) throws IOException {
+        switch (phase) {
+        case "scan":
+            return TokenCounter.countTokens(input.source);
+        case "scan-stream":
+            return TokenCounter.countTokens(new ByteArrayInputStream(input.bytes));
+        case "scan-decoded":
+            return TokenCounter.countTokens(Charsets.UTF_8.decode(ByteBuffer.wrap(input.bytes)));
+        case "parse":
+            return parse(input.source).getRules().size();
+        case "parse-stream":
+            return DSSDocument.parse(new ByteArrayInputStream(input.bytes), errors()).getRules().size();
+        case "parse-bytes":
+            return DSSDocument.parse(ByteBuffer.wrap(input.bytes), errors()).getRules().size();
+        case "load-binary":
+            return new BinaryDocumentReader(new ByteArrayInputStream(input.binary)).readDocument().getRules().size();
+        case "evaluate":
+            return input.evaluate().getRules().size();
+        case "lookup-indexed":
+            return lookupAll(input.block, true);
+        case "lookup-linear":
+            return lookupAll(input.block, false);
+        case "substitute":
+            return substituteAll(input.document, input.state);
+        case "write":
+            return input.css.toString(false).length();
+        case "write-compact":
+            return input.css.toString(true).length();
+        default:
+            throw new IllegalArgumentException("Unknown phase: " + phase);
+        }
+    }
+
+    private static String calcClasses(File dir, int copies) throws IOException {
+        String calc = Files.toString(new File(dir, "calc.dss"), Charsets.UTF_8);
+        String calcProp = Files.toString(new File(dir, "calc-prop.dss"), Charsets.UTF_8);
+        StringBuilder sb = new StringBuilder(Strings.repeat(calc + "\n" + calcProp + "\n", copies));
+        sb.append("@class box<w: 1px> { width: [param(w) * 2 + 1em]; margin: [-(param(w)) / 4 + const(pi) * 1px]; }\n");
+        for (int i = 0; i < copies; i++) {
+            sb.append(".box").append(i).append(" { apply: box<w: ").append(i).append("px>; }\n");
+        }
+        return sb.toString();
+    }
+
+    private static String mixins(int rules) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("@define { pi: 3.14159; }\n");
+        sb.append("@class box<w: 1px; h: 1px> { width: [param(w) * 2 + 1px]; margin: [-(param(w)) / 4 + const(pi) * 1px]; ")
+            .append("height: [param(h) * 3 / 2 - 2px]; padding: [(param(w) + param(h)) / 4]; }\n");
+        for (int i = 0; i < rules; i++) {
+            sb.append(".box").append(i).append(" { apply: box<w: ").append(i).append("px; h: ").append(i % 97).append("px>; }\n");
+        }
+        return sb.toString();
+    }
+
+    private static String declarations(int rules) {
+        StringBuilder sb = new StringBuilder();
+        for (int r = 0; r < rules; r++) {
+            sb.append(".rule").append(r).append(" {\n");
+            for (int i = 0; i < DECLARATIONS; i++) {
+                sb.append("\tProp-").append(i).append(": ");
+                if (i < 10) {
+                    sb.append(i).append("px");
+                }
+                else {
+                    sb.append("prop(prop-").append(i % 10).append(") prop(PROP-").append(i - 1).append(')');
+                }
+                if (i % 50 == 0) {
+                    sb.append(" !important");
+                }
+                sb.append(";\n");
+            }
+            sb.append("}\n");
+        }
+        return sb.toString();
+    }
+
+    private static String substitution(int rules) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("@define { gutter: 12px; }\n");
+        for (int r = 0; r < rules; r++) {
+            sb.append(".rule").append(r).append(" {\n")
+                .append("\tdisplay: block;\n")
+                .append("\tposition: relative;\n")
+                .append("\tfont-family: \"Helvetica Neue\", Arial, sans-serif;\n")
+                .append("\tfont-size: ").append(r % 20 + 10).append("px;\n")
+                .append("\tline-height: 1.4;\n")
+                .append("\tmargin: 0 auto 1em;\n")
+                .append("\tborder: 1px solid #").append(Integer.toHexString(0x100 + r % 0xF00)).append(";\n")
+                .append("\tbackground: url(\"images/bg").append(r % 7).append(".png\") no-repeat;\n")
+                .append("\tpadding: const(gutter);\n")
+                .append("\tcolor: darken(#369, ").append(r % 50).append("%);\n")
+                .append("}\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Loads or generates an input.
+     *
+     * @param dir The test directory.
+     * @param spec The input's name, optionally followed by a colon and its
+     * size.
+     */
+    private static Input loadInput(File dir, String spec) throws IOException {
+        int colon = spec.indexOf(':');
+        String name = colon < 0 ? spec : spec.substring(0, colon);
+        int size = colon < 0 ? -1 : Integer.parseInt(spec.substring(colon + 1));
+        URL url = new URL("file:/benchmark/" + name + ".dss");
+        ResourceLocator locator = new DefaultResourcesLocator();
+
+        switch (name) {
+        case SYNTHETIC:
+            Map<String, String> files = new StylesheetGenerator().setRuleSets(size < 0 ? SYNTHETIC_RULES : size).generate();
+            return new Input(spec, new URL(StylesheetGenerator.BASE_URL), StylesheetGenerator.getResourceLocator(files),
+                    files.get(StylesheetGenerator.MAIN));
+        case "calc-classes":
+            return new Input(spec, url, locator, calcClasses(dir, size < 0 ? CALC_COPIES : size));
+        case "mixins":
+            return new Input(spec, url, locator, mixins(size < 0 ? MIXIN_RULES : size));
+        case "declarations":
+            return new Input(spec, url, locator, declarations(size < 0 ? DECLARATION_RULES : size));
+        case "substitution":
+            return new Input(spec, url, locator, substitution(size < 0 ? SUBSTITUTION_RULES : size));
+        default:
+            File f = new File(dir, name + ".dss");
+            if (!f.isFile()) {
+                throw new IOException("Unknown phase or input: " + spec);
+            }
+            String source = Files.toString(f, Charsets.UTF_8);
+            return new Input(spec, f.toURI().toURL(), locator, size < 0 ? source : Strings.repeat(source + "\n", size));
+        }
+    }
+
+    private static List<String> defaultInputs(File dir) throws IOException {
+        String[] files = dir.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File directory, String filename) {
+                return filename.endsWith(".dss");
+            }
+        });
+        if (files == null) {
+            throw new IOException("Missing test directory: " + dir);
+        }
+        Arrays.sort(files);
+
+        List<String> names = new ArrayList<>();
+        for (String file : files) {
+            names.add(file.substring(0, file.length() - ".dss".length()));
+        }
+        names.add(SYNTHETIC);
+        return names;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Runs a phase repeatedly for about the given time.
+     *
+     * @return The number of operations, the elapsed nanoseconds, and the
+     * allocated bytes.
+     */
+    private static long[] measure(String phase, Input input, long nanos) throws IOException {
+        long operations = 0;
+        int result = 0;
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            result += run(phase, input);
+            operations++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < nanos);
+        bytes = allocatedBytes() - bytes;
+        sink += result;
+        return new long[] { operations, elapsed, bytes };
+    }
+
+    public static void main(String[] args) throws IOException {
+        long warmup = 500;
+        long time = 1000;
+        Set<String> phases = new LinkedHashSet<>();
+        Set<String> inputNames = new LinkedHashSet<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-w")) {
+                warmup = Long.parseLong(args[++i]);
+            }
+            else if (args[i].equals("-t")) {
+                time = Long.parseLong(args[++i]);
+            }
+            else if (PHASES.contains(args[i]) || EXTRA_PHASES.contains(args[i])) {
+                phases.add(args[i]);
+            }
+            else {
+                inputNames.add(args[i]);
+            }
+        }
+        if (phases.isEmpty()) {
+            phases.addAll(PHASES);
+        }
+
+        File dir = new File(System.getProperty("dss.test.dir", "test"));
+        List<Input> inputs = new ArrayList<>();
+        for (String name : inputNames.isEmpty() ? defaultInputs(dir) : inputNames) {
+            inputs.add(loadInput(dir, name));
+        }
+
+        System.out.printf("%-14s %-28s %12s %12s %12s %10s%n", "phase", "input", "ops/s", "us/op", "B/op", "MB/s");
+        for (String phase : phases) {
+            for (Input input : inputs) {
+                measure(phase, input, warmup * 1000000);
+                long[] result = measure(phase, input, time * 1000000);
+                double seconds = result[1] / 1e9;
+                System.out.printf("%-14s %-28s %12.1f %12.2f %12d %10.1f%n",
+                        phase, input.name, result[0] / seconds, result[1] / 1e3 / result[0],
+                        result[2] / result[0], result[2] / 1e6 / seconds);
+            }
+        }
+    }
+}
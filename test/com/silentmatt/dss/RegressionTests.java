@@ -6,7 +6,6 @@ import com.silentmatt.dss.error.ExceptionErrorReporter;
 import com.silentmatt.dss.error.NullErrorReporter;
 import com.silentmatt.dss.evaluator.DSSEvaluator;
 import com.silentmatt.dss.evaluator.DefaultResourcesLocator;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
@@ -60,7 +59,7 @@ public class RegressionTests {
     private String compile(URL url, String dssString, boolean compact) {
         try {
             ErrorReporter errors = new ExceptionErrorReporter(new NullErrorReporter());
-            DSSDocument dss = DSSDocument.parse(new ByteArrayInputStream(dssString.getBytes(Charsets.UTF_8)), errors);
+            DSSDocument dss = DSSDocument.parse(dssString, errors);
             DSSEvaluator.Options opts = new DSSEvaluator.Options(url);
             opts.setErrors(errors);
             opts.setResourceLocator(new DefaultResourcesLocator());
@@ -0,0 +1,399 @@
+package com.silentmatt.dss;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.silentmatt.dss.evaluator.ResourceLocator;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates synthetic DSS stylesheets for benchmarks.
+ *
+ * The output only depends on the settings, including the seed, so the same
+ * settings always generate the same stylesheets. Every generated stylesheet
+ * compiles without errors.
+ *
+ * A workload is a main document, "main.dss", and a tree of included
+ * documents. {@link #generate()} returns all of them, and they can be written
+ * to a directory with {@link #write}, or evaluated in memory by using
+ * {@link #getResourceLocator} with {@link #BASE_URL}.
+ *
+ * It can also be run from the project directory, with the settings given as
+ * name=value arguments, and "out" naming the directory to write to:
+ *
+ * <pre>java -cp build/classes:build/test/classes:lib/guava-18.0.jar com.silentmatt.dss.StylesheetGenerator ruleSets=5000 includeDepth=2 out=build/generated-dss</pre>
+ */
+public final class StylesheetGenerator {
+    /**
+     * The name of the main document.
+     */
+    public static final String MAIN = "main.dss";
+
+    /**
+     * The URL that generated documents are evaluated relative to.
+     */
+    public static final String BASE_URL = "file:/generated/" + MAIN;
+
+    private static final int CONSTANTS = 8;
+    private static final int FLAGS = 4;
+    private static final int INCLUDED_RULE_SETS = 5;
+    private static final String[] ELEMENTS = { "a", "p", "li", "span", "div", "h2", "input", "td" };
+    private static final String[] PSEUDO_CLASSES = { "", ":hover", ":first-child", ":focus", "" };
+    private static final String[] KEYWORDS = { "auto", "none", "inherit", "block", "inline-block", "relative" };
+    private static final String[] PROPERTIES = { "color", "margin", "padding", "width", "height", "font-size", "border", "background", "line-height", "display" };
+
+    private long seed = 1;
+    private int ruleSets = 1000;
+    private int nestingDepth = 1;
+    private int selectorFanOut = 2;
+    private int declarations = 5;
+    private int mixins = 10;
+    private int mixinsPerRule = 1;
+    private int mixinParameters = 2;
+    private int includeDepth = 0;
+    private int includeWidth = 2;
+    private double ifDensity = 0.1;
+    private double calcDensity = 0.2;
+
+    private Random random;
+
+    public StylesheetGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Sets the number of top-level rule sets in the main document.
+     */
+    public StylesheetGenerator setRuleSets(int ruleSets) {
+        this.ruleSets = ruleSets;
+        return this;
+    }
+
+    /**
+     * Sets how deeply rule sets are nested inside each top-level rule set.
+     */
+    public StylesheetGenerator setNestingDepth(int nestingDepth) {
+        this.nestingDepth = nestingDepth;
+        return this;
+    }
+
+    /**
+     * Sets the number of selectors in each rule set's selector list.
+     */
+    public StylesheetGenerator setSelectorFanOut(int selectorFanOut) {
+        this.selectorFanOut = selectorFanOut;
+        return this;
+    }
+
+    /**
+     * Sets the number of declarations in each rule set, not counting mixins.
+     */
+    public StylesheetGenerator setDeclarations(int declarations) {
+        this.declarations = declarations;
+        return this;
+    }
+
+    /**
+     * Sets the number of @class definitions.
+     */
+    public StylesheetGenerator setMixins(int mixins) {
+        this.mixins = mixins;
+        return this;
+    }
+
+    /**
+     * Sets the number of classes applied in each top-level rule set.
+     */
+    public StylesheetGenerator setMixinsPerRule(int mixinsPerRule) {
+        this.mixinsPerRule = mixinsPerRule;
+        return this;
+    }
+
+    /**
+     * Sets the number of parameters each @class takes.
+     */
+    public StylesheetGenerator setMixinParameters(int mixinParameters) {
+        this.mixinParameters = mixinParameters;
+        return this;
+    }
+
+    /**
+     * Sets the number of levels of included documents. Zero means the main
+     * document doesn't include anything.
+     */
+    public StylesheetGenerator setIncludeDepth(int includeDepth) {
+        this.includeDepth = includeDepth;
+        return this;
+    }
+
+    /**
+     * Sets the number of documents each document includes, above the bottom
+     * level of the include tree.
+     */
+    public StylesheetGenerator setIncludeWidth(int includeWidth) {
+        this.includeWidth = includeWidth;
+        return this;
+    }
+
+    /**
+     * Sets the fraction of declarations that are inside an @if block.
+     */
+    public StylesheetGenerator setIfDensity(double ifDensity) {
+        this.ifDensity = ifDensity;
+        return this;
+    }
+
+    /**
+     * Sets the fraction of declarations that are calculations.
+     */
+    public StylesheetGenerator setCalcDensity(double calcDensity) {
+        this.calcDensity = calcDensity;
+        return this;
+    }
+
+    /**
+     * Generates the documents.
+     *
+     * @return The text of each document by file name, starting with
+     * {@link #MAIN}.
+     */
+    public Map<String, String> generate() {
+        random = new Random(seed);
+        Map<String, String> files = new LinkedHashMap<>();
+        StringBuilder main = new StringBuilder();
+        appendDefinitions(main);
+        appendIncludes(main, files, "inc", 1);
+        for (int i = 0; i < ruleSets; i++) {
+            appendRuleSet(main, "r" + i);
+        }
+
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put(MAIN, main.toString());
+        result.putAll(files);
+        return Collections.unmodifiableMap(result);
+    }
+
+    private void appendDefinitions(StringBuilder sb) {
+        sb.append("@define {\n");
+        for (int i = 0; i < CONSTANTS; i++) {
+            sb.append("\tc").append(i).append(": ");
+            if (i % 2 == 0) {
+                sb.append(random.nextInt(40) + 1).append("px");
+            }
+            else {
+                appendColor(sb);
+            }
+            sb.append(";\n");
+        }
+        for (int i = 0; i < FLAGS; i += 2) {
+            sb.append("\tflag").append(i).append(": yes;\n");
+        }
+        sb.append("}\n\n");
+
+        for (int m = 0; m < mixins; m++) {
+            sb.append("@class mixin").append(m).append('<');
+            for (int p = 0; p < mixinParameters; p++) {
+                if (p > 0) {
+                    sb.append("; ");
+                }
+                sb.append('p').append(p).append(": ").append(random.nextInt(10) + 1).append("px");
+            }
+            sb.append("> {\n");
+            for (int p = 0; p < mixinParameters; p++) {
+                sb.append("\t").append(PROPERTIES[(m + p) % PROPERTIES.length]).append(": ");
+                if (random.nextDouble() < calcDensity) {
+                    sb.append("[param(p").append(p).append(") * ").append(random.nextInt(4) + 1).append(" + const(c0)]");
+                }
+                else {
+                    sb.append("param(p").append(p).append(')');
+                }
+                sb.append(";\n");
+            }
+            sb.append("\tdisplay: ").append(KEYWORDS[m % KEYWORDS.length]).append(";\n");
+            sb.append("}\n\n");
+        }
+    }
+
+    private void appendIncludes(StringBuilder sb, Map<String, String> files, String prefix, int level) {
+        if (level > includeDepth) {
+            return;
+        }
+        for (int i = 0; i < includeWidth; i++) {
+            String name = prefix + "-" + i;
+            sb.append("@include url(").append(name).append(".dss);\n");
+
+            StringBuilder included = new StringBuilder();
+            appendIncludes(included, files, name, level + 1);
+            for (int r = 0; r < INCLUDED_RULE_SETS; r++) {
+                appendRuleSet(included, name + "-r" + r);
+            }
+            files.put(name + ".dss", included.toString());
+        }
+        sb.append('\n');
+    }
+
+    private void appendRuleSet(StringBuilder sb, String name) {
+        for (int s = 0; s < selectorFanOut; s++) {
+            if (s > 0) {
+                sb.append(", ");
+            }
+            sb.append('.').append(name).append('-').append(s).append(' ')
+                .append(ELEMENTS[random.nextInt(ELEMENTS.length)])
+                .append(PSEUDO_CLASSES[random.nextInt(PSEUDO_CLASSES.length)]);
+        }
+        sb.append(" {\n");
+        for (int m = 0; m < mixinsPerRule && mixins > 0; m++) {
+            sb.append("\tapply: mixin").append(random.nextInt(mixins)).append('<');
+            for (int p = 0; p < mixinParameters; p++) {
+                if (p > 0) {
+                    sb.append("; ");
+                }
+                sb.append(random.nextInt(20)).append("px");
+            }
+            sb.append(">;\n");
+        }
+        appendBody(sb, "\t", nestingDepth);
+        sb.append("}\n");
+    }
+
+    private void appendBody(StringBuilder sb, String indent, int depth) {
+        for (int d = 0; d < declarations; d++) {
+            if (random.nextDouble() < ifDensity) {
+                sb.append(indent).append("@if flag").append(random.nextInt(FLAGS)).append(" {\n");
+                appendDeclaration(sb, indent + "\t", d);
+                sb.append(indent).append("}\n").append(indent).append("@else {\n");
+                appendDeclaration(sb, indent + "\t", d);
+                sb.append(indent).append("}\n");
+            }
+            else {
+                appendDeclaration(sb, indent, d);
+            }
+        }
+        if (depth > 0) {
+            sb.append(indent).append(ELEMENTS[random.nextInt(ELEMENTS.length)]).append(" {\n");
+            appendBody(sb, indent + "\t", depth - 1);
+            sb.append(indent).append("}\n");
+        }
+    }
+
+    private void appendDeclaration(StringBuilder sb, String indent, int index) {
+        String property = PROPERTIES[(index + random.nextInt(3)) % PROPERTIES.length];
+        sb.append(indent).append(property).append(": ");
+        if (random.nextDouble() < calcDensity) {
+            int constant = random.nextInt(CONSTANTS / 2) * 2;
+            sb.append("[const(c").append(constant).append(") * ").append(random.nextInt(5) + 1)
+                .append(" - ").append(random.nextInt(10)).append("px]");
+        }
+        else {
+            switch (random.nextInt(4)) {
+            case 0:
+                appendColor(sb);
+                break;
+            case 1:
+                sb.append(random.nextInt(100)).append("px ").append(KEYWORDS[random.nextInt(KEYWORDS.length)]);
+                break;
+            case 2:
+                sb.append("const(c").append(random.nextInt(CONSTANTS)).append(')');
+                break;
+            default:
+                sb.append(KEYWORDS[random.nextInt(KEYWORDS.length)]);
+                break;
+            }
+        }
+        sb.append(";\n");
+    }
+
+    private void appendColor(StringBuilder sb) {
+        sb.append('#').append(Integer.toHexString(0x1000000 + random.nextInt(0x1000000)).substring(1));
+    }
+
+    /**
+     * Writes generated documents to a directory.
+     *
+     * @param files The documents from {@link #generate()}.
+     * @param directory The directory to write to. It's created if it doesn't exist.
+     *
+     * @return The main document.
+     */
+    public static File write(Map<String, String> files, File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            Files.write(file.getValue(), new File(directory, file.getKey()), Charsets.UTF_8);
+        }
+        return new File(directory, MAIN);
+    }
+
+    /**
+     * Gets a {@link ResourceLocator} that reads generated documents from
+     * memory, for evaluating a document relative to {@link #BASE_URL}.
+     *
+     * @param files The documents from {@link #generate()}.
+     *
+     * @return A ResourceLocator that finds files by name.
+     */
+    public static ResourceLocator getResourceLocator(final Map<String, String> files) {
+        return new ResourceLocator() {
+            @Override
+            public InputStream openResource(URL url) throws IOException {
+                String path = url.getPath();
+                String text = files.get(path.substring(path.lastIndexOf('/') + 1));
+                if (text == null) {
+                    throw new FileNotFoundException(url.toString());
+                }
+                return new ByteArrayInputStream(text.getBytes(Charsets.UTF_8));
+            }
+        };
+    }
+
+    public static void main(String[] args) throws IOException {
+        StylesheetGenerator generator = new StylesheetGenerator();
+        File out = null;
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected name=value: " + arg);
+            }
+            String name = arg.substring(0, equals);
+            String value = arg.substring(equals + 1);
+            switch (name) {
+            case "seed": generator.setSeed(Long.parseLong(value)); break;
+            case "ruleSets": generator.setRuleSets(Integer.parseInt(value)); break;
+            case "nestingDepth": generator.setNestingDepth(Integer.parseInt(value)); break;
+            case "selectorFanOut": generator.setSelectorFanOut(Integer.parseInt(value)); break;
+            case "declarations": generator.setDeclarations(Integer.parseInt(value)); break;
+            case "mixins": generator.setMixins(Integer.parseInt(value)); break;
+            case "mixinsPerRule": generator.setMixinsPerRule(Integer.parseInt(value)); break;
+            case "mixinParameters": generator.setMixinParameters(Integer.parseInt(value)); break;
+            case "includeDepth": generator.setIncludeDepth(Integer.parseInt(value)); break;
+            case "includeWidth": generator.setIncludeWidth(Integer.parseInt(value)); break;
+            case "ifDensity": generator.setIfDensity(Double.parseDouble(value)); break;
+            case "calcDensity": generator.setCalcDensity(Double.parseDouble(value)); break;
+            case "out": out = new File(value); break;
+            default: throw new IllegalArgumentException("Unknown setting: " + name);
+            }
+        }
+
+        Map<String, String> files = generator.generate();
+        if (out == null) {
+            if (files.size() > 1) {
+                throw new IllegalArgumentException("Included documents need an output directory (out=...)");
+            }
+            System.out.print(files.get(MAIN));
+        }
+        else {
+            File main = write(files, out);
+            System.out.printf("Wrote %d files to %s%n", files.size(), main.getParent());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.silentmatt.dss;
+
+import com.silentmatt.dss.css.CssDocument;
+import com.silentmatt.dss.error.ExceptionErrorReporter;
+import com.silentmatt.dss.error.ListErrorReporter;
+import com.silentmatt.dss.error.NullErrorReporter;
+import com.silentmatt.dss.evaluator.DSSEvaluator;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class StylesheetGeneratorTest {
+    private static StylesheetGenerator small() {
+        return new StylesheetGenerator().setRuleSets(50).setIfDensity(0.3).setCalcDensity(0.3);
+    }
+
+    private static CssDocument compile(Map<String, String> files) throws IOException {
+        ListErrorReporter errors = new ListErrorReporter();
+        DSSDocument document = DSSDocument.parse(files.get(StylesheetGenerator.MAIN), new ExceptionErrorReporter(new NullErrorReporter()));
+        DSSEvaluator.Options opts = new DSSEvaluator.Options(new URL(StylesheetGenerator.BASE_URL));
+        opts.setErrors(errors);
+        opts.setResourceLocator(StylesheetGenerator.getResourceLocator(files));
+        CssDocument css = new DSSEvaluator(opts).evaluate(document);
+        assertEquals(errors.getErrors().toString(), 0, errors.getErrorCount());
+        assertEquals(errors.getWarnings().toString(), 0, errors.getWarningCount());
+        return css;
+    }
+
+    @Test
+    public void testSameSeedSameOutput() {
+        assertEquals(small().setSeed(7).generate(), small().setSeed(7).generate());
+        assertFalse(small().setSeed(7).generate().equals(small().setSeed(8).generate()));
+    }
+
+    @Test
+    public void testGeneratedDocumentsCompile() throws IOException {
+        Map<String, String> files = small().setNestingDepth(2).setMixinsPerRule(2).setMixinParameters(3).generate();
+        assertEquals(1, files.size());
+        String css = compile(files).toString();
+        assertTrue(css.contains(".r49-0 "));
+        assertFalse(css.contains("const("));
+        assertFalse(css.contains("param("));
+    }
+
+    @Test
+    public void testIncludeTree() throws IOException {
+        Map<String, String> files = small().setIncludeDepth(2).setIncludeWidth(3).generate();
+        // 3 included documents, each including 3 more
+        assertEquals(1 + 3 + 9, files.size());
+        assertTrue(files.containsKey("inc-2-1.dss"));
+        String css = compile(files).toString();
+        assertTrue(css.contains(".inc-2-1-r4-0 "));
+    }
+}
@@ -0,0 +1,134 @@
+package com.silentmatt.dss.calc;
+
+import com.silentmatt.dss.declaration.Expression;
+import com.silentmatt.dss.error.ListErrorReporter;
+import com.silentmatt.dss.error.Message;
+import com.silentmatt.dss.evaluator.DSSEvaluator;
+import com.silentmatt.dss.evaluator.EvaluationState;
+import com.silentmatt.dss.parser.DSSParser;
+import com.silentmatt.dss.term.CalculationTerm;
+import com.silentmatt.dss.term.NumberTerm;
+import com.silentmatt.dss.term.Term;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CompiledCalculationTest {
+    private ListErrorReporter errors;
+    private EvaluationState state;
+
+    @Before
+    public void setUp() {
+        errors = new ListErrorReporter();
+        DSSEvaluator.Options opts = new DSSEvaluator.Options(null);
+        opts.setErrors(errors);
+        opts.getVariables().declare("width", DSSParser.parseExpression("10px"));
+        opts.getVariables().declare("scale", new NumberTerm(1.5).toExpression());
+        opts.getVariables().declare("nested", DSSParser.parseExpression("@calc(const(width) * 2)"));
+        opts.getVariables().declare("pair", DSSParser.parseExpression("1px 2px"));
+        opts.getVariables().declare("alias", DSSParser.parseExpression("const(scale)"));
+        opts.getVariables().declare("word", DSSParser.parseExpression("auto"));
+        state = new EvaluationState(opts);
+    }
+
+    private static CalcExpression calc(String text) {
+        return ((CalculationTerm) DSSParser.parseExpression("@calc(" + text + ")").getTerms().get(0)).getCalculation();
+    }
+
+    private void bind(String name, String value) {
+        Map<String, Expression> parameters = new HashMap<>();
+        parameters.put(name, DSSParser.parseExpression(value));
+        state.pushParameters(parameters);
+    }
+
+    private List<String> takeErrors() {
+        List<String> messages = new ArrayList<>();
+        for (Message message : errors.getErrors()) {
+            messages.add(message.getMessage());
+        }
+        errors.getErrors().clear();
+        return messages;
+    }
+
+    /**
+     * Checks that the compiled calculation does the same thing as
+     * substituting the values and evaluating the result.
+     */
+    private void assertSameResult(CompiledCalculation compiled, CalcExpression expression, boolean withParams) {
+        CalcExpression substituted = expression.withSubstitutedValues(state, null, withParams, false);
+        Value expected = substituted.calculateValue(state, null);
+        List<String> expectedErrors = takeErrors();
+
+        Term[] values = compiled.substituteValues(state, null, withParams);
+        Value actual = compiled.calculateValue(values, state, null);
+        List<String> actualErrors = takeErrors();
+
+        assertEquals(String.valueOf(expected), String.valueOf(actual));
+        assertEquals(expectedErrors, actualErrors);
+        assertEquals(substituted.toString(), compiled.withValues(values).toString());
+    }
+
+    @Test
+    public void testSameAsSubstitution() {
+        String[] expressions = {
+            "1px + 2px",
+            "-(3em) * 2",
+            "(1in + 1cm) / 2 - 1mm",
+            "const(width) * const(scale)",
+            "const(width) + 1em",
+            "1px / 0px",
+            "const(nested) + 1px",
+            "const(alias) * 2",
+            "const(missing) + const(width)",
+            "const(pair) * 2",
+            "const(word) + 1px",
+            "param(size) * 2 + const(width)",
+            "rgb(1, 2, 3) + 1px",
+        };
+        for (String text : expressions) {
+            CalcExpression expression = calc(text);
+            CompiledCalculation compiled = CompiledCalculation.compile(expression);
+            assertNotNull(text, compiled);
+            assertSameResult(compiled, expression, true);
+            assertSameResult(compiled, expression, false);
+        }
+        assertEquals(0, errors.getWarningCount());
+    }
+
+    @Test
+    public void testRepeatedBindings() throws CalculationException {
+        CalcExpression expression = calc("param(size) * 2 + 1px");
+        CompiledCalculation compiled = CompiledCalculation.compile(expression);
+        assertEquals(1, compiled.getSlotCount());
+
+        for (int i = 0; i < 10; i++) {
+            bind("size", i + "px");
+            assertEquals((2 * i + 1) + "px", compiled.calculateValue(compiled.substituteValues(state, null, true), state, null).toTerm().toString());
+            assertSameResult(compiled, expression, true);
+            state.popParameters();
+        }
+
+        bind("size", "1em");
+        assertNull(compiled.calculateValue(compiled.substituteValues(state, null, true), state, null));
+        assertEquals("[incompatible units]", takeErrors().toString());
+        state.popParameters();
+    }
+
+    @Test
+    public void testConstantsAreFolded() throws CalculationException {
+        CompiledCalculation compiled = CompiledCalculation.compile(calc("(1px + 2px) * -(3)"));
+        assertEquals(0, compiled.getSlotCount());
+        assertEquals("-9px", compiled.calculateValue(new Term[0], null, null).toTerm().toString());
+    }
+
+    @Test
+    public void testOnlyParameterizedCalculationsAreCompiled() {
+        assertNull(CompiledCalculation.compileParameterized(calc("const(width) * 2 + 1px")));
+        assertNull(CompiledCalculation.compileParameterized(calc("(1px + 2px) * -(3)")));
+        assertNotNull(CompiledCalculation.compileParameterized(calc("const(width) + -(param(size)) / 2")));
+    }
+}
@@ -0,0 +1,127 @@
+package com.silentmatt.dss.calc;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class DimensionsTest {
+    private static final int[] RANGES = { 63, 63, 63, 7, 7, 63, 7, 7, 7, 7, 7, 7, 7 };
+
+    private static int[] randomExponents(Random random, int scale) {
+        int[] exponents = new int[Dimensions.COUNT];
+        for (int i = 0; i < exponents.length; i++) {
+            int range = RANGES[i] / scale;
+            exponents[i] = random.nextInt(2 * range + 1) - range;
+        }
+        return exponents;
+    }
+
+    private static void assertExponents(int[] expected, long dimensions) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], Dimensions.get(dimensions, i));
+        }
+    }
+
+    @Test
+    public void testMultiplyAndDivide() {
+        Random random = new Random(19);
+        for (int n = 0; n < 100000; n++) {
+            int[] a = randomExponents(random, 2);
+            int[] b = randomExponents(random, 2);
+            int[] sum = new int[a.length];
+            int[] difference = new int[a.length];
+            for (int i = 0; i < a.length; i++) {
+                sum[i] = a[i] + b[i];
+                difference[i] = a[i] - b[i];
+            }
+
+            long packedA = Dimensions.of(a);
+            long packedB = Dimensions.of(b);
+            assertExponents(a, packedA);
+            assertExponents(sum, Dimensions.multiply(packedA, packedB));
+            assertExponents(difference, Dimensions.divide(packedA, packedB));
+            assertEquals(Dimensions.of(sum), Dimensions.multiply(packedA, packedB));
+        }
+    }
+
+    @Test
+    public void testOverflow() {
+        long px = CalculationUnit.PX.getDimensions();
+        long square = Dimensions.multiply(px, px);
+        long pxMax = square;
+        for (int i = 2; i < 63; i++) {
+            pxMax = Dimensions.multiply(pxMax, px);
+        }
+        assertEquals(63, Dimensions.get(pxMax, Dimensions.PX));
+        try {
+            Dimensions.multiply(pxMax, px);
+            fail("px^64 should overflow");
+        }
+        catch (ArithmeticException ex) {
+        }
+
+        long s = CalculationUnit.S.getDimensions();
+        long perS = Dimensions.divide(Dimensions.NONE, s);
+        long sMin = perS;
+        for (int i = 1; i < 8; i++) {
+            sMin = Dimensions.divide(sMin, s);
+        }
+        assertEquals(-8, Dimensions.get(sMin, Dimensions.TIME));
+        assertEquals(0, Dimensions.get(sMin, Dimensions.ANGLE));
+        try {
+            Dimensions.divide(sMin, s);
+            fail("s^-9 should overflow");
+        }
+        catch (ArithmeticException ex) {
+        }
+    }
+
+    @Test
+    public void testCompareAndHash() {
+        assertTrue(CalculationUnit.PX.compareTo(CalculationUnit.Percent) > 0);
+        assertTrue(CalculationUnit.None.compareTo(CalculationUnit.Hz) > 0);
+        assertEquals(0, CalculationUnit.IN.compareTo(CalculationUnit.PT));
+        assertEquals(CalculationUnit.IN, CalculationUnit.PT);
+        assertEquals(CalculationUnit.IN.hashCode(), CalculationUnit.PT.hashCode());
+
+        CalculationUnit[] units = {
+            CalculationUnit.PX, CalculationUnit.Percent, CalculationUnit.PT, CalculationUnit.DEG,
+            CalculationUnit.S, CalculationUnit.Hz, CalculationUnit.EM, CalculationUnit.GD,
+            CalculationUnit.REM, CalculationUnit.VW, CalculationUnit.VH, CalculationUnit.VM,
+            CalculationUnit.CH, CalculationUnit.FR
+        };
+        Set<Integer> hashes = new HashSet<>();
+        for (CalculationUnit a : units) {
+            for (CalculationUnit b : units) {
+                hashes.add(a.divide(b).hashCode());
+            }
+        }
+        assertEquals(1 + units.length * (units.length - 1), hashes.size());
+    }
+
+    @Test
+    public void testUnitStrings() {
+        assertEquals("px", CalculationUnit.PX.toString());
+        assertEquals("pt", CalculationUnit.IN.toString());
+        assertEquals("px^2", CalculationUnit.PX.multiply(CalculationUnit.PX).toString());
+        assertEquals("px/em", CalculationUnit.PX.divide(CalculationUnit.EM).toString());
+        assertEquals("/deg^2 s", CalculationUnit.Hz.divide(CalculationUnit.DEG.multiply(CalculationUnit.DEG)).toString());
+    }
+
+    @Test
+    public void testValues() throws CalculationException {
+        Value sum = new Value(1, CalculationUnit.IN).add(new Value(6, CalculationUnit.PT));
+        assertEquals("78pt", sum.toTerm().toString());
+        Value ratio = new Value(3, Unit.PX).multiply(new Value(2, Unit.EM)).divide(new Value(4, Unit.EM));
+        assertEquals("1.5px", ratio.toTerm().toString());
+        assertEquals("-1.5px", ratio.negate().toTerm().toString());
+        try {
+            new Value(1, Unit.PX).add(new Value(1, Unit.EM));
+            fail("px and em aren't compatible");
+        }
+        catch (IllegalArgumentException ex) {
+        }
+    }
+}
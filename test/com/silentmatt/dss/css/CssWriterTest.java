@@ -0,0 +1,53 @@
+package com.silentmatt.dss.css;
+
+import com.google.common.base.Charsets;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CssWriterTest {
+    private static CssRuleSet ruleSet(String element, String property) {
+        CssSimpleSelector simple = new CssSimpleSelector();
+        simple.setCombinator(CssCombinator.None);
+        simple.setElementName(element);
+        CssSelector selector = new CssSelector();
+        selector.getSimpleSelectors().add(simple);
+
+        CssRuleSet rs = new CssRuleSet();
+        rs.getSelectors().add(selector);
+        if (property != null) {
+            rs.getDeclarations().add(new CssDeclaration(property, new CssExpression(new CssTerm("0"))));
+        }
+        return rs;
+    }
+
+    @Test
+    public void testEmptyRulesAreSkipped() {
+        CssRuleList inner = new CssRuleList(Arrays.<CssRule>asList(ruleSet("a", null), ruleSet("b", "margin")));
+        CssRuleList outer = new CssRuleList(Arrays.<CssRule>asList(ruleSet("p", "padding"), inner, ruleSet("i", null), ruleSet("q", "border")));
+
+        assertEquals("p {\n\tpadding: 0;\n}\nb {\n\tmargin: 0;\n}\nq {\n\tborder: 0;\n}", outer.toString());
+        assertEquals("p{padding:0}b{margin:0}q{border:0}", outer.toString(true, 0));
+
+        CssDocument doc = new CssDocument();
+        doc.addRule(ruleSet("a", null));
+        doc.addRule(outer);
+        assertEquals(outer.toString() + "\n", doc.toString());
+    }
+
+    @Test
+    public void testOutputStream() throws IOException {
+        CssDocument doc = new CssDocument();
+        doc.addRule(new CssLiteralText("/* é */"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CssWriter out = new CssWriter(bytes);
+        doc.write(out, false);
+        out.flush();
+
+        assertEquals(doc.toString(), new String(bytes.toByteArray(), Charsets.UTF_8));
+        assertEquals(doc.toString().length(), out.getCount());
+    }
+}
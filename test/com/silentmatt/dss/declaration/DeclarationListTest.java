@@ -0,0 +1,56 @@
+package com.silentmatt.dss.declaration;
+
+import com.google.common.collect.ImmutableList;
+import com.silentmatt.dss.term.StringTerm;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class DeclarationListTest {
+    private static Declaration declaration(String name, String value, boolean important) {
+        return new Declaration(name, new StringTerm(value).toExpression(), important);
+    }
+
+    private static DeclarationList list(int padding, Declaration... declarations) {
+        ImmutableList.Builder<Declaration> builder = ImmutableList.builder();
+        for (int i = 0; i < padding; i++) {
+            builder.add(declaration("padding-" + i, "x", false));
+        }
+        return new DeclarationList(builder.add(declarations).build());
+    }
+
+    @Test
+    public void testLookupRules() {
+        // Check both the linear search and the index
+        for (int padding : new int[] { 0, 20 }) {
+            DeclarationList list = list(padding,
+                    declaration("Color", "first", false),
+                    declaration("color", "important", true),
+                    declaration("COLOR", "last", false),
+                    declaration("width", "a", false),
+                    declaration("WIDTH", "b", false),
+                    declaration("margin", "1", true),
+                    declaration("Margin", "2", true));
+
+            assertEquals("important", list.get("color").toString());
+            assertEquals("b", list.get("Width").toString());
+            assertEquals("2", list.get("MARGIN").toString());
+            assertNull(list.get("border"));
+
+            assertEquals("first", list.getFirstDeclaration("cOlOr").getExpression().toString());
+            assertEquals("a", list.getFirstDeclaration("width").getExpression().toString());
+            assertNull(list.getFirstDeclaration("border"));
+
+            assertTrue(list.containsKey("WiDtH"));
+            assertFalse(list.containsKey("height"));
+        }
+    }
+
+    @Test
+    public void testNormalize() {
+        assertSame("font-size", DeclarationList.normalize("font-size"));
+        assertEquals("font-size", DeclarationList.normalize("Font-Size"));
+        for (String[] pair : new String[][] { { "straße", "STRAßE" }, { "İd", "id" }, { "ıd", "Id" }, { "ς", "Σ" } }) {
+            assertEquals(pair[0].equalsIgnoreCase(pair[1]), DeclarationList.normalize(pair[0]).equals(DeclarationList.normalize(pair[1])));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.silentmatt.dss.declaration;
+
+import com.silentmatt.dss.error.ListErrorReporter;
+import com.silentmatt.dss.evaluator.DSSEvaluator;
+import com.silentmatt.dss.evaluator.EvaluationState;
+import com.silentmatt.dss.parser.DSSParser;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ExpressionTest {
+    private ListErrorReporter errors;
+    private EvaluationState state;
+
+    @Before
+    public void setUp() {
+        errors = new ListErrorReporter();
+        DSSEvaluator.Options opts = new DSSEvaluator.Options(null);
+        opts.setErrors(errors);
+        opts.getVariables().declare("width", DSSParser.parseExpression("10px"));
+        state = new EvaluationState(opts);
+    }
+
+    private Expression substitute(Expression expression) {
+        return expression.substituteValues(state, DeclarationList.EMPTY, true, true);
+    }
+
+    @Test
+    public void testLiteralsAreNotCopied() {
+        String[] literals = {
+            "1px #369 solid",
+            "\"Helvetica Neue\", Arial, sans-serif",
+            "url(\"bg.png\") 0 / 50% no-repeat",
+            "rgb(1, 2, 3) inset",
+            "local(foo, bar(baz)) auto",
+            "calc(100% - 2em) auto",
+        };
+        for (String text : literals) {
+            Expression expression = DSSParser.parseExpression(text);
+            assertSame(text, expression, substitute(expression));
+        }
+        assertEquals(0, errors.getErrorCount());
+    }
+
+    @Test
+    public void testReferencesAreSubstituted() {
+        Expression expression = DSSParser.parseExpression("const(width) auto calc(const(width) - 1px) darken(#369, 10%)");
+        assertTrue(expression.needsSubstitution());
+        Expression result = substitute(expression);
+        assertNotSame(expression, result);
+        assertEquals("10px auto calc(10px - 1px) #264C73", result.toString());
+        assertSame(expression.getTerms().get(1), result.getTerms().get(1));
+    }
+
+    @Test
+    public void testUnchangedDeclarationIsReused() {
+        Declaration literal = DSSParser.parseDeclaration("margin: 0 auto !important");
+        assertSame(literal, literal.substituteValues(state, DeclarationList.EMPTY, true, true));
+
+        Declaration reference = DSSParser.parseDeclaration("margin: const(width) auto !important");
+        Declaration result = reference.substituteValues(state, DeclarationList.EMPTY, true, true);
+        assertNotSame(reference, result);
+        assertEquals("margin: 10px auto !important", result.toString());
+    }
+}
@@ -0,0 +1,88 @@
+package com.silentmatt.dss.evaluator;
+
+import com.silentmatt.dss.DSSDocument;
+import com.silentmatt.dss.declaration.DeclarationList;
+import com.silentmatt.dss.directive.ClassDirective;
+import com.silentmatt.dss.error.ListErrorReporter;
+import com.silentmatt.dss.parser.DSSParser;
+import com.silentmatt.dss.term.ClassReferenceTerm;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ClassExpansionCacheTest {
+    private static String compile(String dss, ClassExpansionCache cache, ListErrorReporter errors) throws IOException {
+        DSSEvaluator.Options opts = new DSSEvaluator.Options(new URL("file:/classes.dss"));
+        opts.setErrors(errors);
+        opts.setClassCache(cache);
+        return new DSSEvaluator(opts).evaluate(DSSDocument.parse(dss, errors)).toString();
+    }
+
+    private static DeclarationList arguments(String reference) {
+        return ((ClassReferenceTerm) DSSParser.parseDeclaration("apply: " + reference).getExpression().getTerms().get(0)).getArguments();
+    }
+
+    private static void assertCounts(ClassExpansionCache cache, long hits, long misses, long uncached) {
+        assertEquals(Arrays.asList(hits, misses, uncached),
+                Arrays.asList(cache.getHitCount(), cache.getMissCount(), cache.getUncachedCount()));
+    }
+
+    @Test
+    public void testRepeatedArguments() throws IOException {
+        ClassExpansionCache cache = new ClassExpansionCache();
+        ListErrorReporter errors = new ListErrorReporter();
+        String css = compile("@class button<bg: #369; pad: 2px> { background: param(bg); padding: @pad @calc(@pad * 2); :hover { color: darken(param(bg), 10%); } }\n"
+                + "a { apply: button<bg: red>; }\n"
+                + "b { apply: button<bg: red>; }\n"
+                + "c { apply: button<bg: red; pad: 2.0000001px>; }\n"
+                + "d { apply: button; }\n"
+                + "e { apply: button; }\n", cache, errors);
+        assertCounts(cache, 2, 3, 0);
+        assertEquals(0.4, cache.getHitRate(), 1e-9);
+        assertEquals(0, errors.getErrorCount());
+        assertTrue(css.contains("a {\n\tbackground: #F00;\n\tpadding: 2px 4px;\n}\na :hover {\n\tcolor: #C00;\n}\n"));
+        assertTrue(css.contains("b {\n\tbackground: #F00;\n\tpadding: 2px 4px;\n}\nb :hover {\n\tcolor: #C00;\n}\n"));
+        assertTrue(css.contains("c {\n\tbackground: #F00;\n\tpadding: 2px 4px;\n}\n"));
+        assertTrue(css.contains("e {\n\tbackground: #369;\n\tpadding: 2px 4px;\n}\ne :hover {\n\tcolor: #264C73;\n}\n"));
+    }
+
+    @Test
+    public void testUncacheable() throws IOException {
+        ClassExpansionCache cache = new ClassExpansionCache();
+        ListErrorReporter errors = new ListErrorReporter();
+        String css = compile("@define { c: const(d); d: red; }\n"
+                + "@class a<x: 1> { color: const(c); }\n"
+                + "@class b<x: 1> { width: param(x); }\n"
+                + "p { apply: a; }\n"
+                + "@define { d: blue; }\n"
+                + "q { apply: a; apply: b<x: const(d)>; }\n", cache, errors);
+        assertCounts(cache, 0, 0, 3);
+        assertEquals("p {\n\tcolor: #F00;\n}\nq {\n\tcolor: #00F;\n\twidth: #00F;\n}\n", css);
+    }
+
+    @Test
+    public void testWarningsAreReportedEveryTime() throws IOException {
+        ClassExpansionCache cache = new ClassExpansionCache();
+        ListErrorReporter errors = new ListErrorReporter();
+        compile("@class a<x: 1> { width: param(x); }\n"
+                + "p { apply: a<y: 2>; }\n"
+                + "q { apply: a<y: 2>; }\n", cache, errors);
+        assertCounts(cache, 0, 2, 0);
+        assertEquals(2, errors.getWarningCount());
+    }
+
+    @Test
+    public void testSameExpansion() {
+        ClassExpansionCache cache = new ClassExpansionCache();
+        ClassDirective clazz = DSSParser.parseClass("@class a<x: 1> { width: param(x); }");
+        ClassExpansionCache.Key key = cache.getKey(clazz, arguments("a<x: 1px>"));
+        assertNull(cache.get(key));
+
+        ClassExpansionCache.Expansion expansion = new ClassExpansionCache.Expansion(clazz.getDeclarationBlock().getDeclarations().toList(), clazz.getNestedRuleSets());
+        cache.put(key, expansion);
+        assertSame(expansion, cache.get(cache.getKey(clazz, arguments("a<x: 1px>"))));
+        assertNull(cache.get(cache.getKey(clazz, arguments("a<x: 1em>"))));
+    }
+}
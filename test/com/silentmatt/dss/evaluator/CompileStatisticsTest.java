@@ -0,0 +1,93 @@
+package com.silentmatt.dss.evaluator;
+
+import com.google.common.base.Charsets;
+import com.silentmatt.dss.DSSDocument;
+import com.silentmatt.dss.error.ListErrorReporter;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CompileStatisticsTest {
+    private static final String INCLUDED = "e { color: blue; }\n";
+
+    private static final ResourceLocator LOCATOR = new ResourceLocator() {
+        @Override
+        public InputStream openResource(URL url) throws IOException {
+            if (url.getPath().endsWith("/e.dss")) {
+                return new ByteArrayInputStream(INCLUDED.getBytes(Charsets.UTF_8));
+            }
+            throw new FileNotFoundException(url.toString());
+        }
+    };
+
+    private static CompileStatistics compile(String dss, boolean parallel) throws IOException {
+        ListErrorReporter errors = new ListErrorReporter();
+        CompileStatistics stats = new CompileStatistics(new URL("file:/stats.dss"));
+        DSSEvaluator.Options opts = new DSSEvaluator.Options(stats.getURL());
+        opts.setErrors(errors);
+        opts.setResourceLocator(LOCATOR);
+        opts.setStatistics(stats);
+        if (parallel) {
+            opts.setForkJoinPool(new ForkJoinPool(2));
+        }
+        new DSSEvaluator(opts).evaluate(DSSDocument.parse(dss, errors));
+        assertEquals(0, errors.getErrorCount());
+        return stats;
+    }
+
+    private static List<Long> counts(CompileStatistics stats) {
+        return Arrays.asList(stats.getIncludeCount(), stats.getClassApplicationCount(), stats.getNestedRuleSetCount(), stats.getCalculationCount(),
+                stats.getClassCacheHitCount() + stats.getClassCacheMissCount());
+    }
+
+    @Test
+    public void testEvaluationCounts() throws IOException {
+        String dss = "@class box<w: 1px> { width: param(w); }\n"
+                + "@include url(e.dss);\n"
+                + "a { apply: box<w: 2px>; height: @calc(1px + 2px); b { color: red; } c { margin: @calc(2em * 2); } }\n"
+                + "d { apply: box; apply: box<w: 3px>; }\n"
+                + "f { apply: box<w: 2px>; }\n";
+        for (boolean parallel : new boolean[] { false, true }) {
+            CompileStatistics stats = compile(dss, parallel);
+            assertEquals(Arrays.asList(1L, 4L, 2L, 2L, 4L), counts(stats));
+            assertTrue(stats.getIncludeNanos() > 0);
+            if (!parallel) {
+                // Parallel blocks can both miss before either one stores its expansion
+                assertEquals(1, stats.getClassCacheHitCount());
+            }
+        }
+    }
+
+    @Test
+    public void testPhasesAndFormats() throws IOException {
+        CompileStatistics stats = new CompileStatistics(new URL("file:/a \"quoted\" name.dss"));
+        stats.endPhase();
+        stats.beginPhase("parse");
+        stats.beginPhase("evaluate");
+        stats.endPhase();
+        stats.setOutputBytes(42);
+
+        List<CompileStatistics.Phase> phases = stats.getPhases();
+        assertEquals(2, phases.size());
+        assertEquals("parse", phases.get(0).getName());
+        assertEquals("evaluate", phases.get(1).getName());
+        assertTrue(phases.get(1).getNanos() >= 0);
+
+        String json = stats.toJSON();
+        assertTrue(json, json.startsWith("{\"url\":\"file:/a \\\"quoted\\\" name.dss\",\"phases\":[{\"name\":\"parse\",\"nanos\":"));
+        assertTrue(json, json.endsWith(",\"includes\":0,\"includeNanos\":0,\"classApplications\":0,\"classCacheHits\":0,\"classCacheMisses\":0,\"nestedRuleSets\":0,\"calculations\":0,\"outputBytes\":42}"));
+        assertFalse(json.contains("\n"));
+
+        String text = stats.toString();
+        assertTrue(text, text.contains("evaluate"));
+        assertTrue(text, text.contains("class cache hits"));
+        assertTrue(text, text.contains("output bytes"));
+    }
+}
@@ -0,0 +1,68 @@
+package com.silentmatt.dss.evaluator;
+
+import com.silentmatt.dss.DSSDocument;
+import com.silentmatt.dss.declaration.Expression;
+import com.silentmatt.dss.error.ListErrorReporter;
+import com.silentmatt.dss.error.NullErrorReporter;
+import com.silentmatt.dss.parser.DSSParser;
+import java.io.IOException;
+import java.net.URL;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ConstantCacheTest {
+    private static Expression parse(String value) {
+        return DSSParser.parseDeclaration("x: " + value).getExpression();
+    }
+
+    private static String compile(String dss, ListErrorReporter errors) throws IOException {
+        DSSEvaluator.Options opts = new DSSEvaluator.Options(new URL("file:/constants.dss"));
+        opts.setErrors(errors);
+        return new DSSEvaluator(opts).evaluate(DSSDocument.parse(dss, errors)).toString();
+    }
+
+    @Test
+    public void testIsConstant() {
+        assertTrue(ConstantCache.isConstant(parse("1px solid #fff")));
+        assertTrue(ConstantCache.isConstant(parse("lighten(#369, 20%)")));
+        assertTrue(ConstantCache.isConstant(parse("@calc(1px + -2px)")));
+        assertFalse(ConstantCache.isConstant(parse("1px const(a)")));
+        assertFalse(ConstantCache.isConstant(parse("lighten(param(c), 20%)")));
+        assertFalse(ConstantCache.isConstant(parse("@calc(prop(width) * 2)")));
+        assertFalse(ConstantCache.isConstant(parse("@calc(1px + -@a)")));
+    }
+
+    @Test
+    public void testValueIsReused() {
+        DSSEvaluator.Options opts = new DSSEvaluator.Options(null);
+        opts.setErrors(new NullErrorReporter());
+        EvaluationState state = new EvaluationState(opts);
+
+        Expression value = parse("lighten(#369, 20%)");
+        Expression result = state.getConstantValue(value);
+        assertEquals("#69C", result.toString());
+        assertSame(result, state.getConstantValue(value));
+        assertSame(result, state.fork(new NullErrorReporter()).getConstantValue(value));
+        assertNull(state.getConstantValue(parse("const(a)")));
+    }
+
+    @Test
+    public void testRedeclare() throws IOException {
+        ListErrorReporter errors = new ListErrorReporter();
+        String css = compile(
+                "@define { c: lighten(#369, 20%); var: const(c); }\n"
+                + "a { color: const(c); border-color: @c; background: const(var); }\n"
+                + "@define { c: red; }\n"
+                + "b { color: const(c); border-color: @c; background: const(var); }\n", errors);
+        assertEquals("a {\n\tcolor: #69C;\n\tborder-color: #69C;\n\tbackground: #69C;\n}\n"
+                + "b {\n\tcolor: #F00;\n\tborder-color: #F00;\n\tbackground: #F00;\n}\n", css);
+        assertEquals(0, errors.getErrorCount() + errors.getWarningCount());
+    }
+
+    @Test
+    public void testErrorsAreReportedForEachReference() throws IOException {
+        ListErrorReporter errors = new ListErrorReporter();
+        compile("@define { bad: @calc(1px + red); }\na { width: const(bad); height: const(bad); }\n", errors);
+        assertEquals(2, errors.getErrorCount());
+    }
+}
@@ -0,0 +1,52 @@
+package com.silentmatt.dss.evaluator;
+
+import com.silentmatt.dss.DSSDocument;
+import com.silentmatt.dss.error.NullErrorReporter;
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class DependencyGraphTest {
+    private static List<String> names(List<URL> urls) {
+        List<String> result = new ArrayList<>();
+        for (URL url : urls) {
+            result.add(url.getPath().substring(url.getPath().lastIndexOf('/') + 1));
+        }
+        return result;
+    }
+
+    @Test
+    public void testEvaluationRecordsIncludes() throws Exception {
+        URL url = new File("./test/include-recursive.dss").toURI().toURL();
+        DependencyGraph graph = new DependencyGraph();
+
+        DSSEvaluator.Options opts = new DSSEvaluator.Options(url);
+        opts.setErrors(new NullErrorReporter());
+        opts.setDependencyGraph(graph);
+        new DSSEvaluator(opts).evaluate(DSSDocument.parse(new DefaultResourcesLocator(), url, new NullErrorReporter()));
+
+        assertEquals(Arrays.asList("include-recursive.dss", "include-test-a.dss", "include-test-b.dss", "include-test-c.dss", "include-test-d.css"),
+                names(graph.getDependencies(url)));
+
+        URL c = new URL(url, "include/include-test-c.dss");
+        assertEquals(Arrays.asList("include-test-c.dss", "include-test-b.dss", "include-test-a.dss", "include-recursive.dss"),
+                names(graph.getDependents(c)));
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        DependencyGraph graph = new DependencyGraph();
+        URL a = new URL("file:/a.dss");
+        URL b = new URL("file:/b.dss");
+        graph.addInclude(a, b);
+        assertEquals(2, graph.getDependencies(a).size());
+
+        graph.clear();
+        assertEquals(1, graph.getDependencies(a).size());
+        assertEquals(1, graph.getDependents(b).size());
+    }
+}
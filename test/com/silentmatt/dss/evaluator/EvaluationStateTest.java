@@ -0,0 +1,81 @@
+package com.silentmatt.dss.evaluator;
+
+import com.silentmatt.dss.declaration.Expression;
+import com.silentmatt.dss.error.NullErrorReporter;
+import com.silentmatt.dss.parser.DSSParser;
+import com.silentmatt.dss.rule.RuleSet;
+import com.silentmatt.dss.term.StringTerm;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class EvaluationStateTest {
+    EvaluationState state;
+
+    @Before
+    public void setUp() {
+        DSSEvaluator.Options opts = new DSSEvaluator.Options(null);
+        opts.setErrors(new NullErrorReporter());
+        opts.getVariables().declare("option", new StringTerm("o").toExpression());
+        state = new EvaluationState(opts);
+    }
+
+    private static Expression value(String s) {
+        return new StringTerm(s).toExpression();
+    }
+
+    @Test
+    public void emptyLevelsDontCreateScopes() {
+        Scope<Expression> global = state.getVariables();
+        state.pushScope(Collections.<RuleSet>emptyList());
+        state.pushScope(Collections.<RuleSet>emptyList());
+        assertSame(global, state.getVariables());
+        assertEquals(2, state.getRuleSets().size());
+
+        state.popScope();
+        state.popScope();
+        assertSame(global, state.getVariables());
+        assertEquals(0, state.getRuleSets().size());
+    }
+
+    @Test
+    public void declarationsArePoppedWithTheirLevel() {
+        state.pushScope(Collections.<RuleSet>emptyList());
+        state.declareVariable("a", value("outer"), false);
+        state.pushScope(Collections.<RuleSet>emptyList());
+        state.pushScope(Collections.<RuleSet>emptyList());
+        state.declareVariable("a", value("inner"), false);
+        state.declareVariable("b", value("global"), true);
+        state.pushScope(Collections.<RuleSet>emptyList());
+        assertEquals("inner", state.getVariables().get("a").toString());
+
+        state.popScope();
+        state.popScope();
+        assertEquals("outer", state.getVariables().get("a").toString());
+        state.popScope();
+        assertEquals("outer", state.getVariables().get("a").toString());
+        state.popScope();
+        assertNull(state.getVariables().get("a"));
+        assertEquals("global", state.getVariables().get("b").toString());
+        assertEquals("o", state.getVariables().get("option").toString());
+    }
+
+    @Test
+    public void findRuleSetsInScopeOrder() {
+        RuleSet a = DSSParser.parseRuleSet("#content > span.c, b { x: 1; }");
+        RuleSet b = DSSParser.parseRuleSet("b { x: 2; }");
+        RuleSet c = DSSParser.parseRuleSet("b, b { x: 3; }");
+        state.pushScope(Arrays.asList(a, b));
+        state.pushScope(Collections.<RuleSet>emptyList());
+        state.pushScope(Arrays.asList(c));
+
+        assertEquals(Arrays.asList(a, b, c, c), state.findRuleSets(b.getSelectors().get(0)));
+        assertEquals(Arrays.asList(a), state.findRuleSets(DSSParser.parseRuleSet("#content>span.c { }").getSelectors().get(0)));
+        assertEquals(Collections.<RuleSet>emptyList(), state.findRuleSets(DSSParser.parseRuleSet("i { }").getSelectors().get(0)));
+
+        state.popScope();
+        assertEquals(Arrays.asList(a, b), state.findRuleSets(b.getSelectors().get(0)));
+    }
+}
@@ -0,0 +1,106 @@
+package com.silentmatt.dss.evaluator;
+
+import com.google.common.base.Charsets;
+import com.silentmatt.dss.DSSDocument;
+import com.silentmatt.dss.error.ListErrorReporter;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MemoryParseCacheTest {
+    Map<String, String> files;
+    ResourceLocator locator;
+    ListErrorReporter errors;
+
+    @Before
+    public void setUp() {
+        files = new HashMap<>();
+        files.put("http://example.com/a.dss", "a { width: 1px; }");
+        files.put("http://example.com/b.dss", "b { color: green; }");
+        files.put("http://example.com/c.dss", "c { color: blue; }");
+        locator = new ResourceLocator() {
+            @Override
+            public InputStream openResource(URL url) {
+                return new ByteArrayInputStream(files.get(url.toExternalForm()).getBytes(Charsets.UTF_8));
+            }
+        };
+        errors = new ListErrorReporter();
+    }
+
+    @Test
+    public void testHitsAndMisses() throws Exception {
+        MemoryParseCache cache = new MemoryParseCache();
+        URL a = new URL("http://example.com/a.dss");
+
+        DSSDocument first = cache.parse(locator, a, errors);
+        DSSDocument second = cache.parse(locator, a, errors);
+        assertNotNull(first);
+        assertSame(first, second);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testChangedContentsInvalidate() throws Exception {
+        MemoryParseCache cache = new MemoryParseCache();
+        URL a = new URL("http://example.com/a.dss");
+
+        DSSDocument first = cache.parse(locator, a, errors);
+        files.put("http://example.com/a.dss", "a { width: 2px; }");
+        DSSDocument second = cache.parse(locator, a, errors);
+        assertNotSame(first, second);
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.getHitCount());
+        assertSame(second, cache.parse(locator, a, errors));
+    }
+
+    @Test
+    public void testFileURLFromCustomLocator() throws Exception {
+        MemoryParseCache cache = new MemoryParseCache();
+        URL generated = new URL("file:/generated/main.dss");
+        files.put(generated.toExternalForm(), "a { width: 1px; }");
+
+        DSSDocument first = cache.parse(locator, generated, errors);
+        assertSame(first, cache.parse(locator, generated, errors));
+        files.put(generated.toExternalForm(), "a { width: 2px; }");
+        DSSDocument second = cache.parse(locator, generated, errors);
+        assertNotSame(first, second);
+        assertEquals("a { width: 2px; }", second.toString().trim().replaceAll("\\s+", " "));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws Exception {
+        MemoryParseCache cache = new MemoryParseCache(2);
+        URL a = new URL("http://example.com/a.dss");
+        URL b = new URL("http://example.com/b.dss");
+        URL c = new URL("http://example.com/c.dss");
+
+        DSSDocument docA = cache.parse(locator, a, errors);
+        cache.parse(locator, b, errors);
+        cache.parse(locator, a, errors);
+        cache.parse(locator, c, errors);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertSame(docA, cache.parse(locator, a, errors));
+        long misses = cache.getMissCount();
+        cache.parse(locator, b, errors);
+        assertEquals(misses + 1, cache.getMissCount());
+    }
+
+    @Test
+    public void testErrorsAreNotCached() throws Exception {
+        MemoryParseCache cache = new MemoryParseCache();
+        URL a = new URL("http://example.com/a.dss");
+        files.put("http://example.com/a.dss", "a { color: red; ");
+
+        cache.parse(locator, a, errors);
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,97 @@
+package com.silentmatt.dss.evaluator;
+
+import com.silentmatt.dss.DSSDocument;
+import com.silentmatt.dss.error.ExceptionErrorReporter;
+import com.silentmatt.dss.error.ListErrorReporter;
+import com.silentmatt.dss.error.Message;
+import com.silentmatt.dss.error.NullErrorReporter;
+import com.silentmatt.dss.parser.DSSParser;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.AfterClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ParallelEvaluatorTest {
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdown() {
+        pool.shutdown();
+    }
+
+    private static List<String> compile(URL url, DSSDocument dss, ForkJoinPool forkJoinPool) throws IOException {
+        ListErrorReporter errors = new ListErrorReporter();
+        DSSEvaluator.Options opts = new DSSEvaluator.Options(url);
+        opts.setErrors(errors);
+        opts.setForkJoinPool(forkJoinPool);
+
+        List<String> result = new ArrayList<>();
+        result.add(new DSSEvaluator(opts).evaluate(dss).toString());
+        for (Message message : errors.getErrors()) {
+            result.add(message.toString());
+        }
+        for (Message message : errors.getWarnings()) {
+            result.add(message.toString());
+        }
+        return result;
+    }
+
+    @Test
+    public void testCorpus() throws IOException {
+        File dir = new File("./test");
+        String[] names = dir.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File directory, String filename) {
+                return filename.endsWith(".dss");
+            }
+        });
+        Arrays.sort(names);
+        assertTrue(names.length > 0);
+
+        for (String name : names) {
+            URL url = new File(dir, name).toURI().toURL();
+            DSSDocument dss = DSSDocument.parse(new DefaultResourcesLocator(), url, new ExceptionErrorReporter(new NullErrorReporter()));
+            assertEquals(name, compile(url, dss, null), compile(url, dss, pool));
+        }
+    }
+
+    @Test
+    public void testStateAndErrorOrder() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("@class c<p: 1> { z: param(p); }\n");
+        for (int i = 0; i < 5 * ParallelEvaluator.CHUNK_SIZE; i++) {
+            if (i % 40 == 0) {
+                sb.append("@define { v: ").append(i).append("px; }\n");
+            }
+            if (i == 90) {
+                sb.append("g { @define global { v: global; } }\n");
+            }
+            sb.append(".r").append(i).append(" { w: const(v); apply: c<p: ").append(i).append(">; }\n");
+            if (i % 50 == 7) {
+                sb.append(".e").append(i).append(" { w: const(missing").append(i).append("); apply: c<q").append(i).append(": 1>; }\n");
+            }
+        }
+
+        URL url = new URL("file:/parallel.dss");
+        DSSDocument dss = DSSDocument.parse(sb, new ExceptionErrorReporter(new NullErrorReporter()));
+        List<String> sequential = compile(url, dss, null);
+        assertEquals(sequential, compile(url, dss, pool));
+        assertTrue(sequential.get(0).contains(".r39 {\n\tw: 0px;\n\tz: 39;\n}\n.r40 {\n\tw: 40px;"));
+        assertEquals(1 + 2 * 4, sequential.size());
+    }
+
+    @Test
+    public void testIsIndependent() {
+        assertTrue(ParallelEvaluator.isIndependent(DSSParser.parseRuleSet("a { @define { v: 1; } b { @class c { z: 1; } } }")));
+        assertFalse(ParallelEvaluator.isIndependent(DSSParser.parseRuleSet("a { b { @define global { v: 1; } } }")));
+        assertFalse(ParallelEvaluator.isIndependent(DSSParser.parseRuleSet("a { @class c { @define global { v: 1; } } }")));
+        assertFalse(ParallelEvaluator.isIndependent(DSSParser.parseDirective("@define { v: 1; }")));
+    }
+}
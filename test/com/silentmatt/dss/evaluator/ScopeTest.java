@@ -79,4 +79,38 @@ public class ScopeTest {
         assertTrue(localScope.containsKey("fromParent"));
         assertTrue(localScope.containsKey("fromGlobal"));
     }
+
+    @Test
+    public void flattenCopiesVisibleEntries() {
+        parentScope.declare("fromGlobal", 7);
+        Scope<Integer> flat = localScope.flatten();
+
+        assertNull(flat.parent());
+        assertEquals(Integer.valueOf(5), flat.get("fromLocal"));
+        assertEquals(Integer.valueOf(21), flat.get("fromParent"));
+        assertEquals(Integer.valueOf(7), flat.get("fromGlobal"));
+
+        localScope.declare("fromLocal", 6);
+        flat.declare("fromFlat", 1);
+        assertEquals(Integer.valueOf(5), flat.get("fromLocal"));
+        assertFalse(localScope.containsKey("fromFlat"));
+    }
+
+    @Test
+    public void emptyScopesAreSkipped() {
+        Scope<Integer> empty = new Scope<>(new Scope<>(localScope));
+        assertEquals(Integer.valueOf(5), empty.get("fromLocal"));
+        assertTrue(empty.containsKey("fromGlobal"));
+        assertFalse(empty.declaresKey("fromLocal"));
+        assertNull(empty.get("missing"));
+        assertEquals(3, empty.flatten().toString().split("\n").length);
+    }
+
+    @Test
+    public void nullValuesHideParents() {
+        localScope.declare("fromGlobal", null);
+        assertTrue(localScope.containsKey("fromGlobal"));
+        assertNull(localScope.get("fromGlobal"));
+        assertEquals(Integer.valueOf(42), parentScope.get("fromGlobal"));
+    }
 }
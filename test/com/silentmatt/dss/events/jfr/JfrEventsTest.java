@@ -0,0 +1,106 @@
+package com.silentmatt.dss.events.jfr;
+
+import com.google.common.base.Charsets;
+import com.silentmatt.dss.DSSDocument;
+import com.silentmatt.dss.css.CssDocument;
+import com.silentmatt.dss.error.ListErrorReporter;
+import com.silentmatt.dss.evaluator.DSSEvaluator;
+import com.silentmatt.dss.evaluator.NullParseCache;
+import com.silentmatt.dss.evaluator.ResourceLocator;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class JfrEventsTest {
+    private static final String INCLUDED = "e { color: blue; }\n";
+
+    private static final ResourceLocator LOCATOR = new ResourceLocator() {
+        @Override
+        public InputStream openResource(URL url) throws IOException {
+            if (url.getPath().endsWith("/e.dss")) {
+                return new ByteArrayInputStream(INCLUDED.getBytes(Charsets.UTF_8));
+            }
+            throw new FileNotFoundException(url.toString());
+        }
+    };
+
+    private static List<RecordedEvent> eventsNamed(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> result = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testEventsAreRecorded() throws IOException {
+        ListErrorReporter errors = new ListErrorReporter();
+        DSSDocument document = DSSDocument.parse("@class box<w: 1px; h: 2px> { width: param(w); }\n"
+                + "@include url(e.dss);\n"
+                + "a { apply: box<w: 2px>; b { color: red; } }\n", errors);
+        DSSEvaluator.Options opts = new DSSEvaluator.Options(new URL("file:/events.dss"));
+        opts.setErrors(errors);
+        opts.setResourceLocator(LOCATOR);
+        opts.setParseCache(new NullParseCache());
+
+        Path file = Files.createTempFile("dss", ".jfr");
+        try {
+            String css;
+            try (Recording recording = new Recording()) {
+                recording.enable("com.silentmatt.dss.Parse");
+                recording.enable("com.silentmatt.dss.Include");
+                recording.enable("com.silentmatt.dss.ClassApplication");
+                recording.enable("com.silentmatt.dss.NestedRuleSet");
+                recording.enable("com.silentmatt.dss.Write");
+                recording.start();
+                CssDocument result = new DSSEvaluator(opts).evaluate(document);
+                css = result.toString(true);
+                recording.stop();
+                recording.dump(file);
+            }
+            assertEquals(0, errors.getErrorCount());
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+            List<RecordedEvent> parses = eventsNamed(events, "com.silentmatt.dss.Parse");
+            assertEquals(1, parses.size());
+            assertEquals("file:/e.dss", parses.get(0).getString("url"));
+            assertEquals(INCLUDED.length(), parses.get(0).getLong("bytes"));
+
+            List<RecordedEvent> includes = eventsNamed(events, "com.silentmatt.dss.Include");
+            assertEquals(1, includes.size());
+            assertEquals("file:/e.dss", includes.get(0).getString("url"));
+            assertFalse(includes.get(0).getBoolean("literal"));
+
+            List<RecordedEvent> classes = eventsNamed(events, "com.silentmatt.dss.ClassApplication");
+            assertEquals(1, classes.size());
+            assertEquals("box", classes.get(0).getString("className"));
+            assertEquals(1, classes.get(0).getInt("argumentCount"));
+
+            List<RecordedEvent> nested = eventsNamed(events, "com.silentmatt.dss.NestedRuleSet");
+            assertEquals(1, nested.size());
+            assertEquals("a b", nested.get(0).getString("selectors"));
+
+            List<RecordedEvent> writes = eventsNamed(events, "com.silentmatt.dss.Write");
+            assertEquals(1, writes.size());
+            assertTrue(writes.get(0).getBoolean("compact"));
+            assertEquals(css.length(), writes.get(0).getLong("characters"));
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.silentmatt.dss.parser;
+
+import com.silentmatt.dss.DSSDocument;
+import com.silentmatt.dss.error.ExceptionErrorReporter;
+import com.silentmatt.dss.error.NullErrorReporter;
+import com.silentmatt.dss.evaluator.DSSEvaluator;
+import com.silentmatt.dss.evaluator.DefaultResourcesLocator;
+import com.silentmatt.dss.evaluator.DiskParseCache;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class BinaryDocumentTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static DSSDocument parse(URL url) throws IOException {
+        return DSSDocument.parse(new DefaultResourcesLocator(), url, new ExceptionErrorReporter(new NullErrorReporter()));
+    }
+
+    private static String compile(URL url, DSSDocument dss) throws IOException {
+        DSSEvaluator.Options opts = new DSSEvaluator.Options(url);
+        opts.setErrors(new NullErrorReporter());
+        opts.setResourceLocator(new DefaultResourcesLocator());
+        return new DSSEvaluator(opts).evaluate(dss).toString();
+    }
+
+    private static byte[] write(DSSDocument dss) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BinaryDocumentWriter(out).writeDocument(dss);
+        return out.toByteArray();
+    }
+
+    private static DSSDocument read(byte[] bytes) throws IOException {
+        return new BinaryDocumentReader(new ByteArrayInputStream(bytes)).readDocument();
+    }
+
+    @Test
+    public void testRoundTripCorpus() throws IOException {
+        File dir = new File("./test");
+        String[] names = dir.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File directory, String filename) {
+                return filename.endsWith(".dss");
+            }
+        });
+        Arrays.sort(names);
+        assertTrue(names.length > 0);
+
+        for (String name : names) {
+            URL url = new File(dir, name).toURI().toURL();
+            DSSDocument original = parse(url);
+            byte[] bytes = write(original);
+            DSSDocument copy = read(bytes);
+
+            assertEquals(name, original.toString(), copy.toString());
+            assertEquals(name, compile(url, original), compile(url, copy));
+            assertArrayEquals(name, bytes, write(copy));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherVersions() throws IOException {
+        byte[] bytes = write(parse(new File("./test/big.dss").toURI().toURL()));
+        bytes[7]++;
+        read(bytes);
+    }
+
+    private static byte[] classWithNameLength(byte... length) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(BinaryFormat.MAGIC);
+        out.writeInt(BinaryFormat.VERSION);
+        out.write(new byte[] { 1, BinaryFormat.CLASS, 1 });
+        out.write(length);
+        out.writeBytes("abc");
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testRejectsBadStringLengths() throws IOException {
+        byte[][] documents = {
+            classWithNameLength((byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07),
+            classWithNameLength((byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F),
+            classWithNameLength((byte) 4),
+        };
+        for (byte[] bytes : documents) {
+            try {
+                new BinaryDocumentReader(new ByteArrayInputStream(bytes), bytes.length).readDocument();
+                fail("Read a string past the end of the document");
+            } catch (IOException ex) {
+                assertTrue(ex.getMessage(), ex.getMessage().startsWith("Invalid"));
+            }
+        }
+    }
+
+    @Test
+    public void testDiskParseCache() throws IOException {
+        URL url = new File("./test/big.dss").toURI().toURL();
+        File cacheDir = folder.newFolder("cache");
+        DiskParseCache cache = new DiskParseCache(cacheDir);
+
+        DSSDocument first = cache.parse(new DefaultResourcesLocator(), url, new NullErrorReporter());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cacheDir.listFiles().length);
+
+        DiskParseCache other = new DiskParseCache(cacheDir);
+        DSSDocument second = other.parse(new DefaultResourcesLocator(), url, new NullErrorReporter());
+        assertEquals(1, other.getHitCount());
+        assertEquals(first.toString(), second.toString());
+
+        File entry = cacheDir.listFiles()[0];
+        try (FileOutputStream out = new FileOutputStream(entry)) {
+            out.write(new byte[] { 1, 2, 3 });
+        }
+        DSSDocument third = cache.parse(new DefaultResourcesLocator(), url, new NullErrorReporter());
+        assertEquals(first.toString(), third.toString());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(first.toString(), read(Files.readAllBytes(entry.toPath())).toString());
+    }
+}
@@ -0,0 +1,60 @@
+package com.silentmatt.dss.parser;
+
+import com.google.common.base.Charsets;
+import com.silentmatt.dss.DSSDocument;
+import com.silentmatt.dss.declaration.Declaration;
+import com.silentmatt.dss.error.ExceptionErrorReporter;
+import com.silentmatt.dss.error.NullErrorReporter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ScannerTest {
+    private static DSSDocument parseBytes(byte[] bytes) throws IOException {
+        return DSSDocument.parse(new ByteArrayInputStream(bytes), new ExceptionErrorReporter(new NullErrorReporter()));
+    }
+
+    private static DSSDocument parseString(String text) {
+        return DSSDocument.parse(text, new ExceptionErrorReporter(new NullErrorReporter()));
+    }
+
+    @Test
+    public void testInputSourcesAgree() throws IOException {
+        File dir = new File("./test");
+        String[] names = dir.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File directory, String filename) {
+                return filename.endsWith(".dss");
+            }
+        });
+        Arrays.sort(names);
+        assertTrue(names.length > 0);
+
+        for (String name : names) {
+            File file = new File(dir, name);
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            String expected = parseBytes(bytes).toString();
+
+            assertEquals(name, expected, parseString(new String(bytes, Charsets.UTF_8)).toString());
+            assertEquals(name, expected, DSSDocument.parse(file, new ExceptionErrorReporter(new NullErrorReporter())).toString());
+        }
+    }
+
+    @Test
+    public void testNonAscii() throws IOException {
+        String text = "\uFEFFp:before { content: \"é€\"; }\r\nélément { x: y; }";
+        assertEquals("p:before {\n\tcontent: \"é€\";\n}\nélément {\n\tx: y;\n}\n", parseString(text).toString());
+    }
+
+    @Test
+    public void testParseDeclaration() {
+        Declaration declaration = DSSParser.parseDeclaration("width: [1px + 2px]");
+        assertEquals("width", declaration.getName());
+        assertEquals("width: @calc(1px + 2px)", declaration.toString());
+    }
+}
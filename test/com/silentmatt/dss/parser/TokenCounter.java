@@ -0,0 +1,54 @@
+package com.silentmatt.dss.parser;
+
+import java.io.InputStream;
+import java.nio.CharBuffer;
+
+/**
+ * Runs the {@link Scanner} over a document without parsing it, for
+ * benchmarks outside this package, since {@link Token} isn't public.
+ */
+public final class TokenCounter {
+    private TokenCounter() {
+    }
+
+    /**
+     * Tokenizes a document.
+     *
+     * @param source The document text.
+     *
+     * @return The number of tokens, not counting the end of the input.
+     */
+    public static int countTokens(CharSequence source) {
+        return count(Scanner.fromText(source));
+    }
+
+    /**
+     * Tokenizes a UTF-8 document, one byte at a time.
+     *
+     * @param source The encoded document.
+     *
+     * @return The number of tokens, not counting the end of the input.
+     */
+    public static int countTokens(InputStream source) {
+        return count(new Scanner(source));
+    }
+
+    /**
+     * Tokenizes a decoded document.
+     *
+     * @param source The document's characters.
+     *
+     * @return The number of tokens, not counting the end of the input.
+     */
+    public static int countTokens(CharBuffer source) {
+        return count(new Scanner(source));
+    }
+
+    private static int count(Scanner scanner) {
+        int count = 0;
+        while (scanner.Scan().kind != Scanner.eofSym) {
+            count++;
+        }
+        return count;
+    }
+}
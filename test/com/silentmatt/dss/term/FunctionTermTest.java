@@ -0,0 +1,39 @@
+package com.silentmatt.dss.term;
+
+import com.silentmatt.dss.parser.DSSParser;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FunctionTermTest {
+    private static Term parse(String value) {
+        return DSSParser.parseDeclaration("x: " + value).getExpression().getTerms().get(0);
+    }
+
+    @Test
+    public void testColorFunctions() {
+        assertEquals("#030405", parse("rgb(3, 4, 5)").toString());
+        assertEquals("rgba(3,4,5,0.5)", parse("rgba(3, 4, 5, 0.5)").toString());
+        assertEquals("hsl(3,4.5%,5.6%)", parse("hsl(3, 4.5%, 5.6%)").toString());
+        assertTrue(parse("RGB(3.4%, 4.5%, 5.6%)").isColor());
+    }
+
+    @Test
+    public void testNotColors() {
+        assertFalse(parse("rgb(3, 4)").isColor());
+        assertFalse(parse("rgb(3, 4, 5%)").isColor());
+        assertFalse(parse("rgb(3, 4, five)").isColor());
+        assertFalse(parse("rgba(3, 4, 5, #fff)").isColor());
+        assertFalse(parse("hsl(3%, 4%, 5%)").isColor());
+        assertFalse(parse("url2(3, 4, 5)").isColor());
+        assertEquals("rgb(3, 4, five)", parse("rgb(3, 4, five)").toString());
+    }
+
+    @Test
+    public void testColorIsCached() {
+        Term function = parse("rgba(3, 4, 5, 0.5)");
+        assertSame(function.toColor(), function.toColor());
+        Term hex = parse("#abc");
+        assertSame(hex.toColor(), hex.toColor());
+        assertNull(parse("#abcxyz").toColor());
+    }
+}
@@ -0,0 +1,94 @@
+package com.silentmatt.dss.util;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.text.DecimalFormat;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class NumberFormatterTest {
+    private static final int ITERATIONS = 1000000;
+
+    private static final DecimalFormat format6 = new DecimalFormat("#.######");
+    private static final DecimalFormat format4 = new DecimalFormat("#.####");
+
+    private static void assertSameFormat(double value) {
+        assertEquals(Double.toString(value), format6.format(value), NumberFormatter.format(value, 6));
+        assertEquals(Double.toString(value), format4.format(value), NumberFormatter.format(value, 4));
+    }
+
+    @Test
+    public void testSpecialValues() {
+        double[] values = {
+            0.0, -0.0, 0.5, -0.5, 1, -1, 2.5, 10, 100.25, -1e-7, 4e-7, 5e-7, 5.0000001e-7,
+            0.0078125, -0.0078125, 0.0234375, 0.00005, 0.00015, 123.4567895, 1.0000005,
+            9.9999999, 99999.99999999, 1e13, 1e20, -1e20, Double.MIN_VALUE, -1e-300,
+            Double.MAX_VALUE, 0x1p43, Math.nextDown(0x1p43), Long.MAX_VALUE,
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+        };
+        for (double value : values) {
+            assertSameFormat(value);
+        }
+    }
+
+    @Test
+    public void testRandomValues() {
+        Random random = new Random(17);
+        for (int i = 0; i < ITERATIONS; i++) {
+            // Any magnitude, mostly the ones that have fraction digits
+            assertSameFormat(random.nextGaussian() * Math.pow(10, random.nextInt(24) - 10));
+        }
+    }
+
+    @Test
+    public void testRoundedValues() {
+        Random random = new Random(42);
+        for (int i = 0; i < ITERATIONS; i++) {
+            // Short decimals and binary fractions, which are close to or exactly halfway
+            int digits = random.nextInt(9);
+            double value = random.nextInt(2000000) - 1000000;
+            value = random.nextBoolean() ? value / Math.pow(10, digits) : value / (1 << (digits * 2));
+            assertSameFormat(value);
+        }
+    }
+
+    @Test
+    public void testNoFractionDigits() {
+        DecimalFormat format0 = new DecimalFormat("#");
+        assertEquals("2", NumberFormatter.format(2.5, 0));
+        assertEquals("4", NumberFormatter.format(3.5, 0));
+        assertEquals("-8", NumberFormatter.format(-7.6, 0));
+        assertEquals("100000000000000000000", NumberFormatter.format(1e20, 0));
+
+        Random random = new Random(3);
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            double value = random.nextBoolean() ? (random.nextInt(2000) - 1000) / 2.0 : random.nextGaussian() * 1e6;
+            assertEquals(Double.toString(value), format0.format(value), NumberFormatter.format(value, 0));
+        }
+    }
+
+    @Test
+    public void testAppendable() throws IOException {
+        StringWriter out = new StringWriter();
+        NumberFormatter.format(out, -12.3400001, 6);
+        out.append(' ');
+        NumberFormatter.format(out, 0.00001, 4);
+        assertEquals("-12.34 0", out.toString());
+    }
+
+    @Test
+    public void testAreEquivalent() {
+        assertTrue(NumberFormatter.areEquivalent(1.0, 0.99999, 4));
+        assertFalse(NumberFormatter.areEquivalent(1.0, 0.9999, 4));
+        assertFalse(NumberFormatter.areEquivalent(0.0, -0.00001, 4));
+        assertTrue(NumberFormatter.areEquivalent(Double.NaN, Double.NaN, 4));
+
+        Random random = new Random(7);
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            double a = random.nextInt(20000) / 10000.0;
+            double b = a + (random.nextDouble() - 0.5) * 0.0002;
+            assertEquals(format4.format(a).equals(format4.format(b)), NumberFormatter.areEquivalent(a, b, 4));
+        }
+    }
+}